@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.ValidatingValueFactory;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares creating placeholder literals for invalid values by catching the
+ * exception of the {@link ValidatingValueFactory} with the
+ * {@link ValidatingValueFactoryWithPlaceholder}, which checks common datatypes
+ * with the {@link LexicalValidator} first.
+ *
+ * <p>
+ * Run with <code>./gradlew jmh -PjmhIncludes=LiteralValidationBenchmark</code>.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LiteralValidationBenchmark {
+    private static final String[] VALID = { "1234", "-17", "2019-05-01", "2023-05-15T08:09:10Z", "true", "12.5" };
+    private static final String[] INVALID = { "12a", "n/a", "2019-xx", "May 15th 2023", "yes", "1,5" };
+    private static final IRI[] DATATYPES = { XSD.INT, XSD.INTEGER, XSD.DATE, XSD.DATETIME, XSD.BOOLEAN,
+            XSD.DECIMAL };
+
+    // percentage of invalid values
+    @Param({ "0", "10", "50" })
+    int invalidPercent;
+
+    String[] labels;
+    IRI[] datatypes;
+
+    ValidatingValueFactory validating;
+    ValueFactory validatorBased;
+
+    @Setup
+    public void setup() {
+        labels = new String[1000];
+        datatypes = new IRI[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            int type = i % DATATYPES.length;
+            labels[i] = (i % 100 < invalidPercent) ? INVALID[type] : VALID[type];
+            datatypes[i] = DATATYPES[type];
+        }
+        validating = new ValidatingValueFactory();
+        validatorBased = new ValidatingValueFactoryWithPlaceholder() {
+            @Override
+            protected void warn(String message) {
+                // do not measure logging
+            }
+        };
+    }
+
+    @Benchmark
+    public void exceptionBased(Blackhole blackhole) {
+        for (int i = 0; i < labels.length; i++) {
+            // previous approach: detect invalid values by catching the exception
+            try {
+                blackhole.consume(validating.createLiteral(labels[i], datatypes[i]));
+            } catch (RuntimeException e) {
+                blackhole.consume(Values.literal("0", datatypes[i]));
+            }
+        }
+    }
+
+    @Benchmark
+    public void validatorBased(Blackhole blackhole) {
+        for (int i = 0; i < labels.length; i++) {
+            blackhole.consume(validatorBased.createLiteral(labels[i], datatypes[i]));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares matching files against each mapping one after another with the
+ * {@link MappingMatcher} for configurations with many mapping specs.
+ *
+ * <p>
+ * Run with <code>./gradlew jmh -PjmhIncludes=MappingMatcherBenchmark</code>.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingMatcherBenchmark {
+
+    // number of mapping specs
+    @Param({ "20", "200", "500" })
+    int specCount;
+
+    List<Mapping> mappings;
+    MappingMatcher matcher;
+    String[] fileNames;
+
+    @Setup
+    public void setup() {
+        mappings = new ArrayList<>();
+        for (int i = 0; i < specCount; i++) {
+            MappingSpec spec = new MappingSpec(String.format("type%04d", i))
+                    .withSourceFileIncludePattern("publications/type" + i + "-records/records_.*\\.jsonl(\\.gz)?")
+                    .withSourceFileExcludePattern(".*-summary\\.jsonl");
+            mappings.add(new Mapping(spec, Optional.empty()));
+        }
+        mappings.sort(MappingMatcher.PRIORITY_ORDER);
+        matcher = new MappingMatcher(mappings);
+
+        fileNames = new String[1000];
+        for (int i = 0; i < fileNames.length; i++) {
+            int type = (i * 7) % (specCount + 1);
+            // every (specCount + 1)th file does not match any mapping
+            fileNames[i] = "publications/type" + type + "-records/records_" + i + ".jsonl.gz";
+        }
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        for (String fileName : fileNames) {
+            Optional<Mapping> result = Optional.empty();
+            for (Mapping mapping : mappings) {
+                if (mapping.matches(fileName)) {
+                    result = Optional.of(mapping);
+                    break;
+                }
+            }
+            blackhole.consume(result);
+        }
+    }
+
+    @Benchmark
+    public void matcher(Blackhole blackhole) {
+        for (String fileName : fileNames) {
+            blackhole.consume(matcher.getMappingFor(fileName));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.WriterConfig;
+import org.eclipse.rdf4j.rio.helpers.BasicWriterSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the Rio N-Quads writer with a fixed context, as used for output
+ * files by default, with the {@link StreamingNQuadsWriter}.
+ *
+ * <p>
+ * Run with <code>./gradlew jmh</code>.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NQuadsWriterBenchmark {
+    private static final IRI GRAPH = Values.iri("https://example.com/graph/records_1");
+
+    @Param({ "false", "true" })
+    boolean compressed;
+
+    List<Statement> statements;
+
+    @Setup
+    public void setup() {
+        ValueFactory vf = Values.getValueFactory();
+        IRI type = Values.iri("https://example.com/ontology/Record");
+        IRI identifier = Values.iri("https://example.com/ontology/identifier");
+        IRI related = Values.iri("https://example.com/ontology/related");
+        statements = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            IRI subject = Values.iri("https://example.com/record/" + i);
+            statements.add(vf.createStatement(subject, RDF.TYPE, type));
+            statements.add(vf.createStatement(subject, RDFS.LABEL, vf.createLiteral("Record " + i, "en")));
+            statements.add(vf.createStatement(subject, identifier, vf.createLiteral(i)));
+            statements.add(vf.createStatement(subject, related, Values.iri("https://example.com/record/" + (i + 1))));
+        }
+    }
+
+    @Benchmark
+    public void rioWriter() throws Exception {
+        try (OutputStream out = openStream()) {
+            WriterConfig settings = new WriterConfig();
+            settings.set(BasicWriterSettings.PRETTY_PRINT, true);
+            RDFWriter writer = Rio.createWriter(RDFFormat.NQUADS, out);
+            writer.setWriterConfig(settings);
+            write(FixedContextRDFWriterWrapper.fixedContextFor(writer, GRAPH));
+        }
+    }
+
+    @Benchmark
+    public void streamingWriter() throws Exception {
+        try (OutputStream out = openStream()) {
+            StreamingNQuadsWriter writer = new StreamingNQuadsWriter(out, RDFFormat.NQUADS);
+            writer.setFixedContext(GRAPH);
+            write(writer);
+        }
+    }
+
+    private OutputStream openStream() throws Exception {
+        OutputStream out = OutputStream.nullOutputStream();
+        return compressed ? new GZIPOutputStream(out, 64 * 1024) : out;
+    }
+
+    private void write(RDFWriter writer) {
+        writer.startRDF();
+        for (Statement st : statements) {
+            writer.handleStatement(st);
+        }
+        writer.endRDF();
+    }
+}
@@ -5,6 +5,9 @@ package com.metaphacts.etl.lambda;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
@@ -13,14 +16,47 @@ import org.eclipse.rdf4j.rio.RDFWriter;
 /**
  * RDFWriter which collects a number of {@link Statement}s and writes them in
  * one go.
+ *
+ * <p>
+ * When an {@link Executor} is provided, batches are written asynchronously:
+ * while one buffer is written to the delegate (serialization and compression)
+ * on the executor, the caller fills the other buffer. At most one batch is
+ * written at any time, so the caller blocks when it has filled a buffer before
+ * the previous batch has been written. Errors of the delegate are thrown from
+ * the next call to this writer after they occurred and from all following
+ * calls.
+ * </p>
+ *
+ * <p>
+ * {@link #flushStatements()} or {@link #endRDF()} need to be called to write
+ * the last batch, {@link #close()} waits for a pending batch without writing
+ * the remaining statements.
+ * </p>
  */
-public class BatchingRDFWriter extends DelegatingRDFWriter {
+public class BatchingRDFWriter extends DelegatingRDFWriter implements AutoCloseable {
     List<Statement> statements = new ArrayList<>();
+    private List<Statement> spare = new ArrayList<>();
     private int batchSize;
+    private final Executor executor;
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+    private RDFHandlerException failure;
 
     public BatchingRDFWriter(RDFWriter delegate, int batchSize) {
+        this(delegate, batchSize, null);
+    }
+
+    /**
+     * Create a writer.
+     *
+     * @param delegate  writer to forward statements to
+     * @param batchSize number of statements to collect before writing them
+     * @param executor  executor to write batches on or <code>null</code> to write
+     *                  them on the calling thread
+     */
+    public BatchingRDFWriter(RDFWriter delegate, int batchSize, Executor executor) {
         super(delegate);
         this.batchSize = batchSize;
+        this.executor = executor;
     }
 
     public void setBatchSize(int batchSize) {
@@ -33,29 +69,97 @@ public class BatchingRDFWriter extends DelegatingRDFWriter {
 
     @Override
     public void handleStatement(Statement statement) throws RDFHandlerException {
+        if (failure != null || pending.isCompletedExceptionally()) {
+            // fail early, the output is incomplete anyway
+            awaitPending();
+        }
         // store statement in buffer
         statements.add(statement);
         if (statements.size() >= batchSize) {
-            // batch size has been reached or exceeded, flush all statements
-            flushStatements();
+            // batch size has been reached or exceeded, write all statements
+            writeBatch();
         }
     }
 
+    /**
+     * Write all pending statements and wait until they have been written.
+     */
     public void flushStatements() {
-        // write all pending statements
-        for (Statement statement : statements) {
+        writeBatch();
+        awaitPending();
+    }
+
+    private void writeBatch() {
+        if (executor == null) {
+            writeStatements(statements);
+            statements.clear();
+            return;
+        }
+        // wait for the previous batch, then swap buffers
+        awaitPending();
+        if (statements.isEmpty()) {
+            return;
+        }
+        List<Statement> batch = statements;
+        statements = spare;
+        spare = batch;
+        pending = CompletableFuture.runAsync(() -> {
+            writeStatements(batch);
+            batch.clear();
+        }, executor);
+    }
+
+    private void writeStatements(List<Statement> batch) {
+        for (Statement statement : batch) {
             super.handleStatement(statement);
         }
-        // clear buffer
-        statements.clear();
+    }
+
+    private void awaitPending() {
+        if (failure == null) {
+            try {
+                pending.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                failure = (cause instanceof RDFHandlerException) ? (RDFHandlerException) cause
+                        : new RDFHandlerException("failed to write statements: " + cause.getMessage(), cause);
+            } finally {
+                pending = CompletableFuture.completedFuture(null);
+            }
+        }
+        if (failure != null) {
+            // keep failing, the output is incomplete
+            throw failure;
+        }
     }
 
     @Override
     public void startRDF() throws RDFHandlerException {
+        awaitPending();
         statements.clear();
         super.startRDF();
     }
 
+    @Override
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+        // keep order of namespaces and statements
+        flushStatements();
+        super.handleNamespace(prefix, uri);
+    }
+
+    @Override
+    public void handleComment(String comment) throws RDFHandlerException {
+        flushStatements();
+        super.handleComment(comment);
+    }
+
+    @Override
+    public void endRecord() throws RDFHandlerException {
+        // the record is complete only after its statements have been written
+        flushStatements();
+        super.endRecord();
+    }
+
     @Override
     public void endRDF() throws RDFHandlerException {
         // write remaining items
@@ -64,4 +168,21 @@ public class BatchingRDFWriter extends DelegatingRDFWriter {
         super.endRDF();
     }
 
+    /**
+     * Wait for a batch which is currently being written, discarding statements
+     * which have not been written yet.
+     *
+     * <p>
+     * This does not close the delegate.
+     * </p>
+     */
+    @Override
+    public void close() {
+        statements.clear();
+        try {
+            awaitPending();
+        } catch (RDFHandlerException e) {
+            // already reported or superseded by the error which caused closing
+        }
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte range within a source file, used to split huge line-based files into
+ * multiple tasks.
+ *
+ * <p>
+ * The range is encoded as suffix of the object key in the S3 Batch manifest,
+ * e.g. {@code data/file.jsonl#bytes=0-1073741824}. The start is inclusive, the
+ * end exclusive. A range covers all lines starting within the range, so
+ * consecutive ranges process every line exactly once.
+ * </p>
+ */
+public class ByteRange {
+    // '#' might be URL-encoded in the manifest
+    private static final Pattern KEY_SUFFIX = Pattern.compile("(?:#|%23)bytes=(\\d+)-(\\d+)$");
+
+    private final long start;
+    private final long end;
+
+    public ByteRange(long start, long end) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("invalid byte range " + start + "-" + end);
+        }
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parse the byte range from an object key.
+     * 
+     * @param key object key, optionally with byte range suffix
+     * @return the byte range or an empty {@link Optional} if the key does not
+     *         specify a valid range
+     */
+    public static Optional<ByteRange> fromKey(String key) {
+        Matcher matcher = KEY_SUFFIX.matcher(key);
+        if (!matcher.find()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new ByteRange(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2))));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Remove the byte range suffix from an object key.
+     * 
+     * @param key object key, optionally with byte range suffix
+     * @return object key without byte range
+     */
+    public static String stripFromKey(String key) {
+        Matcher matcher = KEY_SUFFIX.matcher(key);
+        if (matcher.find()) {
+            return key.substring(0, matcher.start());
+        }
+        return key;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start;
+    }
+
+    /**
+     * Get the offset from which the source file needs to be read: one byte before
+     * the start to determine whether a line starts at the start of the range.
+     * 
+     * @return offset of the first byte to read
+     */
+    public long getReadOffset() {
+        return Math.max(0, start - 1);
+    }
+
+    /**
+     * Get a suffix for output files created for this range.
+     * 
+     * @return file name suffix
+     */
+    public String getFileSuffix() {
+        return ".part-" + start + "-" + end;
+    }
+
+    @Override
+    public String toString() {
+        return "bytes=" + start + "-" + end;
+    }
+}
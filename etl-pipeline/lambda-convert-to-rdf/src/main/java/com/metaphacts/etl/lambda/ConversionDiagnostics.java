@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Aggregates warnings about the conversion, e.g. invalid literal values or
+ * lines which could not be converted.
+ *
+ * <p>
+ * Instead of logging each occurrence, warnings are counted per mapping,
+ * datatype and kind of issue, together with a few sample values. Summaries are
+ * logged periodically and when {@link #flush()} is called, always on a
+ * separate thread, so reporting a warning is cheap for the converting thread.
+ * </p>
+ */
+@ApplicationScoped
+public class ConversionDiagnostics {
+    private static final Logger logger = LoggerFactory.getLogger(ConversionDiagnostics.class);
+    private static final int MAX_SAMPLE_LENGTH = 200;
+    private static final String OTHER = "*";
+
+    // interval in seconds for logging summaries of conversion warnings, 0 to only log at the end of each task
+    @ConfigProperty(name = "diagnostics.interval", defaultValue = "60")
+    long intervalSeconds;
+    // number of sample values logged per kind of warning
+    @ConfigProperty(name = "diagnostics.samples", defaultValue = "5")
+    int maxSamples;
+    // maximum number of distinct kinds of warnings tracked between summaries
+    @ConfigProperty(name = "diagnostics.maxkeys", defaultValue = "1000")
+    int maxKeys;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+    private volatile LambdaLogger lambdaLogger;
+
+    public ConversionDiagnostics() {
+    }
+
+    @PostConstruct
+    protected void init() {
+        executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("diagnostics"));
+        if (intervalSeconds > 0) {
+            executor.scheduleWithFixedDelay(this::writeSummary, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Set the logger to write summaries to in addition to the regular log.
+     *
+     * @param lambdaLogger logger of the current request or <code>null</code>
+     */
+    public void setLambdaLogger(LambdaLogger lambdaLogger) {
+        this.lambdaLogger = lambdaLogger;
+    }
+
+    /**
+     * Report a warning.
+     *
+     * @param mapping  id of the mapping
+     * @param datatype datatype of the affected value or <code>null</code>
+     * @param kind     kind of issue
+     * @param sample   affected value, only kept (truncated) for the first
+     *                 occurrences
+     */
+    public void report(String mapping, String datatype, String kind, String sample) {
+        Key key = new Key(mapping, datatype, kind);
+        if (!entries.containsKey(key) && entries.size() >= maxKeys) {
+            // too many distinct issues, aggregate the rest
+            key = new Key(OTHER, null, "other issues");
+        }
+        // add atomically, so the entry cannot be drained in between
+        entries.compute(key, (k, entry) -> {
+            if (entry == null) {
+                entry = new Entry(maxSamples);
+            }
+            entry.add(sample);
+            return entry;
+        });
+    }
+
+    /**
+     * Log summaries of all warnings reported so far on the diagnostics thread.
+     *
+     * @return future which completes when the summaries have been logged
+     */
+    public Future<?> flush() {
+        if (executor == null || executor.isShutdown()) {
+            writeSummary();
+            return CompletableFuture.completedFuture(null);
+        }
+        return executor.submit(this::writeSummary);
+    }
+
+    /**
+     * Log summaries of all warnings reported so far and wait until they have
+     * been written.
+     */
+    public void flushAndWait() {
+        try {
+            flush().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to log conversion warnings: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the current warnings and create their summaries.
+     *
+     * @return summary lines, one per kind of warning
+     */
+    /**
+     * Shorten a value to the length of samples included in summaries.
+     *
+     * @param value value to shorten, may be <code>null</code>
+     * @return value, shortened if required
+     */
+    public static String truncate(String value) {
+        if (value == null || value.length() <= MAX_SAMPLE_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_SAMPLE_LENGTH) + "...";
+    }
+
+    List<String> drain() {
+        List<String> lines = new ArrayList<>();
+        for (Key key : new ArrayList<>(entries.keySet())) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                lines.add(entry.summarize(key));
+            }
+        }
+        return lines;
+    }
+
+    private void writeSummary() {
+        try {
+            LambdaLogger currentLogger = lambdaLogger;
+            for (String line : drain()) {
+                logger.warn(line);
+                if (currentLogger != null) {
+                    currentLogger.log(line);
+                }
+            }
+        } catch (Exception e) {
+            // keep periodic reporting alive
+            logger.warn("Failed to log conversion warnings: {}", e.getMessage());
+        }
+    }
+
+    private static class Key {
+        private final String mapping;
+        private final String datatype;
+        private final String kind;
+
+        Key(String mapping, String datatype, String kind) {
+            this.mapping = mapping;
+            this.datatype = datatype;
+            this.kind = kind;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mapping, datatype, kind);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(mapping, other.mapping) && Objects.equals(datatype, other.datatype)
+                    && Objects.equals(kind, other.kind);
+        }
+    }
+
+    private static class Entry {
+        private final LongAdder count = new LongAdder();
+        private final AtomicInteger sampleCount = new AtomicInteger();
+        private final AtomicReferenceArray<String> samples;
+
+        Entry(int maxSamples) {
+            this.samples = new AtomicReferenceArray<>(maxSamples);
+        }
+
+        void add(String sample) {
+            count.increment();
+            if (sampleCount.get() < samples.length()) {
+                int index = sampleCount.getAndIncrement();
+                if (index < samples.length()) {
+                    // do not keep large values (e.g. whole source lines) until the next summary
+                    samples.set(index, truncate(sample));
+                }
+            }
+        }
+
+        String summarize(Key key) {
+            StringBuilder b = new StringBuilder();
+            b.append("Conversion warning for mapping ").append(key.mapping).append(": ")
+                    .append(count.sum()).append(" x ").append(key.kind);
+            if (key.datatype != null) {
+                b.append(" (").append(key.datatype).append(")");
+            }
+            String separator = ", e.g. ";
+            for (int i = 0; i < samples.length(); i++) {
+                String sample = samples.get(i);
+                if (sample == null) {
+                    continue;
+                }
+                b.append(separator).append('\'').append(sample).append('\'');
+                separator = ", ";
+            }
+            return b.toString();
+        }
+    }
+}
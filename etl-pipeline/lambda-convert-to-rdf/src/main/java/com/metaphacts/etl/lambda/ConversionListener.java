@@ -11,4 +11,17 @@ public interface ConversionListener {
     void startDocument();
 
     void endDocument(boolean success, long statements);
+
+    /**
+     * Report a document which was converted without
+     * {@link #startDocument()}/{@link #endDocument(boolean, long)}, e.g. on
+     * another thread.
+     * 
+     * @param success    whether the conversion was successful
+     * @param statements number of statements written
+     * @param duration   time spent converting the document in milliseconds
+     */
+    void document(boolean success, long statements, long duration);
+
+    void deduplicated(long statements, long duplicates, boolean approximate);
 }
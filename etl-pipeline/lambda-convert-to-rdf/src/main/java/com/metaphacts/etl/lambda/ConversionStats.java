@@ -3,87 +3,146 @@
  */
 package com.metaphacts.etl.lambda;
 
+/**
+ * {@link ConversionListener} which aggregates statistics over all processed
+ * input files and documents.
+ * 
+ * <p>
+ * Tasks may be processed concurrently, so all aggregated values are guarded by
+ * this instance and start times are tracked per thread.
+ * </p>
+ */
 public class ConversionStats implements ConversionListener {
+    private final ThreadLocal<Long> startTimeInputFile = new ThreadLocal<>();
+    private final ThreadLocal<Long> startTimeRDFConversion = new ThreadLocal<>();
+
     private long inputFileCount = 0;
     private long documentCount = 0;
     private long rdfStatementCount = 0;
     private long successfulConversionCount = 0;
     private long failedConversionCount = 0;
-    private long startTimeInputFile = 0;
-    private long startTimeRDFConversion = 0;
     private long aggregatedTimeInputFiles = 0;
     private long aggregatedTimeRDFConversions = 0;
     private float averageTimeInputFiles = 0;
     private float averageTimeRDFConversions = 0;
+    private long deduplicatedStatementCount = 0;
+    private long duplicateStatementCount = 0;
+    private long approximateDeduplicationCount = 0;
 
     @Override
     public void startInputFile(String fileName) {
-        inputFileCount++;
-        startTimeInputFile = now();
+        synchronized (this) {
+            inputFileCount++;
+        }
+        startTimeInputFile.set(now());
     }
 
     private long now() {
         return System.currentTimeMillis();
     }
 
+    private long elapsed(ThreadLocal<Long> startTime) {
+        Long start = startTime.get();
+        startTime.remove();
+        if (start == null) {
+            return 0;
+        }
+        return now() - start;
+    }
+
     @Override
     public void endInputFile(boolean success) {
-        long duration = now() - startTimeInputFile;
-        aggregatedTimeInputFiles += duration;
-        startTimeInputFile = 0;
-        averageTimeInputFiles = ((float) aggregatedTimeInputFiles) / ((float) inputFileCount);
+        long duration = elapsed(startTimeInputFile);
+        synchronized (this) {
+            aggregatedTimeInputFiles += duration;
+            averageTimeInputFiles = ((float) aggregatedTimeInputFiles) / ((float) inputFileCount);
+        }
     }
 
     @Override
     public void startDocument() {
-        documentCount++;
-        startTimeRDFConversion = now();
+        startTimeRDFConversion.set(now());
     }
 
     @Override
     public void endDocument(boolean success, long statements) {
-        rdfStatementCount += statements;
-        if (success) {
-            successfulConversionCount++;
-        } else {
-            failedConversionCount++;
+        document(success, statements, elapsed(startTimeRDFConversion));
+    }
+
+    @Override
+    public void document(boolean success, long statements, long duration) {
+        synchronized (this) {
+            documentCount++;
+            rdfStatementCount += statements;
+            if (success) {
+                successfulConversionCount++;
+            } else {
+                failedConversionCount++;
+            }
+
+            aggregatedTimeRDFConversions += duration;
+            averageTimeRDFConversions = ((float) aggregatedTimeRDFConversions) / ((float) documentCount);
         }
+    }
 
-        long duration = now() - startTimeRDFConversion;
-        aggregatedTimeRDFConversions += duration;
-        startTimeRDFConversion = 0;
-        averageTimeRDFConversions = ((float) aggregatedTimeRDFConversions) / ((float) documentCount);
+    @Override
+    public synchronized void deduplicated(long statements, long duplicates, boolean approximate) {
+        deduplicatedStatementCount += statements;
+        duplicateStatementCount += duplicates;
+        if (approximate) {
+            approximateDeduplicationCount++;
+        }
     }
 
-    public float getAverageTimeInputFiles() {
+    public synchronized float getAverageTimeInputFiles() {
         return averageTimeInputFiles;
     }
 
-    public float getAverageTimeRDFConversions() {
+    public synchronized float getAverageTimeRDFConversions() {
         return averageTimeRDFConversions;
     }
 
-    public long getInputFileCount() {
+    public synchronized long getInputFileCount() {
         return inputFileCount;
     }
 
-    public long getJsonDocumentCount() {
+    public synchronized long getJsonDocumentCount() {
         return documentCount;
     }
 
-    public long getRdfStatementCount() {
+    public synchronized long getRdfStatementCount() {
         return rdfStatementCount;
     }
 
-    public long getSuccessfulConversionCount() {
+    public synchronized long getSuccessfulConversionCount() {
         return successfulConversionCount;
     }
 
-    public long getFailedConversionCount() {
+    public synchronized long getFailedConversionCount() {
         return failedConversionCount;
     }
+
+    public synchronized long getDeduplicatedStatementCount() {
+        return deduplicatedStatementCount;
+    }
+
+    public synchronized long getDuplicateStatementCount() {
+        return duplicateStatementCount;
+    }
+
+    /**
+     * Get the ratio of statements dropped as duplicates.
+     * 
+     * @return ratio between 0 and 1
+     */
+    public synchronized float getDuplicateRate() {
+        if (deduplicatedStatementCount == 0) {
+            return 0;
+        }
+        return ((float) duplicateStatementCount) / ((float) deduplicatedStatementCount);
+    }
     
-    public String getSummary() {
+    public synchronized String getSummary() {
         StringBuilder b = new StringBuilder();
         
         b.append("processed ")
@@ -94,6 +153,16 @@ public class ConversionStats implements ConversionListener {
             .append(rdfStatementCount).append(" RDF statements, ")
             .append(successfulConversionCount).append(" successful, ")
             .append(failedConversionCount).append(" failed");
+        if (deduplicatedStatementCount > 0) {
+            b.append(", ")
+                .append(duplicateStatementCount).append(" duplicate RDF statements dropped (")
+                .append(getDuplicateRate() * 100).append("% of ")
+                .append(deduplicatedStatementCount).append(" checked");
+            if (approximateDeduplicationCount > 0) {
+                b.append(", approximate for ").append(approximateDeduplicationCount).append(" output files");
+            }
+            b.append(")");
+        }
         
         return b.toString();
     }
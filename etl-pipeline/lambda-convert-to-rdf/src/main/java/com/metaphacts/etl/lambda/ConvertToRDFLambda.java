@@ -15,12 +15,26 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -31,7 +45,6 @@ import org.eclipse.rdf4j.model.Namespace;
 import org.eclipse.rdf4j.model.NamespaceAware;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
-import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.model.util.Values;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFHandler;
@@ -71,11 +84,16 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
 
     private static final String DEFAULT_DATASET = "default";
     private static final String DEFAULT_MAPPINGS_FILE = "mappings.json";
+    private static final int REPORT_INTERVAL = 100;
 
     private static final Logger logger = LoggerFactory.getLogger(ConvertToRDFLambda.class);
 
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     private final ConversionStats listener = new ConversionStats();
+    // off-heap memory for detecting duplicates, shared by all output files
+    private MemoryBudget dedupMemoryBudget;
+    // mappings whose line batch size was ignored, to warn only once
+    private final Set<String> unbatchedMappings = ConcurrentHashMap.newKeySet();
 
     @Inject
     FileHelper fileHelper;
@@ -88,20 +106,55 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
     String processErrorResultCode;
     @ConfigProperty(name = "process.lines", defaultValue = "-1")
     Integer processLines;
+    // number of tasks processed concurrently, 0 to use the number of available processors
+    @ConfigProperty(name = "process.parallelism", defaultValue = "1")
+    int processParallelism;
+    // number of threads mapping lines of a single file, 0 to use the number of available processors
+    @ConfigProperty(name = "process.lines.workers", defaultValue = "1")
+    int processLinesWorkers;
+    // maximum number of lines being mapped or waiting to be written
+    @ConfigProperty(name = "process.lines.queue", defaultValue = "256")
+    int processLinesQueueSize;
     @ConfigProperty(name = "input.dir", defaultValue = "/tmp/input")
     String inputDir;
+    // read source files directly from S3 instead of downloading them to download.dir
+    @ConfigProperty(name = "input.streaming", defaultValue = "false")
+    Boolean inputStreaming;
+    @ConfigProperty(name = "input.readahead.size", defaultValue = "1048576")
+    int inputReadAheadSize;
+    @ConfigProperty(name = "input.readahead.count", defaultValue = "8")
+    int inputReadAheadCount;
     @ConfigProperty(name = "download.dir", defaultValue = "/tmp/download")
     String downloadDir;
     @ConfigProperty(name = "download.enabled", defaultValue = "true")
     Boolean downloadEnabled;
     @ConfigProperty(name = "download.delete", defaultValue = "true")
     Boolean downloadDelete;
+    // number of source files downloaded concurrently
+    @ConfigProperty(name = "download.concurrency", defaultValue = "2")
+    int downloadConcurrency;
+    // number of source files downloaded ahead of conversion
+    @ConfigProperty(name = "download.prefetch", defaultValue = "1")
+    int downloadPrefetch;
     @ConfigProperty(name = "upload.bucket", defaultValue = "output-bucket")
     String uploadBucket;
     @ConfigProperty(name = "upload.enabled", defaultValue = "true")
     Boolean uploadEnabled;
     @ConfigProperty(name = "upload.delete", defaultValue = "true")
     Boolean uploadDelete;
+    // upload output using a multipart upload while it is written instead of storing it in output.dir
+    @ConfigProperty(name = "upload.streaming", defaultValue = "false")
+    Boolean uploadStreaming;
+    @ConfigProperty(name = "upload.partsize", defaultValue = "16777216")
+    int uploadPartSize;
+    @ConfigProperty(name = "upload.concurrency", defaultValue = "4")
+    int uploadConcurrency;
+    // number of output files uploaded concurrently while other tasks are being converted
+    @ConfigProperty(name = "upload.parallelism", defaultValue = "2")
+    int uploadParallelism;
+    // maximum number of scheduled output uploads before conversion waits for them
+    @ConfigProperty(name = "upload.pending", defaultValue = "4")
+    int uploadPending;
     @ConfigProperty(name = "mappings.dir", defaultValue = "mappings")
     String mappingsDir;
 
@@ -115,17 +168,45 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
     String contextBaseNamespace;
     @ConfigProperty(name = "output.batchsize", defaultValue = "1000")
     int outputBatchSize;
+    // serialize batches of statements of a document while mapping the next batch
+    @ConfigProperty(name = "output.async", defaultValue = "true")
+    boolean outputAsync;
+    // number of partition files to distribute statements over by subject, 0 or 1 for a single output file
+    @ConfigProperty(name = "output.partitions", defaultValue = "0")
+    int outputPartitions;
+    // split output into parts of at most this number of statements, 0 for no limit
+    @ConfigProperty(name = "output.maxstatements", defaultValue = "0")
+    long outputMaxStatements;
+    // split output into parts of at most this number of uncompressed bytes, 0 for no limit
+    @ConfigProperty(name = "output.maxsize", defaultValue = "0")
+    long outputMaxSize;
+    // drop duplicate statements within each output file
+    @ConfigProperty(name = "output.dedup", defaultValue = "false")
+    boolean outputDedup;
+    // off-heap memory for detecting duplicates, shared by all output files written at the same time
+    @ConfigProperty(name = "output.dedup.memory", defaultValue = "67108864")
+    long outputDedupMemory;
+    // maximum rate of statements wrongly dropped after running out of memory for exact detection
+    @ConfigProperty(name = "output.dedup.maxerror", defaultValue = "0.000001")
+    double outputDedupMaxError;
+    // serializer for output files: rio or streaming (N-Quads, N-Triples, TriG and Turtle)
+    @ConfigProperty(name = "output.writer", defaultValue = "rio")
+    String outputWriter;
 
     Path resolvedInputDir;
     Path resolvedDownloadDir;
     Path resolvedOutputDir;
     RDFFormat resolvedRdfOutputFormat;
+    boolean useStreamingWriter;
 
     ResultCode errorResult = ResultCode.PermanentFailure;
 
     @Inject
     SpecialCases specialCases;
 
+    @Inject
+    ConversionDiagnostics diagnostics;
+
     public ConvertToRDFLambda() {
     }
 
@@ -142,6 +223,16 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         resolvedRdfOutputFormat = Rio.getWriterFormatForFileName("xxx." + rdfOutputFormat)
                                         .or(() -> Rio.getWriterFormatForMIMEType(rdfOutputFormat))
                                         .orElse(RDFFormat.NQUADS);
+        if ("streaming".equalsIgnoreCase(outputWriter)) {
+            if (StreamingNQuadsWriter.supports(resolvedRdfOutputFormat)
+                    || RecordGroupingTurtleWriter.supports(resolvedRdfOutputFormat)) {
+                useStreamingWriter = true;
+            } else {
+                logger.warn("Streaming writer does not support output format {}, using default writer",
+                        resolvedRdfOutputFormat.getName());
+            }
+        }
+        dedupMemoryBudget = new MemoryBudget(outputDedupMemory);
         if (processErrorResultCode != null && processErrorResultCode.toLowerCase().startsWith("temp")) {
             errorResult = ResultCode.TemporaryFailure;
         }
@@ -157,8 +248,9 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
 
     @Override
     public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context) throws IOException {
-        final int reportInterval = 100;
         final LambdaLogger lambdaLogger = context.getLogger();
+        // reload changed mappings in the background for subsequent requests
+        mappingManager.checkForUpdates();
 
         // read batch request from input stream
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, FileHelper.CHARSET_UTF8))) {
@@ -182,45 +274,21 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
                 logger.info("Processing batch request with {} RDF conversion tasks", tasks.size());
                 lambdaLogger.log("Processing batch request with " + tasks.size() + " RDF conversion tasks");
 
-                List<Result> results = new ArrayList<>();
-                for (Task task : tasks) {
-                    boolean success = true;
-                    Result result = null;
+                diagnostics.setLambdaLogger(lambdaLogger);
+                List<Result> results = processTasks(context, tasks);
 
-                    listener.startInputFile(task.getS3Key());
-                    try {
-                        logger.info("Processing key {}", task.getS3Key());
-                        lambdaLogger.log("Processing key " + task.getS3Key());
-                        TaskContext tctx = new TaskContext(context, task);
-                        result = processTask(tctx);
-                    } catch (Exception e) {
-                        result = Result.builder()
-                                        .withTaskId(task.getTaskId())
-                                .withResultCode(errorResult)
-                                        .withResultString(e.getMessage()).build();
-                        logger.warn("Failed to process task {}: {}", task.getS3Key(), e.getMessage());
-                        logger.debug("Details:", e);
-                        lambdaLogger.log("Failed to process task " + task.getS3Key() + ": " + e.getMessage());
-                    }
-                    results.add(result);
-                    if (result.getResultCode() != ResultCode.Succeeded) {
-                        success = false;
-                        logger.warn("Failed to process task {}: {}", task.getS3Key(), result.getResultString());
-                        lambdaLogger.log("Failed to process task " + task.getS3Key() + ": " + result.getResultString());
-                    }
-                    listener.endInputFile(success);
-
-                    // report back every N input files
-                    if (listener.getInputFileCount() % reportInterval == 0) {
-                        logger.info(listener.getSummary());
-                        lambdaLogger.log(listener.getSummary());
-                    }
-                }
+                // write remaining conversion warnings before the request ends
+                diagnostics.flushAndWait();
+                diagnostics.setLambdaLogger(null);
 
                 logger.info("Finished processing batch request");
                 logger.info(listener.getSummary());
                 lambdaLogger.log("Finished processing batch request");
                 lambdaLogger.log(listener.getSummary());
+                mappingManager.getValueCache().ifPresent(cache -> {
+                    logger.info(cache.getSummary());
+                    lambdaLogger.log(cache.getSummary());
+                });
 
                 // write response
                 S3BatchResponse response = S3BatchResponse.fromS3BatchEvent(request)
@@ -240,6 +308,228 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         }
     }
 
+    /**
+     * Process all tasks of a batch request.
+     * 
+     * <p>
+     * Tasks are processed concurrently using up to {@code process.parallelism}
+     * threads. In that case the largest files are scheduled first, so a single
+     * big file does not end up being processed on its own at the end of the
+     * batch.
+     * </p>
+     * 
+     * <p>
+     * Downloading, converting and uploading of different tasks overlap: while a
+     * task is being converted, the source files of up to
+     * {@code download.prefetch} subsequent tasks are downloaded and the output
+     * files of finished tasks are uploaded in the background. All uploads are
+     * finished before this method returns.
+     * </p>
+     * 
+     * @param context Lambda context
+     * @param tasks   tasks to process
+     * @return one {@link Result} per task, in the order of the provided tasks
+     */
+    private List<Result> processTasks(Context context, List<Task> tasks) {
+        int parallelism = Math.max(1, Math.min(resolveProcessParallelism(), tasks.size()));
+        logger.debug("Processing {} tasks using {} threads", tasks.size(), parallelism);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("convert-task"));
+        ExecutorService downloadExecutor = Executors.newFixedThreadPool(Math.max(1, downloadConcurrency),
+                new NamedThreadFactory("download"));
+        ExecutorService uploadExecutor = Executors.newFixedThreadPool(Math.max(1, uploadParallelism),
+                new NamedThreadFactory("upload"));
+        Semaphore pendingUploads = new Semaphore(Math.max(1, uploadPending));
+        // tasks being converted or downloaded ahead of conversion
+        Semaphore window = new Semaphore(parallelism + Math.max(0, downloadPrefetch));
+        try {
+            List<Integer> schedule = (parallelism > 1) ? scheduleLargestFirst(context, tasks, executor)
+                    : IntStream.range(0, tasks.size()).boxed().collect(Collectors.toList());
+
+            List<TaskContext> taskContexts = new ArrayList<>(Collections.nCopies(tasks.size(), null));
+            List<Future<Result>> futures = new ArrayList<>(Collections.nCopies(tasks.size(), null));
+            for (int index : schedule) {
+                try {
+                    window.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                TaskContext tctx = new TaskContext(context, tasks.get(index), uploadExecutor, pendingUploads);
+                taskContexts.set(index, tctx);
+                Future<Optional<Path>> sourceFile = downloadExecutor.submit(() -> prefetchSource(tctx));
+                futures.set(index, executor.submit(() -> {
+                    try {
+                        return executeTask(tctx, sourceFile);
+                    } finally {
+                        window.release();
+                    }
+                }));
+            }
+
+            List<Result> results = new ArrayList<>();
+            for (int index = 0; index < tasks.size(); index++) {
+                Task task = tasks.get(index);
+                Future<Result> future = futures.get(index);
+                if (future == null) {
+                    results.add(failedResult(task, new InterruptedException("task was not scheduled")));
+                    continue;
+                }
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(failedResult(task, e));
+                } catch (ExecutionException e) {
+                    results.add(failedResult(task, e.getCause()));
+                }
+            }
+
+            // wait for pending uploads, a task whose output could not be uploaded failed
+            for (int index = 0; index < tasks.size(); index++) {
+                TaskContext tctx = taskContexts.get(index);
+                if (tctx == null) {
+                    continue;
+                }
+                Optional<Throwable> uploadError = awaitUploads(tctx);
+                if (uploadError.isPresent()) {
+                    results.set(index, failedResult(tctx.getTask(),
+                            "Failed: could not upload results: " + uploadError.get().getMessage()));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+            downloadExecutor.shutdownNow();
+            uploadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for the scheduled uploads of a task.
+     * 
+     * @param tctx task context
+     * @return the error of a failed upload or an empty {@link Optional} if all
+     *         uploads succeeded
+     */
+    private Optional<Throwable> awaitUploads(TaskContext tctx) {
+        try {
+            tctx.getUploads().join();
+            return Optional.empty();
+        } catch (CancellationException | CompletionException e) {
+            Throwable error = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+            String key = tctx.getTask().getS3Key();
+            logger.warn("Failed to upload results for {}: {}", key, error.getMessage());
+            logger.debug("Details: ", error);
+            tctx.getLogger().log("Failed to upload results for " + key + ": " + error.getMessage());
+            return Optional.of(error);
+        }
+    }
+
+    private int resolveProcessParallelism() {
+        if (processParallelism > 0) {
+            return processParallelism;
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Determine the order in which to process tasks, largest input files first.
+     * 
+     * @param context  Lambda context
+     * @param tasks    tasks to process
+     * @param executor executor used to determine file sizes concurrently
+     * @return list of task indexes in processing order
+     */
+    private List<Integer> scheduleLargestFirst(Context context, List<Task> tasks, ExecutorService executor) {
+        List<Future<Long>> sizeFutures = new ArrayList<>();
+        for (Task task : tasks) {
+            TaskContext tctx = new TaskContext(context, task);
+            sizeFutures.add(executor.submit(() -> estimateTaskSize(tctx)));
+        }
+        long[] sizes = new long[tasks.size()];
+        for (int index = 0; index < tasks.size(); index++) {
+            try {
+                sizes[index] = sizeFutures.get(index).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // unknown size, schedule last
+            }
+        }
+
+        List<Integer> schedule = new ArrayList<>();
+        for (int index = 0; index < tasks.size(); index++) {
+            schedule.add(index);
+        }
+        schedule.sort(Comparator.comparingLong((Integer index) -> sizes[index]).reversed());
+        return schedule;
+    }
+
+    private long estimateTaskSize(TaskContext tctx) {
+        if (tctx.getByteRange().isPresent()) {
+            return tctx.getByteRange().get().getLength();
+        }
+        String key = tctx.getSourceKey();
+        try {
+            Path localFile = resolvedInputDir.resolve(key);
+            if (Files.isRegularFile(localFile)) {
+                return Files.size(localFile);
+            }
+            if (downloadEnabled) {
+                return fileHelper.getS3ObjectSize(getSourceBucket(tctx), key);
+            }
+        } catch (Exception e) {
+            logger.debug("Failed to determine size of {}: {}", key, e.getMessage());
+        }
+        return 0;
+    }
+
+    private Result executeTask(TaskContext tctx, Future<Optional<Path>> prefetchedSourceFile) {
+        final Task task = tctx.getTask();
+        final LambdaLogger lambdaLogger = tctx.getLogger();
+        boolean success = true;
+        Result result = null;
+
+        listener.startInputFile(task.getS3Key());
+        try {
+            logger.info("Processing key {}", task.getS3Key());
+            lambdaLogger.log("Processing key " + task.getS3Key());
+            result = processTask(tctx, prefetchedSourceFile);
+        } catch (Exception e) {
+            result = failedResult(task, e);
+            logger.warn("Failed to process task {}: {}", task.getS3Key(), e.getMessage());
+            logger.debug("Details:", e);
+            lambdaLogger.log("Failed to process task " + task.getS3Key() + ": " + e.getMessage());
+        }
+        if (result.getResultCode() != ResultCode.Succeeded) {
+            success = false;
+            logger.warn("Failed to process task {}: {}", task.getS3Key(), result.getResultString());
+            lambdaLogger.log("Failed to process task " + task.getS3Key() + ": " + result.getResultString());
+        }
+        listener.endInputFile(success);
+        // summarize conversion warnings of the task in the background
+        diagnostics.flush();
+
+        // report back every N input files
+        if (listener.getInputFileCount() % REPORT_INTERVAL == 0) {
+            logger.info(listener.getSummary());
+            lambdaLogger.log(listener.getSummary());
+        }
+        return result;
+    }
+
+    private Result failedResult(Task task, Throwable e) {
+        return failedResult(task, e.getMessage());
+    }
+
+    private Result failedResult(Task task, String message) {
+        return Result.builder()
+                .withTaskId(task.getTaskId())
+                .withResultCode(errorResult)
+                .withResultString(message).build();
+    }
+
     protected String strackTraceToString(Exception e) {
         StringWriter sw = new StringWriter();
         e.printStackTrace(new PrintWriter(sw));
@@ -247,15 +537,23 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         return stacktrace;
     }
 
-    private Result processTask(TaskContext context) {
+    private Result processTask(TaskContext context, Future<Optional<Path>> prefetchedSourceFile) {
         Task task = context.getTask();
         ResultBuilder result = Result.builder()
                 .withTaskId(task.getTaskId());
         
         try {
             // determine mapping for target file
-            String taskFileName = context.getTask().getS3Key();
-            Optional<Mapping> mappingHolder = mappingManager.getMappingFor(taskFileName);
+            String taskFileName = context.getSourceKey();
+            Optional<Mapping> mappingHolder;
+            try {
+                mappingHolder = mappingManager.getMappingFor(taskFileName);
+            } catch (RuntimeException e) {
+                // let S3 Batch Operations retry the task if the mapping files could not be read
+                result.withResultCode(Mapping.isTransientError(e) ? ResultCode.TemporaryFailure : errorResult)
+                        .withResultString("Failed: could not load mappings: " + e.getMessage());
+                return result.build();
+            }
             if (mappingHolder.isEmpty()) {
                 result.withResultCode(errorResult)
                         .withResultString("Failed: no matching mapping found");
@@ -263,19 +561,43 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
             }
             Mapping mapping = mappingHolder.get();
 
+            if (shouldStreamInput(context)) {
+                // read file directly from S3 without storing it in the download folder
+                Path sourceFile = Path.of(context.getSourceKey());
+                if (context.getByteRange().isPresent()
+                        && (!shouldProcessLineByLine(context, sourceFile, mapping) || shouldStreamRecords(mapping))) {
+                    result.withResultCode(errorResult)
+                            .withResultString("Failed: byte ranges are only supported for line-based files");
+                    return result.build();
+                }
+                try (InputStream sourceStream = openSourceStream(context)) {
+                    lambdaLoggerManager.set(context.getLogger());
+                    long statementCount = processFile(context, mapping, sourceFile, sourceStream);
+                    result.withResultCode(ResultCode.Succeeded)
+                            .withResultString(successMessage(context, statementCount));
+                } finally {
+                    lambdaLoggerManager.remove();
+                }
+                return result.build();
+            }
+
             // download file to local folder (or access file directly if available)
-            Optional<Path> sourceFileHolder = downloadFile(context);
+            Optional<Path> sourceFileHolder = awaitSourceFile(context, prefetchedSourceFile);
             if (sourceFileHolder.isPresent()) {
                 Path sourceFile = sourceFileHolder.get();
                 try {
                     lambdaLoggerManager.set(context.getLogger());
                     long statementCount = processFile(context, mapping, sourceFile);
-                    result.withResultCode(ResultCode.Succeeded).withResultString("successfully processed file "
-                            + task.getS3Key() + " with " + statementCount + " RDF statements");
+                    result.withResultCode(ResultCode.Succeeded)
+                            .withResultString(successMessage(context, statementCount));
                 } finally {
                     if (sourceFile.startsWith(resolvedDownloadDir) && downloadDelete) {
                         // file was downloaded, so we delete it after processing
                         deleteFile(sourceFile);
+                        Path indexFile = GzipIndex.indexFileFor(sourceFile);
+                        if (Files.exists(indexFile)) {
+                            deleteFile(indexFile);
+                        }
                     }
                     lambdaLoggerManager.remove();
                 }
@@ -293,70 +615,321 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         return result.build();
     }
 
+    private String successMessage(TaskContext tctx, long statementCount) {
+        String message = "successfully processed file " + tctx.getTask().getS3Key() + " with " + statementCount
+                + " RDF statements";
+        List<Path> outputFiles = tctx.getOutputFiles();
+        if (outputFiles.size() > 1) {
+            message += " in " + outputFiles.size() + " output files: " + StringUtils.join(outputFiles, ", ");
+        }
+        return message;
+    }
+
     public long processFile(TaskContext tctx, Mapping mapping, Path sourceFile) throws Exception {
         logger.debug("Processing file {}", sourceFile.toString());
 
+        // try (BufferedReader sourceReader = fileHelper.openInputReader(sourceFile)) {
+        try (InputStream sourceStream = fileHelper.openInputStream(sourceFile)) {
+            return processFile(tctx, mapping, sourceFile, sourceStream);
+        }
+    }
+
+    /**
+     * Process a source file provided as stream.
+     * 
+     * @param tctx         task context
+     * @param mapping      mapping to apply
+     * @param sourceFile   path of the source file. The file does not need to
+     *                     exist locally, the path is only used to determine how to
+     *                     process the file.
+     * @param sourceStream stream providing the (uncompressed) content of the file
+     * @return number of generated RDF statements
+     * @throws Exception in case of errors
+     */
+    public long processFile(TaskContext tctx, Mapping mapping, Path sourceFile, InputStream sourceStream)
+            throws Exception {
         MappingSpec mappingSpec = mapping.getMappingSpec();
         String dataset = mappingSpec.getDatasetIri();
         String type = mappingSpec.getId();
 
         long aggregatedSize = 0;
 
-        // try (BufferedReader sourceReader = fileHelper.openInputReader(sourceFile)) {
-        try (InputStream sourceStream = fileHelper.openInputStream(sourceFile)) {
-            Path outputPath = resolveOutputFile(tctx, mapping, sourceFile, type);
-            Path outputPathDelete = Paths.get(outputPath.toString() + SpecialCases.SUFFIX_DELETE);
-            // determine the target named graph for the source file
-            Path inputFile = Path.of(tctx.getTask().getS3Key());
-
-            Resource targetContext = targetContextForSource(mappingSpec, inputFile, type, Optional.empty());
-            // Add dataset to Context for datasets different from default
-            if ((dataset == null) || !DEFAULT_DATASET.equals(dataset)) {
-                targetContext = targetContextForSource(mappingSpec, inputFile, type, Optional.ofNullable(dataset));
-            }
-
-            logger.debug("Saving statements from file {} to file {} with context {}", inputFile, outputPath,
-                    targetContext.stringValue());
-            // open CSV file for delete IRIs list
-            try (PrintWriter outDelete = new PrintWriter(fileHelper.openOutputFile(outputPathDelete))) {
-                // open RDF file for output
-                try (OutputStream out = fileHelper.openOutputFile(outputPath)) {
-                    if (mapping.getMappingSpec().hasProcessingHint(ProcessingHints.COPY_FILE)) {
-                        // copy data unchanged
-                        IOUtils.copy(sourceStream, out);
+        Path outputPath = resolveOutputFile(tctx, mapping, sourceFile, type);
+        Path outputPathDelete = Paths.get(outputPath.toString() + SpecialCases.SUFFIX_DELETE);
+        // determine the target named graph for the source file
+        Path inputFile = Path.of(tctx.getSourceKey());
+
+        Resource targetContext = targetContextForSource(mappingSpec, inputFile, type, Optional.empty());
+        // Add dataset to Context for datasets different from default
+        if ((dataset == null) || !DEFAULT_DATASET.equals(dataset)) {
+            targetContext = targetContextForSource(mappingSpec, inputFile, type, Optional.ofNullable(dataset));
+        }
+
+        logger.debug("Saving statements from file {} to file {} with context {}", inputFile, outputPath,
+                targetContext.stringValue());
+        boolean saveResults = specialCases.saveResults(tctx, mapping);
+        // upload output while it is written instead of storing it locally
+        final boolean streamOutput = saveResults && shouldStreamOutput();
+        final Path outputKey = outputFileForSource(tctx, mapping, inputFile, resolvedRdfOutputFormat);
+        final Resource outputContext = targetContext;
+        List<OutputFile> outputFiles = new ArrayList<>();
+        // open CSV file for delete IRIs list
+        try (PrintWriter outDelete = new PrintWriter(fileHelper.openOutputFile(outputPathDelete))) {
+            try {
+                if (mapping.getMappingSpec().hasProcessingHint(ProcessingHints.COPY_FILE)) {
+                    // copy data unchanged
+                    OutputFile output = openOutputFile(tctx, outputKey, outputPath, streamOutput);
+                    outputFiles.add(output);
+                    IOUtils.copy(sourceStream, output.getStream());
+                }
+                else {
+                    // create RDF writer and write pre-amble with namespace declarations
+                    RDFWriter writer;
+                    if (outputPartitions > 1) {
+                        // distribute statements over partition files by subject
+                        writer = new PartitionedRDFWriter(resolvedRdfOutputFormat, outputPartitions, partition -> {
+                            RDFWriter partitionWriter = openRDFOutput(tctx, mapping,
+                                    partitionFileForOutput(outputKey, partition), streamOutput, outputContext,
+                                    outputFiles);
+                            partitionWriter.startRDF();
+                            return partitionWriter;
+                        });
+                    } else {
+                        writer = openRDFOutput(tctx, mapping, outputKey, streamOutput, outputContext, outputFiles);
+                        writer.startRDF();
                     }
-                    else {
-                        // create RDF writer and write pre-amble with namespace declarations
-                        RDFWriter writer = openRDFFile(tctx, mapping, out, targetContext, mappingManager.getNamespaces());
-    
-                        boolean processLineByLine = shouldProcessLineByLine(tctx, sourceFile, mapping);
-                        if (processLineByLine) {
-                            aggregatedSize = processLines(tctx, sourceFile, mapping, sourceStream, writer, outDelete);
-                        } else {
-                            aggregatedSize = processDocument(tctx, sourceFile, mapping, sourceStream, writer);
-                        }
-    
-                        endRDF(writer);
+
+                    boolean processLineByLine = shouldProcessLineByLine(tctx, sourceFile, mapping);
+                    if (shouldStreamRecords(mapping)) {
+                        RecordReader records = RecordReader.json(fileHelper.openInputReader(sourceStream));
+                        aggregatedSize = processLines(tctx, sourceFile, mapping, records, writer, outDelete);
+                    } else if (processLineByLine) {
+                        RecordReader lines = RecordReader.lines(fileHelper.openInputReader(sourceStream));
+                        aggregatedSize = processLines(tctx, sourceFile, mapping, lines, writer, outDelete);
+                    } else {
+                        aggregatedSize = processDocument(tctx, sourceFile, mapping, sourceStream, writer);
                     }
+
+                    endRDF(writer);
                 }
-            }
-            boolean saveResults = specialCases.saveResults(tctx, mapping);
-            if (saveResults) {
-                // upload to S3
-                Optional<Path> outputFile = uploadFile(tctx, mapping, sourceFile, outputPath);
-                if (uploadDelete) {
-                    deleteFile(outputPath);
-                }
-                if (outputFile.isPresent()) {
-                    specialCases.onUploadFile(tctx, mapping, sourceFile, outputPathDelete, outputFile.get());
-                    if (uploadDelete) {
-                        deleteFile(outputPathDelete);
-                    }
+                for (OutputFile output : outputFiles) {
+                    output.close();
+                    tctx.addOutputFile(output.getKey());
                 }
+            } catch (Exception e) {
+                discardOutput(tctx, outputFiles);
+                throw e;
             }
+        }
+        // list the parts of split output
+        final Optional<Path> manifestFile;
+        try {
+            manifestFile = (saveResults && (outputPartitions > 1 || isOutputRolling()))
+                    ? Optional.of(writeManifest(tctx, outputKey, outputFiles))
+                    : Optional.empty();
+        } catch (Exception e) {
+            discardOutput(tctx, outputFiles);
+            throw e;
+        }
+        if (saveResults) {
+            // upload to S3, possibly while the next task is already being processed
+            tctx.scheduleUpload(() -> uploadResults(tctx, mapping, sourceFile, outputFiles, outputKey,
+                    outputPathDelete, manifestFile));
+        }
+
+        return aggregatedSize;
+    }
+
+    /**
+     * Discard the output of a source file after an error: partial uploads are
+     * aborted and parts which were already uploaded completely are deleted, so
+     * no incomplete output remains in the upload bucket.
+     * 
+     * @param tctx        task context
+     * @param outputFiles output files written so far
+     */
+    private void discardOutput(TaskContext tctx, List<OutputFile> outputFiles) {
+        for (OutputFile output : outputFiles) {
+            output.abort();
+            if (!output.isUploaded()) {
+                continue;
+            }
+            Path key = output.getKey();
+            logger.debug("Deleting uploaded part {}/{}", uploadBucket, key);
+            tctx.getLogger().log("Deleting uploaded part " + uploadBucket + "/" + key);
+            try {
+                fileHelper.deleteFromS3(uploadBucket, key.toString());
+            } catch (Exception e) {
+                logger.warn("Failed to delete uploaded part {}/{}: {}", uploadBucket, key, e.getMessage());
+                logger.debug("Details: ", e);
+            }
+        }
+    }
+
+    /**
+     * Open an output file for a source file.
+     * 
+     * @param tctx      task context
+     * @param key       key of the output file in the upload bucket
+     * @param localPath local path of the output file
+     * @param streamed  <code>true</code> to upload the file while it is written
+     *                  instead of storing it locally
+     * @return the output file
+     * @throws IOException in case of errors
+     */
+    private OutputFile openOutputFile(TaskContext tctx, Path key, Path localPath, boolean streamed)
+            throws IOException {
+        if (streamed) {
+            String s3Key = key.toString();
+            logger.debug("Uploading output to {}/{}", uploadBucket, s3Key);
+            tctx.getLogger().log("Uploading output to " + uploadBucket + "/" + s3Key);
+            S3MultipartOutputStream uploadStream = fileHelper.openS3OutputStream(uploadBucket, s3Key,
+                    uploadPartSize, uploadConcurrency, tctx.getUploadExecutor());
+            return new OutputFile(key, null, fileHelper.openOutputStream(uploadStream, s3Key), uploadStream);
+        }
+        localPath = localPath.toAbsolutePath();
+        fileHelper.ensureFolderExists(localPath.getParent());
+        return new OutputFile(key, localPath, fileHelper.openOutputFile(localPath), null);
+    }
+
+    /**
+     * Open the RDF output for a source file or partition.
+     * 
+     * <p>
+     * The output is split into multiple parts when {@code output.maxstatements} or
+     * {@code output.maxsize} are set.
+     * </p>
+     * 
+     * @param tctx        task context
+     * @param mapping     mapping to apply
+     * @param key         key of the output file in the upload bucket
+     * @param streamed    <code>true</code> to upload the output while it is
+     *                    written instead of storing it locally
+     * @param context     target named graph
+     * @param outputFiles list to add opened output files to
+     * @return writer for the output, which still needs to be started
+     */
+    private RollingRDFWriter openRDFOutput(TaskContext tctx, Mapping mapping, Path key, boolean streamed,
+            Resource context, List<OutputFile> outputFiles) {
+        boolean rolling = isOutputRolling();
+        return new RollingRDFWriter(resolvedRdfOutputFormat, outputMaxStatements, outputMaxSize, part -> {
+            Path partKey = rolling ? partFileForOutput(key, part) : key;
+            OutputFile output = openOutputFile(tctx, partKey, resolvedOutputDir.resolve(partKey), streamed);
+            outputFiles.add(output);
+            output.setWriter(openRDFFile(tctx, mapping, output, context, mappingManager.getNamespaces()));
+            return output;
+        });
+    }
+
+    private boolean isOutputRolling() {
+        return outputMaxStatements > 0 || outputMaxSize > 0;
+    }
+
+    /**
+     * Determine the output file of a part of split output.
+     * 
+     * @param outputFile output file for the whole output
+     * @param part       number of the part
+     * @return output file of the part, e.g. {@code records_1-00002.trig.gz} for
+     *         the output file {@code records_1.trig.gz}
+     */
+    private Path partFileForOutput(Path outputFile, int part) {
+        String fileName = outputFile.getFileName().toString();
+        String extension = outputExtension();
+        String baseName = FileHelper.stripExtension(fileName, extension);
+        return outputFile.resolveSibling(String.format("%s-%05d%s", baseName, part, extension));
+    }
 
-            return aggregatedSize;
+    private String outputExtension() {
+        return "." + resolvedRdfOutputFormat.getDefaultFileExtension()
+                + (rdfOutputCompressed ? FileHelper.EXTENSION_GZ : "");
+    }
+
+    /**
+     * Write the manifest listing all output files of a source file.
+     * 
+     * @param tctx        task context
+     * @param outputKey   key of the (unsplit) output file
+     * @param outputFiles output files
+     * @return local path of the manifest file
+     * @throws IOException in case of errors
+     */
+    private Path writeManifest(TaskContext tctx, Path outputKey, List<OutputFile> outputFiles) throws IOException {
+        OutputManifest manifest = new OutputManifest(tctx.getTask().getS3Key());
+        for (OutputFile output : outputFiles) {
+            manifest.addPart(output);
         }
+        Path manifestFile = resolvedOutputDir.resolve(outputKey + OutputManifest.EXTENSION_MANIFEST)
+                .toAbsolutePath();
+        fileHelper.ensureFolderExists(manifestFile.getParent());
+        Files.writeString(manifestFile, gson.toJson(manifest), StandardCharsets.UTF_8);
+        return manifestFile;
+    }
+
+    /**
+     * Determine the output file of a partition.
+     * 
+     * <p>
+     * The partitions of a source file are stored in a folder named like the output
+     * file without extensions, e.g. {@code records_1/part-00003.trig.gz} for the
+     * output file {@code records_1.trig.gz}.
+     * </p>
+     * 
+     * @param outputFile output file for the whole source file
+     * @param partition  number of the partition
+     * @return output file of the partition
+     */
+    private Path partitionFileForOutput(Path outputFile, int partition) {
+        String fileName = outputFile.getFileName().toString();
+        String extension = outputExtension();
+        String baseName = FileHelper.stripExtension(fileName, extension);
+        return outputFile.resolveSibling(baseName).resolve(String.format("part-%05d%s", partition, extension));
+    }
+
+    private void uploadResults(TaskContext tctx, Mapping mapping, Path sourceFile, List<OutputFile> outputFiles,
+            Path outputKey, Path outputPathDelete, Optional<Path> manifestFile) {
+        // partitions are opened lazily, so a source without statements has no
+        // output files but its deletions still have to be published
+        boolean uploaded = uploadEnabled;
+        List<Path> failedKeys = new ArrayList<>();
+        for (OutputFile output : outputFiles) {
+            if (output.isStreamed()) {
+                continue;
+            }
+            if (uploadFile(tctx, output.getLocalPath(), output.getKey()).isEmpty()) {
+                uploaded = false;
+                if (uploadEnabled) {
+                    failedKeys.add(output.getKey());
+                }
+            }
+            if (uploadDelete) {
+                deleteFile(output.getLocalPath());
+            }
+        }
+        if (manifestFile.isPresent()) {
+            // upload manifest after all parts, so it is only available for complete output
+            Path manifestKey = Path.of(outputKey + OutputManifest.EXTENSION_MANIFEST);
+            if (uploaded) {
+                uploadFile(tctx, manifestFile.get(), manifestKey);
+            }
+            if (uploadDelete) {
+                deleteFile(manifestFile.get());
+            }
+        }
+        if (uploaded) {
+            specialCases.onUploadFile(tctx, mapping, sourceFile, outputPathDelete, outputKey);
+            if (uploadDelete) {
+                deleteFile(outputPathDelete);
+            }
+        }
+        if (!failedKeys.isEmpty()) {
+            // report the task as failed instead of only logging the failure
+            throw new IllegalStateException("failed to upload " + StringUtils.join(failedKeys, ", "));
+        }
+    }
+
+    private boolean shouldStreamOutput() {
+        return uploadEnabled && uploadStreaming;
     }
 
     private boolean shouldProcessLineByLine(TaskContext tctx, Path sourceFile, Mapping mapping) {
@@ -367,11 +940,16 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         case document:
             return false;
         case line:
+        case records:
             return true;
         }
         return false;
     }
 
+    private boolean shouldStreamRecords(Mapping mapping) {
+        return mapping.getMappingSpec().getLineProcessingMode() == LineProcessingMode.records;
+    }
+
     private boolean isJSONLFile(Path sourceFile) {
         String path = sourceFile.toString();
         path = FileHelper.stripExtension(path, FileHelper.EXTENSION_GZ);
@@ -379,7 +957,7 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
     }
 
     private Path resolveOutputFile(TaskContext tctx, Mapping mapping, Path sourceFile, String type) throws IOException {
-        Path inputFile = Path.of(tctx.getTask().getS3Key());
+        Path inputFile = Path.of(tctx.getSourceKey());
 
         // define file name in output folder
         RDFFormat outputFormat = resolvedRdfOutputFormat;
@@ -391,15 +969,36 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         return outputPath;
     }
 
-    private RDFWriter openRDFFile(TaskContext tctx, Mapping mapping, OutputStream outputStream, Resource targetContext,
+    private RDFWriter openRDFFile(TaskContext tctx, Mapping mapping, OutputFile output, Resource targetContext,
             Model namespaces) throws IOException {
         RDFFormat outputFormat = resolvedRdfOutputFormat;
+        OutputStream outputStream = output.getStream();
+
+        RDFWriter writer;
+        if (useStreamingWriter) {
+            // N-Quads are encoded directly, TriG is grouped by subject within each record
+            FixedContextRDFWriter streamingWriter = StreamingNQuadsWriter.supports(outputFormat)
+                    ? new StreamingNQuadsWriter(outputStream, outputFormat)
+                    : new RecordGroupingTurtleWriter(outputStream, outputFormat);
+            // the named graph is set once instead of wrapping each statement
+            streamingWriter.setFixedContext(targetContext);
+            targetContext = null;
+            writer = streamingWriter;
+        } else {
+            var settings = new WriterConfig();
+            settings.set(BasicWriterSettings.PRETTY_PRINT, true);
 
-        var settings = new WriterConfig();
-        settings.set(BasicWriterSettings.PRETTY_PRINT, true);
+            writer = Rio.createWriter(outputFormat, outputStream);
+            writer.setWriterConfig(settings);
+        }
 
-        RDFWriter writer = Rio.createWriter(outputFormat, outputStream);
-        writer.setWriterConfig(settings);
+        if (outputDedup) {
+            // drop duplicate statements before they are serialized
+            DeduplicatingRDFWriter deduplicatingWriter = new DeduplicatingRDFWriter(writer,
+                    new FingerprintFilter(dedupMemoryBudget, outputDedupMaxError), listener);
+            output.setDeduplicatingWriter(deduplicatingWriter);
+            writer = deduplicatingWriter;
+        }
 
         // determine named graph for result data
         if (targetContext != null) {
@@ -434,8 +1033,14 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
 
     private Path outputFileForSource(TaskContext tctx, Mapping mapping, Path sourcePath, RDFFormat outputFormat) {
         String outputFile = sourcePath.toString();
+        // each range of a file is written to its own output file
+        String rangeSuffix = tctx.getByteRange().map(ByteRange::getFileSuffix).orElse("");
         if (mapping.getMappingSpec().hasProcessingHint(ProcessingHints.COPY_FILE)) {
             // returned filename unchanged
+            if (!rangeSuffix.isEmpty()) {
+                String baseName = FileHelper.stripExtension(outputFile, FileHelper.EXTENSION_JSONL);
+                outputFile = baseName + rangeSuffix + outputFile.substring(baseName.length());
+            }
             return Path.of(outputFile);
         }
         
@@ -444,6 +1049,7 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         sourceFile = FileHelper.stripExtension(sourceFile, FileHelper.EXTENSION_GZ);
         // strip .jsonl ending
         sourceFile = FileHelper.stripExtension(sourceFile, FileHelper.EXTENSION_JSONL);
+        sourceFile = sourceFile + rangeSuffix;
 
         // append RDF file format extension
         outputFile = sourceFile + "." + outputFormat.getDefaultFileExtension();
@@ -462,11 +1068,17 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         listener.startDocument();
         boolean success = true;
 
-        try (InputStream input = sourceStream) {
+        // serialize statements on a separate thread while mapping the document
+        ExecutorService writerExecutor = outputAsync
+                ? Executors.newSingleThreadExecutor(new NamedThreadFactory("rdf-writer"))
+                : null;
+        try (InputStream input = sourceStream;
+                BatchingRDFWriter batchingWriter = new BatchingRDFWriter(writer, outputBatchSize, writerExecutor)) {
 
             // perform mapping on whole document
-            BatchingRDFWriter batchingWriter = new BatchingRDFWriter(writer, outputBatchSize);
             aggregatedSize += performMapping(tctx, sourceFile, mapping, input, batchingWriter);
+            // write remaining statements
+            batchingWriter.flushStatements();
 
         } catch (Exception e) {
             success = false;
@@ -477,82 +1089,240 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
             lambdaLogger.log("Failed to process batch request: " + e.toString());
 
             throw e;
+        } finally {
+            if (writerExecutor != null) {
+                writerExecutor.shutdownNow();
+            }
         }
         listener.endDocument(success, aggregatedSize);
 
         return aggregatedSize;
     }
 
-    private long processLines(TaskContext tctx, Path sourceFile, Mapping mapping, InputStream sourceStream,
+    private long processLines(TaskContext tctx, Path sourceFile, Mapping mapping, RecordReader recordReader,
             RDFWriter writer, PrintWriter outDelete) throws Exception {
-        long errors = 0;
-        long successes = 0;
+        AtomicLong errors = new AtomicLong();
+        AtomicLong successes = new AtomicLong();
         AtomicLong aggregatedSize = new AtomicLong();
-        // convert stream to reader to process line by line
-        try (BufferedReader sourceReader = fileHelper.openInputReader(sourceStream)) {
-            // process file: iterate over each line in input file
-            String line;
-            long lineNumber = 0;
-
-            while ((line = sourceReader.readLine()) != null) {
-                lineNumber++;
-                if (lineNumber % 1000 == 0) {
-                    logger.debug("Processed {} lines", lineNumber);
-                }
-                if (processLines >= 0 && lineNumber > processLines) {
-                    logger.debug("finished processing the first {} lines of the file, skipping the remaining content");
-                    break;
-                }
+        AtomicLong lineNumber = new AtomicLong();
+        int batchSize = resolveLineBatchSize(mapping);
+        try (RecordReader sourceReader = recordReader) {
+            // process file: read batches of lines on this thread, map them concurrently
+            // and write the results in the order of the source lines
+            OrderedPipeline<List<SourceLine>, List<MappedLines>> pipeline = new OrderedPipeline<>("convert-lines",
+                    resolveLineWorkers(), processLinesQueueSize)
+                    .withTaskDecorator(lambdaLoggerManager::propagate);
+            pipeline.run(
+                    () -> readLines(tctx, mapping, sourceReader, lineNumber, batchSize),
+                    sourceLines -> mapLines(tctx, sourceFile, mapping, sourceLines),
+                    (sourceLines, results, error) -> {
+                        if (error != null) {
+                            results = List.of(new MappedLines(sourceLines, null, error, 0));
+                        }
+                        for (MappedLines result : results) {
+                            writeLines(tctx, sourceFile, mapping, result, writer, outDelete, successes, errors,
+                                    aggregatedSize);
+                        }
+                    });
+            logger.debug("Processed {} lines", lineNumber.get());
+        }
 
-                if (!specialCases.processLine(tctx, mapping, line)) {
-                    // continue with next line
-                    continue;
+        if ((aggregatedSize.get() > 0) && (errors.get() > 0) && (successes.get() == 0)) {
+            throw new Exception("Failed to process " + errors.get() + " lines without successful conversions!");
+        }
+
+        return aggregatedSize.get();
+    }
+
+    private void writeLines(TaskContext tctx, Path sourceFile, Mapping mapping, MappedLines result,
+            RDFWriter writer, PrintWriter outDelete, AtomicLong successes, AtomicLong errors,
+            AtomicLong aggregatedSize) {
+        boolean success = true;
+        try {
+            if (result.getError() != null) {
+                throw result.getError();
+            }
+            StatementBuffer statements = result.getStatements();
+            if (statements != null) {
+                if (specialCases.requiresRecordModel(mapping)) {
+                    // the statements of the record need to be inspected
+                    Model m = statements.toModel();
+                    boolean addTriplesToOutput = specialCases.saveProcessTriples(tctx, mapping, sourceFile, m,
+                            outDelete);
+
+                    if (addTriplesToOutput) {
+                        aggregatedSize.addAndGet(writeRDF(writer, m));
+                    }
+                } else {
+                    // forward statements as they are
+                    aggregatedSize.addAndGet(statements.writeTo(writer));
                 }
+                // statements of a record may be grouped by the writer
+                RecordAware.endRecord(writer);
+            }
+            successes.addAndGet(result.getLines().size());
+        } catch (Exception e) {
+            success = false;
+            errors.addAndGet(result.getLines().size());
+            SourceLine sourceLine = result.getLines().get(0);
+            logger.debug("Failed to process batch request in line {}: {}", sourceLine.getLineNumber(),
+                    e.toString());
+            logger.trace("Failed line {}:", sourceLine.getLineNumber());
+            logger.trace(sourceLine.getLine());
+            logger.trace("Details: ", e);
 
-                // process line
-                listener.startDocument();
-                boolean success = true;
-                try {
-                    Optional.ofNullable(processLine(tctx, sourceFile, mapping, line)).ifPresent(model -> {
+            // failed lines are aggregated and logged in the background
+            diagnostics.report(mapping.getMappingSpec().getId(), null, "failed line, " + e.getClass().getSimpleName(),
+                    sourceFile + ":" + sourceLine.getLineNumber() + ": " + e.getMessage() + " | "
+                            + ConversionDiagnostics.truncate(sourceLine.getLine()));
+        }
+        // the lines were mapped on a worker thread, so report the time measured there
+        listener.document(success, aggregatedSize.get(), result.getDuration());
+    }
+
+    /**
+     * Read the next batch of lines to process from the source.
+     * 
+     * @param tctx         task context
+     * @param mapping      mapping to apply
+     * @param sourceReader reader for the source file
+     * @param lineNumber   number of lines read so far, updated by this method
+     * @param batchSize    maximum number of lines to return
+     * @return next lines to process or <code>null</code> when the end of the file
+     *         or the configured number of lines has been reached
+     * @throws IOException in case of errors
+     */
+    private List<SourceLine> readLines(TaskContext tctx, Mapping mapping, RecordReader sourceReader,
+            AtomicLong lineNumber, int batchSize) throws IOException {
+        List<SourceLine> lines = new ArrayList<>(batchSize);
+        SourceLine line;
+        while (lines.size() < batchSize && (line = readLine(tctx, mapping, sourceReader, lineNumber)) != null) {
+            lines.add(line);
+        }
+        return lines.isEmpty() ? null : lines;
+    }
 
-                        boolean addTriplesToOutput = specialCases.saveProcessTriples(tctx, mapping, sourceFile, model,
-                                outDelete);
+    /**
+     * Read the next line (or record) to process from the source.
+     * 
+     * @param tctx         task context
+     * @param mapping      mapping to apply
+     * @param sourceReader reader for the source file
+     * @param lineNumber   number of lines read so far, updated by this method
+     * @return next line to process or <code>null</code> when the end of the file
+     *         or the configured number of lines has been reached
+     * @throws IOException in case of errors
+     */
+    private SourceLine readLine(TaskContext tctx, Mapping mapping, RecordReader sourceReader,
+            AtomicLong lineNumber) throws IOException {
+        String line;
+        while ((line = sourceReader.nextRecord()) != null) {
+            long currentLine = lineNumber.incrementAndGet();
+            if (currentLine % 1000 == 0) {
+                logger.debug("Processed {} lines", currentLine);
+            }
+            if (processLines >= 0 && currentLine > processLines) {
+                logger.debug("finished processing the first {} lines of the file, skipping the remaining content");
+                return null;
+            }
 
-                        if (addTriplesToOutput) {
-                            long statements = writeRDF(writer, model);
-                            aggregatedSize.addAndGet(statements);
-                        }
-                    });
-                    successes++;
-                } catch (Exception e) {
-                    success = false;
-                    errors++;
-                    logger.warn("Failed to process batch request in line {}: {}", lineNumber, e.toString());
-                    logger.trace("Failed line {}:", lineNumber);
-                    logger.trace(line);
-                    logger.trace("Details: ", e);
-
-                    LambdaLogger lambdaLogger = tctx.getLogger();
-                    lambdaLogger.log("Failed to process batch request: " + e.toString());
-                    lambdaLogger.log("Failed line:");
-                    lambdaLogger.log(line);
-                    //lambdaLogger.log("Details: " + strackTraceToString(e));
-                }
-                listener.endDocument(success, aggregatedSize.get());
+            if (!specialCases.processLine(tctx, mapping, line)) {
+                // continue with next line
+                continue;
             }
-            logger.debug("Processed {} lines", lineNumber);
+            return new SourceLine(currentLine, line);
         }
+        return null;
+    }
 
-        if ((aggregatedSize.get() > 0) && (errors > 0) && (successes == 0)) {
-            throw new Exception("Failed to process " + errors + " lines without successful conversions!");
+    private int resolveLineWorkers() {
+        if (processLinesWorkers > 0) {
+            return processLinesWorkers;
         }
+        return Runtime.getRuntime().availableProcessors();
+    }
 
-        return aggregatedSize.get();
+    private int resolveLineBatchSize(Mapping mapping) {
+        int batchSize = mapping.getMappingSpec().getLineBatchSize();
+        if (batchSize <= 1) {
+            return 1;
+        }
+        if (!specialCases.supportsBatching(mapping)) {
+            // the configured batch size cannot be used, report it once per mapping
+            if (unbatchedMappings.add(mapping.getType())) {
+                logger.warn("Mapping {} has a line batch size of {}, but its lines cannot be mapped in batches "
+                        + "(requires preprocessing.list.enabled and no last-update detection), "
+                        + "mapping lines one by one", mapping.getType(), batchSize);
+            }
+            return 1;
+        }
+        return batchSize;
     }
 
-    private Model processLine(TaskContext tctx, Path sourceFile, Mapping mapping, String line)
+    /**
+     * Map a batch of lines.
+     * 
+     * <p>
+     * Multiple lines are mapped together with a single mapper call. When this
+     * fails, the lines are mapped one by one, so errors can be attributed to the
+     * failing lines and all other lines of the batch are still converted.
+     * </p>
+     * 
+     * @param tctx        task context
+     * @param sourceFile  path to source file
+     * @param mapping     mapping to apply
+     * @param sourceLines lines to map
+     * @return mapping results in the order of the lines
+     */
+    private List<MappedLines> mapLines(TaskContext tctx, Path sourceFile, Mapping mapping,
+            List<SourceLine> sourceLines) {
+        if (sourceLines.size() > 1) {
+            long start = System.currentTimeMillis();
+            try {
+                StatementBuffer statements = processBatch(tctx, sourceFile, mapping, sourceLines);
+                return List.of(new MappedLines(sourceLines, statements, null, System.currentTimeMillis() - start));
+            } catch (Exception e) {
+                logger.debug("Failed to map batch of lines {} to {}, mapping lines one by one: {}",
+                        sourceLines.get(0).getLineNumber(), sourceLines.get(sourceLines.size() - 1).getLineNumber(),
+                        e.toString());
+            }
+        }
+        List<MappedLines> results = new ArrayList<>(sourceLines.size());
+        for (SourceLine sourceLine : sourceLines) {
+            long start = System.currentTimeMillis();
+            try {
+                StatementBuffer statements = processLine(tctx, sourceFile, mapping, sourceLine.getLine());
+                results.add(new MappedLines(List.of(sourceLine), statements, null,
+                        System.currentTimeMillis() - start));
+            } catch (Exception e) {
+                results.add(new MappedLines(List.of(sourceLine), null, e, System.currentTimeMillis() - start));
+            }
+        }
+        return results;
+    }
+
+    private StatementBuffer processBatch(TaskContext tctx, Path sourceFile, Mapping mapping,
+            List<SourceLine> sourceLines) throws IOException {
+        StatementBuffer out = new StatementBuffer();
+
+        List<String> records = new ArrayList<>(sourceLines.size());
+        for (SourceLine sourceLine : sourceLines) {
+            records.add(specialCases.preprocessRecord(sourceLine.getLine(), out));
+        }
+        String batch = specialCases.wrapRecords(records);
+
+        if (specialCases.performMapping(batch)) {
+            // perform mapping for all records at once
+            try (StringInputStream input = new StringInputStream(batch)) {
+                performRecordMapping(tctx, sourceFile, mapping, input, out);
+            }
+        }
+        return out;
+    }
+
+    private StatementBuffer processLine(TaskContext tctx, Path sourceFile, Mapping mapping, String line)
             throws IOException {
-        Model out = new LinkedHashModel();
+        StatementBuffer out = new StatementBuffer();
 
         line = specialCases.preprocessLine(line, out);
 
@@ -561,35 +1331,38 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         if (performMapping) {
             // perform mapping for document
             try (StringInputStream input = new StringInputStream(line)) {
-                Model model = performMapping(tctx, sourceFile, mapping, input);
-                out.addAll(model);
+                performRecordMapping(tctx, sourceFile, mapping, input, out);
             }
         }
         return out;
     }
 
     /**
-     * Perform RDF mapping and return a {@link Model}.
+     * Perform RDF mapping for a single record and collect the generated
+     * statements.
+     * 
+     * <p>
+     * In contrast to
+     * {@link #performMapping(TaskContext, Path, Mapping, InputStream, RDFHandler)}
+     * this waits for the mapping to complete and throws any mapping errors, so
+     * they can be attributed to the record.
+     * </p>
      * 
      * @param tctx       task context
      * @param sourceFile path to source file
      * @param mapping    mapping to apply
      * @param input      input stream
-     * @return {@link Model} containing generated RDF statements
+     * @param out        buffer for generated RDF statements
      * @throws IOException in case of errors
      */
-    private Model performMapping(TaskContext tctx, Path sourceFile, Mapping mapping, InputStream input)
-            throws IOException {
-        Model out = new LinkedHashModel();
-
-        // perform mapping for document
+    private void performRecordMapping(TaskContext tctx, Path sourceFile, Mapping mapping, InputStream input,
+            StatementBuffer out) throws IOException {
         try {
             Optional<RdfRmlMapper> rmlMapper = mapping.getMapper();
             if (!rmlMapper.isPresent()) {
                 throw new IllegalArgumentException("no RDF mappings available for " + mapping.getType());
             }
-            Model model = rmlMapper.get().mapToModel(input);
-            out.addAll(model);
+            rmlMapper.get().map(input).doOnNext(out::handleStatement).blockLast();
         } finally {
             try {
                 input.close();
@@ -598,10 +1371,8 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
                 logger.debug("Details: ", e);
             }
         }
-
-        return out;
     }
-    
+
     /**
      * Perform RDF mapping and forward statements to an {@link RDFHandler} (e.g. a
      * {@link RDFWriter}).
@@ -642,9 +1413,79 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         return count.get();
     }
 
+    /**
+     * Determine whether to read the source file of a task directly from S3.
+     * 
+     * @param context task context
+     * @return <code>true</code> if the file should be streamed from S3,
+     *         <code>false</code> if it is available locally or should be
+     *         downloaded first
+     */
+    private boolean shouldStreamInput(TaskContext context) {
+        if (context.getByteRange().isPresent()) {
+            // ranges of a file are always read directly
+            return true;
+        }
+        if (!inputStreaming) {
+            return false;
+        }
+        // prefer local files if available
+        Path localFile = resolvedInputDir.resolve(context.getSourceKey());
+        return !localFile.toFile().exists();
+    }
+
+    private InputStream openSourceStream(TaskContext context) throws IOException {
+        String bucket = getSourceBucket(context);
+        String key = context.getSourceKey();
+        Optional<ByteRange> range = context.getByteRange();
+        if (range.isPresent()) {
+            Path localFile = resolvedInputDir.resolve(key);
+            if (localFile.toFile().exists()) {
+                logger.debug("Reading range {} of local file {}", range.get(), localFile);
+                return fileHelper.openInputStream(localFile, range.get());
+            }
+            logger.debug("Streaming range {} of file {}/{}", range.get(), bucket, key);
+            return fileHelper.openS3InputStream(bucket, key, range.get(), inputReadAheadSize, inputReadAheadCount);
+        }
+        logger.debug("Streaming file {}/{}", bucket, key);
+        return fileHelper.openS3InputStream(bucket, key, inputReadAheadSize, inputReadAheadCount);
+    }
+
+    /**
+     * Download the source file of a task ahead of its conversion. Nothing is
+     * downloaded for tasks which are streamed from S3 or have no matching
+     * mapping.
+     * 
+     * @param context task context
+     * @return downloaded (or local) file
+     */
+    private Optional<Path> prefetchSource(TaskContext context) {
+        // only match the mapping: its mapper is built by the task itself, so
+        // errors are reported as mapping errors and not as download errors
+        if (shouldStreamInput(context)
+                || mappingManager.findMapping(context.getSourceKey()).isEmpty()) {
+            return Optional.empty();
+        }
+        return downloadFile(context);
+    }
+
+    private Optional<Path> awaitSourceFile(TaskContext context, Future<Optional<Path>> prefetchedSourceFile)
+            throws InterruptedException {
+        if (prefetchedSourceFile == null) {
+            return downloadFile(context);
+        }
+        try {
+            return prefetchedSourceFile.get();
+        } catch (ExecutionException e) {
+            logger.warn("Failed to download file {}: {}", context.getTask().getS3Key(), e.getCause().getMessage());
+            logger.debug("Details: ", e.getCause());
+            return Optional.empty();
+        }
+    }
+
     private Optional<Path> downloadFile(TaskContext context) {
         String bucket = getSourceBucket(context);
-        String key = context.getTask().getS3Key();
+        String key = context.getSourceKey();
         logger.debug("Downloading file {}/{}", bucket, key);
 
         // for now we try to find the file locally
@@ -660,6 +1501,8 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
             try {
                 localFile = resolvedDownloadDir.resolve(key);
                 fileHelper.downloadFile(bucket, key, localFile);
+                // use the index of block-compressed files for parallel decompression
+                fileHelper.downloadGzipIndex(bucket, key, localFile);
                 return Optional.of(localFile);
             } catch (Exception e) {
                 logger.warn("Failed to download file {}/{}: {}", bucket, key,
@@ -691,7 +1534,7 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         return s3BucketArn;
     }
 
-    private Optional<Path> uploadFile(TaskContext tctx, Mapping mapping, Path sourceFile, Path localPath) {
+    private Optional<Path> uploadFile(TaskContext tctx, Path localPath, Path outputFile) {
         if (!uploadEnabled) {
             // skip uploading
             logger.trace("Skipped uploading file {}: upload disabled", localPath);
@@ -700,11 +1543,6 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         logger.debug("Uploading file {} to {}", localPath, uploadBucket);
         tctx.getLogger().log("Uploading file " + localPath + " to " + uploadBucket);
 
-        Path inputFile = Path.of(tctx.getTask().getS3Key());
-
-        // define file name in output folder
-        RDFFormat outputFormat = resolvedRdfOutputFormat;
-        Path outputFile = outputFileForSource(tctx, mapping, inputFile, outputFormat);
         String key = outputFile.toString();
         
         // upload to S3
@@ -775,6 +1613,62 @@ public class ConvertToRDFLambda implements RequestStreamHandler {
         writer.endRDF();
     }
 
+    static class SourceLine {
+        private final long lineNumber;
+        private final String line;
+
+        SourceLine(long lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getLine() {
+            return line;
+        }
+    }
+
+    /**
+     * Result of mapping one or more lines.
+     */
+    static class MappedLines {
+        private final List<SourceLine> lines;
+        private final StatementBuffer statements;
+        private final Exception error;
+        private final long duration;
+
+        MappedLines(List<SourceLine> lines, StatementBuffer statements, Exception error, long duration) {
+            this.lines = lines;
+            this.statements = statements;
+            this.error = error;
+            this.duration = duration;
+        }
+
+        public List<SourceLine> getLines() {
+            return lines;
+        }
+
+        public StatementBuffer getStatements() {
+            return statements;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * Get the time spent mapping the lines.
+         * 
+         * @return duration in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+    }
+
     static class StringInputStream extends ByteArrayInputStream {
         public StringInputStream(String s) {
             super(s.getBytes(StandardCharsets.UTF_8));
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFWriter;
+
+/**
+ * RDFWriter which drops statements which have already been written.
+ *
+ * <p>
+ * Each statement is reduced to a 64-bit fingerprint which is tracked in a
+ * memory-bounded {@link FingerprintFilter}. The number of checked and dropped
+ * statements is reported to a {@link ConversionListener} when the output ends.
+ * </p>
+ *
+ * <p>
+ * The filter is closed when the output ends. If the output is discarded
+ * before, {@link #close()} has to be called to release the memory of the
+ * filter.
+ * </p>
+ */
+public class DeduplicatingRDFWriter extends DelegatingRDFWriter {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final FingerprintFilter filter;
+    private final ConversionListener listener;
+    private long statements = 0;
+    private long duplicates = 0;
+
+    public DeduplicatingRDFWriter(RDFWriter delegate, FingerprintFilter filter, ConversionListener listener) {
+        super(delegate);
+        this.filter = filter;
+        this.listener = listener;
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        statements++;
+        if (!filter.add(fingerprint(st))) {
+            duplicates++;
+            return;
+        }
+        super.handleStatement(st);
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        try {
+            super.endRDF();
+            if (listener != null) {
+                listener.deduplicated(statements, duplicates, filter.isApproximate());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Release the memory of the filter without ending the output.
+     */
+    public void close() {
+        filter.close();
+    }
+
+    public long getStatementCount() {
+        return statements;
+    }
+
+    public long getDuplicateCount() {
+        return duplicates;
+    }
+
+    /**
+     * Calculate the fingerprint of a statement.
+     *
+     * @param st statement
+     * @return 64-bit fingerprint
+     */
+    static long fingerprint(Statement st) {
+        long h = FNV_OFFSET;
+        h = hash(h, st.getSubject());
+        h = hash(h, st.getPredicate());
+        h = hash(h, st.getObject());
+        h = hash(h, st.getContext());
+        return FingerprintFilter.mix(h);
+    }
+
+    private static long hash(long h, Value value) {
+        if (value == null) {
+            return hash(h, '0');
+        }
+        if (value.isIRI()) {
+            h = hash(h, 'I');
+        } else if (value.isBNode()) {
+            h = hash(h, 'B');
+        } else if (value.isLiteral()) {
+            h = hash(h, 'L');
+        } else {
+            h = hash(h, 'T');
+        }
+        h = hash(h, value.stringValue());
+        if (value instanceof Literal) {
+            Literal literal = (Literal) value;
+            if (literal.getLanguage().isPresent()) {
+                h = hash(h, '@');
+                h = hash(h, literal.getLanguage().get());
+            } else {
+                h = hash(h, '^');
+                h = hash(h, literal.getDatatype().stringValue());
+            }
+        }
+        return h;
+    }
+
+    private static long hash(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = hash(h, s.charAt(i));
+        }
+        // terminate value, so "ab"+"c" differs from "a"+"bc"
+        return hash(h, '\u0000');
+    }
+
+    private static long hash(long h, char c) {
+        return (h ^ c) * FNV_PRIME;
+    }
+}
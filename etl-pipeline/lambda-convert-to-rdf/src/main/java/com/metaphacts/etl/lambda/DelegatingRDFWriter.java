@@ -12,7 +12,7 @@ import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.RioSetting;
 import org.eclipse.rdf4j.rio.WriterConfig;
 
-public class DelegatingRDFWriter implements RDFWriter {
+public class DelegatingRDFWriter implements RDFWriter, RecordAware {
     private final RDFWriter delegate;
 
     public DelegatingRDFWriter(RDFWriter delegate) {
@@ -62,4 +62,8 @@ public class DelegatingRDFWriter implements RDFWriter {
     public void handleComment(String comment) throws RDFHandlerException {
         delegate.handleComment(comment);
     }
+
+    public void endRecord() throws RDFHandlerException {
+        RecordAware.endRecord(delegate);
+    }
 }
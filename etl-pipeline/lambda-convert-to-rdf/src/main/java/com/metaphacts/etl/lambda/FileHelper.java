@@ -3,47 +3,65 @@
  */
 package com.metaphacts.etl.lambda;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.IOUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Uri;
 import software.amazon.awssdk.services.s3.S3Utilities;
 import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListBucketsRequest;
 import software.amazon.awssdk.services.s3.model.ListBucketsResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 /**
  * Helper class for file related functionality
@@ -54,11 +72,38 @@ public class FileHelper {
     public static final String EXTENSION_JSONL = ".jsonl";
     public static final Charset CHARSET_UTF8 = Charset.forName("UTF-8");
 
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     private static final Logger logger = LoggerFactory.getLogger(FileHelper.class);
 
     @Inject
     S3Client s3;
 
+    // compress gzip output using multiple threads, written as concatenated gzip members
+    @ConfigProperty(name = "output.gzip.parallel", defaultValue = "false")
+    Boolean gzipParallel;
+    // number of threads compressing gzip output, 0 to use the number of available processors
+    @ConfigProperty(name = "output.gzip.threads", defaultValue = "0")
+    int gzipThreads;
+    // size of uncompressed data per gzip member
+    @ConfigProperty(name = "output.gzip.blocksize", defaultValue = "1048576")
+    int gzipBlockSize;
+    @ConfigProperty(name = "output.gzip.level", defaultValue = "6")
+    int gzipLevel;
+    // decompress indexed multi-member gzip input using multiple threads
+    @ConfigProperty(name = "input.gzip.index", defaultValue = "true")
+    Boolean gzipIndexEnabled;
+    // maximum uncompressed size of a gzip member for parallel decompression
+    @ConfigProperty(name = "input.gzip.maxmembersize", defaultValue = "67108864")
+    long gzipMaxMemberSize;
+    // timeouts of the S3 client, also used for HTTP requests determining version tags
+    @ConfigProperty(name = "quarkus.s3.sync-client.connection-timeout", defaultValue = "2S")
+    Duration connectionTimeout;
+    @ConfigProperty(name = "quarkus.s3.sync-client.socket-timeout", defaultValue = "30S")
+    Duration socketTimeout;
+
+    private ExecutorService gzipExecutor;
+
     public FileHelper() {
 
     }
@@ -192,7 +237,9 @@ public class FileHelper {
      * 
      * <p>
      * If the path ends in {@value #EXTENSION_GZ}, the stream is automatically
-     * wrapped in a {@link GZIPInputStream}.
+     * wrapped in a {@link GZIPInputStream}. When a {@link GzipIndex} sidecar file
+     * exists for a multi-member gzip file, the file is decompressed using a
+     * {@link ParallelGZIPInputStream} instead.
      * </p>
      * 
      * @param sourceFile path of the file to read.
@@ -200,6 +247,15 @@ public class FileHelper {
      * @throws IOException in case of errors
      */
     public InputStream openInputStream(Path sourceFile) throws IOException {
+        if (hasExtension(sourceFile, EXTENSION_GZ)) {
+            Optional<GzipIndex> index = loadGzipIndex(sourceFile);
+            if (index.isPresent()) {
+                logger.debug("Decompressing file {} with {} gzip members in parallel", sourceFile,
+                        index.get().size());
+                return new ParallelGZIPInputStream(sourceFile, index.get(), getGzipExecutor(),
+                        resolveGzipThreads() + 1);
+            }
+        }
         InputStream sourceStream = new FileInputStream(sourceFile.toFile());
         if (hasExtension(sourceFile, EXTENSION_GZ)) {
             sourceStream = new GZIPInputStream(sourceStream);
@@ -207,6 +263,196 @@ public class FileHelper {
         return sourceStream;
     }
 
+    /**
+     * Load the {@link GzipIndex} sidecar file for a gzip file.
+     * 
+     * @param gzipFile path of the gzip file
+     * @return the index, if available and suitable for parallel decompression
+     */
+    public Optional<GzipIndex> loadGzipIndex(Path gzipFile) {
+        if (!Boolean.TRUE.equals(gzipIndexEnabled)) {
+            return Optional.empty();
+        }
+        Path indexFile = GzipIndex.indexFileFor(gzipFile);
+        if (!Files.isRegularFile(indexFile)) {
+            return Optional.empty();
+        }
+        try {
+            GzipIndex index = GzipIndex.load(indexFile);
+            if (index.size() < 2 || index.getMaxUncompressedLength() > gzipMaxMemberSize) {
+                // nothing to gain from parallel decompression
+                return Optional.empty();
+            }
+            return Optional.of(index);
+        } catch (IOException e) {
+            logger.warn("Failed to load gzip index {}: {}", indexFile, e.getMessage());
+            logger.debug("Details: ", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Download the {@link GzipIndex} sidecar file for a gzip object, if it exists.
+     * 
+     * @param bucket    bucket containing the gzip object
+     * @param key       key of the gzip object
+     * @param localFile local path of the downloaded gzip file
+     * @return path of the downloaded index file
+     */
+    public Optional<Path> downloadGzipIndex(String bucket, String key, Path localFile) {
+        if (!Boolean.TRUE.equals(gzipIndexEnabled) || !hasExtension(key, EXTENSION_GZ)) {
+            return Optional.empty();
+        }
+        String indexKey = key + GzipIndex.EXTENSION_INDEX;
+        Path indexFile = GzipIndex.indexFileFor(localFile);
+        try {
+            s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(indexKey).build());
+        } catch (Exception e) {
+            // the index is optional: without it (or without permission to check, e.g. 403 without
+            // s3:ListBucket) the file is decompressed sequentially
+            logger.debug("No gzip index available for {}/{}: {}", bucket, key, e.getMessage());
+            return Optional.empty();
+        }
+        try {
+            downloadFile(bucket, indexKey, indexFile);
+            return Optional.of(indexFile);
+        } catch (Exception e) {
+            logger.warn("Failed to download gzip index {}/{}: {}", bucket, indexKey, e.getMessage());
+            logger.debug("Details: ", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Open an object in a S3 bucket for streaming and return an
+     * {@link InputStream}.
+     * 
+     * <p>
+     * The object is not downloaded to a local file, but read directly from the
+     * response of the {@code GetObject} request. Data is read ahead on a
+     * background thread, so network I/O overlaps with processing the data.
+     * </p>
+     * 
+     * <p>
+     * If the key ends in {@value #EXTENSION_GZ}, the stream is automatically
+     * wrapped in a {@link GZIPInputStream}.
+     * </p>
+     * 
+     * @param bucket         bucket containing the object
+     * @param key            key (path) within the bucket
+     * @param readAheadSize  size of each read-ahead chunk in bytes
+     * @param readAheadCount maximum number of chunks to read ahead
+     * @return the input stream
+     * @throws IOException in case of errors
+     */
+    public InputStream openS3InputStream(String bucket, String key, int readAheadSize, int readAheadCount)
+            throws IOException {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder().bucket(bucket).key(key).build();
+        ResponseInputStream<GetObjectResponse> response = s3.getObject(getObjectRequest);
+        InputStream sourceStream = new ReadAheadInputStream(abortOnClose(response), readAheadSize, readAheadCount);
+        if (hasExtension(key, EXTENSION_GZ)) {
+            sourceStream = new GZIPInputStream(sourceStream, GZIP_BUFFER_SIZE);
+        }
+        return sourceStream;
+    }
+
+    /**
+     * Open a byte range of a local file and return an {@link InputStream}
+     * providing all lines starting within the range.
+     * 
+     * @param sourceFile path of the file to read
+     * @param range      byte range to read
+     * @return the input stream
+     * @throws IOException in case of errors
+     */
+    public InputStream openInputStream(Path sourceFile, ByteRange range) throws IOException {
+        checkRangeSupported(sourceFile.toString());
+        FileChannel channel = FileChannel.open(sourceFile, StandardOpenOption.READ);
+        channel.position(range.getReadOffset());
+        InputStream sourceStream = new BufferedInputStream(Channels.newInputStream(channel), GZIP_BUFFER_SIZE);
+        return new LineRangeInputStream(sourceStream, range);
+    }
+
+    /**
+     * Open a byte range of an object in a S3 bucket for streaming and return an
+     * {@link InputStream} providing all lines starting within the range.
+     * 
+     * <p>
+     * The object is read using a ranged {@code GetObject} request starting at the
+     * range. Reading continues after the end of the range until the end of the
+     * last line, the request is aborted when the stream is closed.
+     * </p>
+     * 
+     * @param bucket         bucket containing the object
+     * @param key            key (path) within the bucket
+     * @param range          byte range to read
+     * @param readAheadSize  size of each read-ahead chunk in bytes
+     * @param readAheadCount maximum number of chunks to read ahead
+     * @return the input stream
+     * @throws IOException in case of errors
+     */
+    public InputStream openS3InputStream(String bucket, String key, ByteRange range, int readAheadSize,
+            int readAheadCount) throws IOException {
+        checkRangeSupported(key);
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder().bucket(bucket).key(key)
+                .range("bytes=" + range.getReadOffset() + "-").build();
+        ResponseInputStream<GetObjectResponse> response;
+        try {
+            response = s3.getObject(getObjectRequest);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) {
+                // range starts after the end of the object
+                return InputStream.nullInputStream();
+            }
+            throw e;
+        }
+        InputStream sourceStream = new ReadAheadInputStream(abortOnClose(response), readAheadSize, readAheadCount);
+        return new LineRangeInputStream(sourceStream, range);
+    }
+
+    /**
+     * Wrap the response of a {@code GetObject} request so that closing it before
+     * the end of the object aborts the request instead of reading the remainder
+     * of the object.
+     * 
+     * @param response response to wrap
+     * @return the input stream
+     */
+    static InputStream abortOnClose(ResponseInputStream<GetObjectResponse> response) {
+        return new FilterInputStream(response) {
+            private boolean eof = false;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                eof = eof || (b < 0);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+                eof = eof || (count < 0);
+                return count;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!eof) {
+                    // do not read the remainder of the object
+                    response.abort();
+                }
+                super.close();
+            }
+        };
+    }
+
+    private void checkRangeSupported(String fileName) throws IOException {
+        if (hasExtension(fileName, EXTENSION_GZ)) {
+            throw new IOException("byte ranges are not supported for compressed file " + fileName);
+        }
+    }
+
     /**
      * Open a file and return a {@link BufferedReader}.
      * 
@@ -253,13 +499,75 @@ public class FileHelper {
     public OutputStream openOutputFile(Path outputPath) throws IOException {
         OutputStream out = new FileOutputStream(outputPath.toFile());
 
-        if (hasExtension(outputPath, EXTENSION_GZ)) {
-            out = new GZIPOutputStream(out);
+        return openOutputStream(out, outputPath.toString());
+    }
+
+    /**
+     * Wrap a stream for writing a file with the provided name.
+     * 
+     * <p>
+     * If the file name ends in {@value #EXTENSION_GZ}, the stream is automatically
+     * wrapped in a {@link ParallelGZIPOutputStream} (or a {@link GZIPOutputStream}
+     * when {@code output.gzip.parallel} is disabled).
+     * </p>
+     * 
+     * @param out      stream to write to
+     * @param fileName name of the file written to the stream
+     * @return the (possibly wrapped) stream
+     * @throws IOException in case of errors
+     */
+    public OutputStream openOutputStream(OutputStream out, String fileName) throws IOException {
+        if (hasExtension(fileName, EXTENSION_GZ)) {
+            if (Boolean.TRUE.equals(gzipParallel)) {
+                int threads = resolveGzipThreads();
+                out = new ParallelGZIPOutputStream(out, getGzipExecutor(), gzipBlockSize, gzipLevel, threads + 1);
+            } else {
+                out = new GZIPOutputStream(out);
+            }
         }
 
         return out;
     }
 
+    private int resolveGzipThreads() {
+        if (gzipThreads > 0) {
+            return gzipThreads;
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private synchronized ExecutorService getGzipExecutor() {
+        if (gzipExecutor == null) {
+            gzipExecutor = Executors.newFixedThreadPool(resolveGzipThreads(), new NamedThreadFactory("gzip"));
+        }
+        return gzipExecutor;
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (gzipExecutor != null) {
+            gzipExecutor.shutdownNow();
+            gzipExecutor = null;
+        }
+    }
+
+    /**
+     * Open a stream which uploads all data written to it to a S3 bucket using a
+     * multipart upload.
+     * 
+     * @param bucket      bucket to upload to
+     * @param key         key (path) within the bucket
+     * @param partSize    size of each uploaded part in bytes
+     * @param concurrency maximum number of parts being uploaded concurrently
+     * @param executor    executor used to upload parts, may be shared by many
+     *                    streams
+     * @return the stream. The upload is completed when the stream is closed
+     */
+    public S3MultipartOutputStream openS3OutputStream(String bucket, String key, int partSize, int concurrency,
+            Executor executor) {
+        return new S3MultipartOutputStream(s3, bucket, key, partSize, concurrency, executor);
+    }
+
     /**
      * Find all file {@link Path}s in the file tree starting from given
      * {@link Path}.
@@ -347,6 +655,18 @@ public class FileHelper {
         logger.trace("Successfully uploaded file {} to {}/{}: {}", localPath, bucket, key, response);
     }
 
+    /**
+     * Delete an object from a S3 bucket.
+     * 
+     * @param bucket bucket containing the object
+     * @param key    key (path) within the bucket
+     */
+    public void deleteFromS3(String bucket, String key) {
+        DeleteObjectRequest request = DeleteObjectRequest.builder().bucket(bucket).key(key).build();
+        s3.deleteObject(request);
+        logger.trace("Deleted {}/{}", bucket, key);
+    }
+
     /**
      * Download data from a S3 bucket.
      * 
@@ -370,6 +690,77 @@ public class FileHelper {
         }
     }
 
+    /**
+     * Determine the size of an object in a S3 bucket.
+     * 
+     * @param bucket bucket containing the object
+     * @param key    key (path) within the bucket
+     * @return size of the object in bytes
+     */
+    public long getS3ObjectSize(String bucket, String key) {
+        HeadObjectRequest request = HeadObjectRequest.builder().bucket(bucket).key(key).build();
+        HeadObjectResponse response = s3.headObject(request);
+        Long contentLength = response.contentLength();
+        return (contentLength != null) ? contentLength : 0;
+    }
+
+    /**
+     * Determine a tag identifying the current version of a file without reading
+     * its content.
+     * 
+     * <p>
+     * For {@code s3:} URLs this is the ETag of the object, for {@code http:} and
+     * {@code https:} URLs the ETag or last modification date returned for a HEAD
+     * request, and for local files the last modification date and size.
+     * </p>
+     * 
+     * <p>
+     * Requests use the connection and socket timeouts of the S3 client, so a
+     * check for changed files cannot block for longer than a regular S3 request.
+     * </p>
+     * 
+     * @param uri URI of the file
+     * @return version tag or <code>empty</code> if it could not be determined
+     */
+    public Optional<String> getVersionTag(URI uri) {
+        try {
+            if ("s3".equalsIgnoreCase(uri.getScheme())) {
+                S3Uri s3Uri = s3.utilities().parseUri(uri);
+                if (!s3Uri.bucket().isPresent() || !s3Uri.key().isPresent()) {
+                    return Optional.empty();
+                }
+                // limit the whole call including retries, the client applies its timeouts per attempt
+                HeadObjectRequest request = HeadObjectRequest.builder().bucket(s3Uri.bucket().get())
+                        .key(s3Uri.key().get())
+                        .overrideConfiguration(AwsRequestOverrideConfiguration.builder()
+                                .apiCallTimeout(connectionTimeout.plus(socketTimeout)).build())
+                        .build();
+                return Optional.ofNullable(s3.headObject(request).eTag());
+            } else if ("file".equalsIgnoreCase(uri.getScheme())) {
+                File f = new File(uri);
+                return f.exists() ? Optional.of(f.lastModified() + "-" + f.length()) : Optional.empty();
+            } else {
+                URLConnection connection = uri.toURL().openConnection();
+                if (!(connection instanceof HttpURLConnection)) {
+                    return Optional.empty();
+                }
+                HttpURLConnection httpConnection = (HttpURLConnection) connection;
+                try {
+                    httpConnection.setConnectTimeout((int) connectionTimeout.toMillis());
+                    httpConnection.setReadTimeout((int) socketTimeout.toMillis());
+                    httpConnection.setRequestMethod("HEAD");
+                    String etag = httpConnection.getHeaderField("ETag");
+                    return Optional.ofNullable(etag != null ? etag : httpConnection.getHeaderField("Last-Modified"));
+                } finally {
+                    httpConnection.disconnect();
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Failed to determine version of {}: {}", uri, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
     public Path ensureFolderExists(Path outputFolder) {
         if (!Files.isDirectory(outputFolder)) {
             try {
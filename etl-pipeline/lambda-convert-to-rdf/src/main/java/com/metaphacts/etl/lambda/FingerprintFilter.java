@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Memory-bounded set of 64-bit fingerprints used to detect duplicates.
+ *
+ * <p>
+ * Fingerprints are kept in an open-addressing hash table in off-heap memory, so
+ * they neither add to the Java heap nor to garbage collection. The table grows
+ * until it would exceed the configured maximum memory. Then all fingerprints
+ * are moved to a Bloom filter of the same size, which can hold many more
+ * entries but may report a fingerprint as seen although it was not (false
+ * positive). Once the estimated false positive rate exceeds the configured
+ * maximum, the filter is saturated and reports every fingerprint as new, so
+ * the rate of wrongly detected duplicates stays bounded.
+ * </p>
+ *
+ * <p>
+ * Memory is reserved from a {@link MemoryBudget} which may be shared by many
+ * filters, e.g. one per output file, so the total stays bounded however many
+ * files are written at the same time. The table does not grow beyond what is
+ * left in the budget, and the Bloom filter takes whatever is available at the
+ * time of the fallback, but at least the size of the table. While growing or
+ * falling back, the previous table is still allocated, so the budget may be
+ * exceeded by the size of one table for a short time.
+ * </p>
+ *
+ * <p>
+ * The off-heap memory is freed and returned to the budget by {@link #close()}.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public class FingerprintFilter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FingerprintFilter.class);
+    private static final double MAX_LOAD = 0.7;
+    private static final int INITIAL_SLOTS = 1 << 12;
+    private static final int MAX_SLOTS = 1 << 30;
+    private static final int MAX_HASHES = 16;
+    private static final long MAX_BLOOM_BYTES = Integer.MAX_VALUE & ~7L;
+    // replacement for fingerprint 0 which marks empty slots
+    private static final long ZERO_FINGERPRINT = 0x9E3779B97F4A7C15L;
+    // used to free direct buffers, null if not accessible
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception e) {
+            logger.debug("Direct buffers are freed by the garbage collector: {}", e.getMessage());
+            unsafe = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final MemoryBudget budget;
+    private final long maxMemory;
+    private final double maxFalsePositiveRate;
+    // bytes currently reserved from the budget
+    private long reserved;
+    private boolean closed = false;
+
+    private ByteBuffer tableBuffer;
+    private LongBuffer table;
+    private int mask;
+    private int size;
+
+    private ByteBuffer bloomBuffer;
+    private LongBuffer bloom;
+    private long bloomBits;
+    private int hashes;
+    private long bloomSize;
+    private long bloomCapacity;
+
+    /**
+     * Create a filter with its own memory budget.
+     *
+     * @param maxMemory            maximum number of bytes to use
+     * @param maxFalsePositiveRate maximum estimated rate of false positives after
+     *                             falling back to a Bloom filter
+     */
+    public FingerprintFilter(long maxMemory, double maxFalsePositiveRate) {
+        this(new MemoryBudget(Math.max(maxMemory, 8L * INITIAL_SLOTS)), maxFalsePositiveRate);
+    }
+
+    /**
+     * Create a filter reserving memory from a shared budget.
+     *
+     * <p>
+     * The initial table is always allocated, even if the budget is exhausted.
+     * </p>
+     *
+     * @param budget               budget to reserve memory from
+     * @param maxFalsePositiveRate maximum estimated rate of false positives after
+     *                             falling back to a Bloom filter
+     */
+    public FingerprintFilter(MemoryBudget budget, double maxFalsePositiveRate) {
+        this.budget = budget;
+        this.maxMemory = Math.max(budget.getCapacity(), 8L * INITIAL_SLOTS);
+        this.maxFalsePositiveRate = maxFalsePositiveRate;
+        budget.reserve(8L * INITIAL_SLOTS);
+        reserved = 8L * INITIAL_SLOTS;
+        allocateTable(INITIAL_SLOTS);
+    }
+
+    /**
+     * Add a fingerprint.
+     *
+     * @param fingerprint fingerprint to add
+     * @return <code>true</code> if the fingerprint was not seen before (or the
+     *         filter is saturated), <code>false</code> if it was (probably) seen
+     *         before
+     */
+    public boolean add(long fingerprint) {
+        if (fingerprint == 0) {
+            fingerprint = ZERO_FINGERPRINT;
+        }
+        if (table != null) {
+            return addToTable(fingerprint);
+        }
+        if (closed) {
+            throw new IllegalStateException("fingerprint filter is closed");
+        }
+        if (isSaturated()) {
+            return true;
+        }
+        return addToBloomFilter(fingerprint);
+    }
+
+    /**
+     * Determine whether duplicates are detected approximately using a Bloom
+     * filter.
+     *
+     * @return <code>true</code> after falling back to the Bloom filter
+     */
+    public boolean isApproximate() {
+        return bloom != null;
+    }
+
+    /**
+     * Determine whether the Bloom filter is too full to reliably detect
+     * duplicates.
+     *
+     * @return <code>true</code> if no more duplicates are detected
+     */
+    public boolean isSaturated() {
+        return bloom != null && bloomSize >= bloomCapacity;
+    }
+
+    /**
+     * Get the number of distinct fingerprints added so far.
+     *
+     * @return number of fingerprints
+     */
+    public long size() {
+        return (table != null) ? size : bloomSize;
+    }
+
+    /**
+     * Get the number of bytes currently reserved from the budget.
+     *
+     * @return number of bytes
+     */
+    public long getReservedMemory() {
+        return reserved;
+    }
+
+    /**
+     * Free the off-heap memory and return it to the budget. The filter must not
+     * be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        free(tableBuffer);
+        free(bloomBuffer);
+        tableBuffer = null;
+        table = null;
+        bloomBuffer = null;
+        bloom = null;
+        budget.release(reserved);
+        reserved = 0;
+    }
+
+    private void allocateTable(int slots) {
+        tableBuffer = ByteBuffer.allocateDirect(slots * 8);
+        table = tableBuffer.asLongBuffer();
+        mask = slots - 1;
+    }
+
+    private boolean addToTable(long fingerprint) {
+        int index = (int) mix(fingerprint) & mask;
+        while (true) {
+            long current = table.get(index);
+            if (current == 0) {
+                break;
+            }
+            if (current == fingerprint) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table.put(index, fingerprint);
+        size++;
+        if (size > (mask + 1) * MAX_LOAD) {
+            grow();
+        }
+        return true;
+    }
+
+    private void grow() {
+        int slots = (mask + 1) * 2;
+        if (slots > MAX_SLOTS || 8L * slots > maxMemory || !budget.tryReserve(8L * slots)) {
+            switchToBloomFilter();
+            return;
+        }
+        reserved += 8L * slots;
+        ByteBuffer previousBuffer = tableBuffer;
+        LongBuffer previous = table;
+        allocateTable(slots);
+        size = 0;
+        for (int i = 0; i < previous.capacity(); i++) {
+            long fingerprint = previous.get(i);
+            if (fingerprint != 0) {
+                addToTable(fingerprint);
+            }
+        }
+        releaseTable(previousBuffer);
+    }
+
+    private void switchToBloomFilter() {
+        long tableBytes = 8L * (mask + 1);
+        long bytes = budget.reserveUpTo(Math.min(maxMemory, MAX_BLOOM_BYTES));
+        if (bytes < tableBytes) {
+            // the memory of the table is returned right after the switch
+            budget.reserve(tableBytes - bytes);
+            bytes = tableBytes;
+        }
+        reserved += bytes;
+        long words = bytes / 8;
+        bloomBuffer = ByteBuffer.allocateDirect((int) (words * 8));
+        bloom = bloomBuffer.asLongBuffer();
+        bloomBits = words * 64;
+        // choose the number of hash functions for the range up to a few times the
+        // current number of entries
+        double bitsPerEntry = (double) bloomBits / (4.0 * size);
+        hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerEntry * Math.log(2))));
+        // number of entries at which the false positive rate exceeds the maximum
+        bloomCapacity = (long) (-(double) bloomBits / hashes
+                * Math.log(1 - Math.pow(maxFalsePositiveRate, 1.0 / hashes)));
+
+        ByteBuffer previousBuffer = tableBuffer;
+        LongBuffer previous = table;
+        tableBuffer = null;
+        table = null;
+        bloomSize = 0;
+        for (int i = 0; i < previous.capacity(); i++) {
+            long fingerprint = previous.get(i);
+            if (fingerprint != 0) {
+                addToBloomFilter(fingerprint);
+            }
+        }
+        releaseTable(previousBuffer);
+    }
+
+    private void releaseTable(ByteBuffer buffer) {
+        free(buffer);
+        budget.release(buffer.capacity());
+        reserved -= buffer.capacity();
+    }
+
+    /**
+     * Free a direct buffer right away instead of waiting for the garbage
+     * collector, which hardly runs for off-heap memory. Falls back to the
+     * garbage collector if the JDK does not allow this.
+     */
+    private static void free(ByteBuffer buffer) {
+        if (buffer == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception e) {
+            logger.debug("Failed to free direct buffer: {}", e.getMessage());
+        }
+    }
+
+    private boolean addToBloomFilter(long fingerprint) {
+        long h1 = fingerprint;
+        long h2 = mix(fingerprint) | 1;
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bloomBits);
+            int word = (int) (bit >>> 6);
+            long value = bloom.get(word);
+            long flag = 1L << (bit & 63);
+            if ((value & flag) == 0) {
+                bloom.put(word, value | flag);
+                added = true;
+            }
+        }
+        if (added) {
+            bloomSize++;
+        }
+        return added;
+    }
+
+    /**
+     * Finalization step of MurmurHash3 to spread the bits of a hash.
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
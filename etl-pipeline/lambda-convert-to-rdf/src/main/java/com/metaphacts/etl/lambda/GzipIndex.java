@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Index of the members of a multi-member gzip file.
+ *
+ * <p>
+ * Gzip files may consist of multiple concatenated gzip members (e.g. files
+ * written using {@link ParallelGZIPOutputStream} or BGZF-style block
+ * compression). Each member can be decompressed independently when its offset
+ * within the file is known. The index records the offset and size of each
+ * member as well as the first line which starts within the member, so members
+ * can be decompressed in parallel.
+ * </p>
+ *
+ * <p>
+ * The index is stored in a sidecar file next to the gzip file with the
+ * additional extension {@value #EXTENSION_INDEX}. It is a text file with one
+ * line per member containing the compressed offset, compressed length,
+ * uncompressed offset, uncompressed length, offset of the first line start
+ * within the uncompressed member and the number of that line.
+ * </p>
+ */
+public class GzipIndex {
+    public static final String EXTENSION_INDEX = ".idx";
+
+    private static final String HEADER = "# gzip index: compressedOffset compressedLength uncompressedOffset "
+            + "uncompressedLength lineOffset firstLine";
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    /**
+     * Single member of a gzip file.
+     */
+    public static class Member {
+        private final long compressedOffset;
+        private final long compressedLength;
+        private final long uncompressedOffset;
+        private final long uncompressedLength;
+        private final long lineOffset;
+        private final long firstLine;
+
+        public Member(long compressedOffset, long compressedLength, long uncompressedOffset, long uncompressedLength,
+                long lineOffset, long firstLine) {
+            this.compressedOffset = compressedOffset;
+            this.compressedLength = compressedLength;
+            this.uncompressedOffset = uncompressedOffset;
+            this.uncompressedLength = uncompressedLength;
+            this.lineOffset = lineOffset;
+            this.firstLine = firstLine;
+        }
+
+        /**
+         * Offset of the member within the gzip file.
+         */
+        public long getCompressedOffset() {
+            return compressedOffset;
+        }
+
+        /**
+         * Size of the member (including gzip header and trailer).
+         */
+        public long getCompressedLength() {
+            return compressedLength;
+        }
+
+        /**
+         * Offset of the member's data within the uncompressed file.
+         */
+        public long getUncompressedOffset() {
+            return uncompressedOffset;
+        }
+
+        public long getUncompressedLength() {
+            return uncompressedLength;
+        }
+
+        /**
+         * Offset of the first line starting in this member, relative to the
+         * uncompressed data of the member. When no line starts in this member, this
+         * is the uncompressed length.
+         */
+        public long getLineOffset() {
+            return lineOffset;
+        }
+
+        /**
+         * Number (zero-based) of the first line starting in this member.
+         */
+        public long getFirstLine() {
+            return firstLine;
+        }
+
+        /**
+         * Determine whether a line starts within this member.
+         */
+        public boolean hasLineStart() {
+            return lineOffset < uncompressedLength;
+        }
+    }
+
+    private final List<Member> members;
+
+    public GzipIndex(List<Member> members) {
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+    }
+
+    public List<Member> getMembers() {
+        return members;
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public Member getMember(int index) {
+        return members.get(index);
+    }
+
+    /**
+     * Get the largest uncompressed size of any member.
+     *
+     * @return largest uncompressed size
+     */
+    public long getMaxUncompressedLength() {
+        return members.stream().mapToLong(Member::getUncompressedLength).max().orElse(0);
+    }
+
+    /**
+     * Determine the path of the index file for a gzip file.
+     *
+     * @param gzipFile path of the gzip file
+     * @return path of the index file
+     */
+    public static Path indexFileFor(Path gzipFile) {
+        return gzipFile.resolveSibling(gzipFile.getFileName().toString() + EXTENSION_INDEX);
+    }
+
+    /**
+     * Load an index file.
+     *
+     * @param indexFile path of the index file
+     * @return the index
+     * @throws IOException in case of errors
+     */
+    public static GzipIndex load(Path indexFile) throws IOException {
+        List<Member> members = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length != 6) {
+                    throw new IOException("invalid gzip index entry in " + indexFile + ": " + line);
+                }
+                try {
+                    members.add(new Member(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                            Long.parseLong(parts[2]), Long.parseLong(parts[3]), Long.parseLong(parts[4]),
+                            Long.parseLong(parts[5])));
+                } catch (NumberFormatException e) {
+                    throw new IOException("invalid gzip index entry in " + indexFile + ": " + line, e);
+                }
+            }
+        }
+        return new GzipIndex(members);
+    }
+
+    /**
+     * Save the index to a file.
+     *
+     * @param indexFile path of the index file
+     * @throws IOException in case of errors
+     */
+    public void save(Path indexFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Member member : members) {
+                writer.write(member.compressedOffset + " " + member.compressedLength + " "
+                        + member.uncompressedOffset + " " + member.uncompressedLength + " " + member.lineOffset + " "
+                        + member.firstLine);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Build the index for a gzip file by decompressing all of its members.
+     *
+     * @param compressed stream providing the content of the gzip file
+     * @return the index
+     * @throws IOException in case of errors
+     */
+    public static GzipIndex build(InputStream compressed) throws IOException {
+        List<Member> members = new ArrayList<>();
+        MemberScanner scanner = new MemberScanner(compressed);
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] output = new byte[64 * 1024];
+            long uncompressedOffset = 0;
+            long lineCount = 0;
+            boolean atLineStart = true;
+            while (scanner.hasMore()) {
+                long compressedOffset = scanner.position();
+                scanner.skipHeader();
+
+                inflater.reset();
+                long uncompressedLength = 0;
+                long lineOffset = -1;
+                long firstLine = lineCount;
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        scanner.feed(inflater);
+                    }
+                    int count;
+                    try {
+                        count = inflater.inflate(output);
+                    } catch (DataFormatException e) {
+                        throw new ZipException("invalid gzip data at offset " + compressedOffset + ": "
+                                + e.getMessage());
+                    }
+                    if (count == 0 && inflater.needsDictionary()) {
+                        throw new ZipException("invalid gzip data at offset " + compressedOffset);
+                    }
+                    for (int i = 0; i < count; i++) {
+                        if (atLineStart) {
+                            if (lineOffset < 0) {
+                                lineOffset = uncompressedLength + i;
+                                firstLine = lineCount;
+                            }
+                            lineCount++;
+                            atLineStart = false;
+                        }
+                        if (output[i] == '\n') {
+                            atLineStart = true;
+                        }
+                    }
+                    uncompressedLength += count;
+                }
+                scanner.consumed(inflater.getRemaining());
+                // skip CRC and size
+                scanner.skip(8);
+
+                if (lineOffset < 0) {
+                    lineOffset = uncompressedLength;
+                }
+                members.add(new Member(compressedOffset, scanner.position() - compressedOffset, uncompressedOffset,
+                        uncompressedLength, lineOffset, firstLine));
+                uncompressedOffset += uncompressedLength;
+            }
+        } finally {
+            inflater.end();
+        }
+        return new GzipIndex(members);
+    }
+
+    /**
+     * Determine the length of the gzip header at the start of a member.
+     *
+     * @param data   compressed data
+     * @param offset offset of the member within the data
+     * @param length number of bytes available
+     * @return length of the header
+     * @throws IOException if the data does not start with a valid gzip header
+     */
+    static int headerLength(byte[] data, int offset, int length) throws IOException {
+        if (length < 10 || ((data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8)) != GZIP_MAGIC
+                || data[offset + 2] != 8) {
+            throw new ZipException("not in gzip format");
+        }
+        int flags = data[offset + 3] & 0xff;
+        int position = 10;
+        if ((flags & FEXTRA) != 0) {
+            position += 2 + ((data[offset + position] & 0xff) | ((data[offset + position + 1] & 0xff) << 8));
+        }
+        if ((flags & FNAME) != 0) {
+            while (data[offset + position++] != 0) {
+            }
+        }
+        if ((flags & FCOMMENT) != 0) {
+            while (data[offset + position++] != 0) {
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            position += 2;
+        }
+        return position;
+    }
+
+    /**
+     * Reads a stream of gzip members while keeping track of the current offset.
+     */
+    private static class MemberScanner {
+        private final InputStream in;
+        private final byte[] buffer = new byte[64 * 1024];
+        private long bufferStart = 0;
+        private int position = 0;
+        private int length = 0;
+
+        MemberScanner(InputStream in) {
+            this.in = in;
+        }
+
+        long position() {
+            return bufferStart + position;
+        }
+
+        boolean hasMore() throws IOException {
+            return position < length || fill();
+        }
+
+        private boolean fill() throws IOException {
+            bufferStart += length;
+            position = 0;
+            length = Math.max(0, in.read(buffer));
+            return length > 0;
+        }
+
+        int read() throws IOException {
+            if (!hasMore()) {
+                throw new EOFException("unexpected end of gzip data");
+            }
+            return buffer[position++] & 0xff;
+        }
+
+        void skip(long count) throws IOException {
+            for (long i = 0; i < count; i++) {
+                read();
+            }
+        }
+
+        void skipHeader() throws IOException {
+            if ((read() | (read() << 8)) != GZIP_MAGIC || read() != 8) {
+                throw new ZipException("not in gzip format at offset " + (position() - 3));
+            }
+            int flags = read();
+            // modification time, extra flags, operating system
+            skip(6);
+            if ((flags & FEXTRA) != 0) {
+                skip(read() | (read() << 8));
+            }
+            if ((flags & FNAME) != 0) {
+                while (read() != 0) {
+                }
+            }
+            if ((flags & FCOMMENT) != 0) {
+                while (read() != 0) {
+                }
+            }
+            if ((flags & FHCRC) != 0) {
+                skip(2);
+            }
+        }
+
+        void feed(Inflater inflater) throws IOException {
+            if (!hasMore()) {
+                throw new EOFException("unexpected end of gzip data");
+            }
+            inflater.setInput(buffer, position, length - position);
+            position = length;
+        }
+
+        void consumed(int remaining) {
+            // give back input which was not used by the inflater
+            position = length - remaining;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command line tool to create {@link GzipIndex} sidecar files for existing gzip
+ * files.
+ *
+ * <p>
+ * Usage: {@code GzipIndexTool [--recompress <blocksize>] <file.gz>...}
+ * </p>
+ *
+ * <p>
+ * Files written with a single gzip member (e.g. by the standard {@code gzip}
+ * tool) can only be decompressed serially. With {@code --recompress} such
+ * files are rewritten as multi-member gzip files with blocks of the provided
+ * (uncompressed) size before the index is created.
+ * </p>
+ */
+public class GzipIndexTool {
+
+    public static void main(String[] args) throws IOException {
+        int recompressBlockSize = 0;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--recompress".equals(args[i]) && i + 1 < args.length) {
+                recompressBlockSize = Integer.parseInt(args[++i]);
+            } else {
+                files.add(Path.of(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: GzipIndexTool [--recompress <blocksize>] <file.gz>...");
+            System.exit(1);
+        }
+
+        for (Path file : files) {
+            if (recompressBlockSize > 0) {
+                recompress(file, recompressBlockSize);
+            }
+            GzipIndex index;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                index = GzipIndex.build(in);
+            }
+            Path indexFile = GzipIndex.indexFileFor(file);
+            index.save(indexFile);
+            System.out.println("Indexed " + file + ": " + index.size() + " members, written to " + indexFile);
+        }
+    }
+
+    private static void recompress(Path file, int blockSize) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new NamedThreadFactory("gzip"));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file));
+                OutputStream out = new ParallelGZIPOutputStream(Files.newOutputStream(tempFile), executor,
+                        blockSize, Deflater.DEFAULT_COMPRESSION, Runtime.getRuntime().availableProcessors() + 1)) {
+            in.transferTo(out);
+        } finally {
+            executor.shutdownNow();
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.base.CoreDatatype;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * ValueFactory which returns canonical instances for IRIs and literals created
+ * from strings.
+ *
+ * <p>
+ * Predicates, classes and enumerated values recur for most records, so sharing
+ * a single instance per value reduces the memory used for mapping results and
+ * lets equality checks succeed on identity. Instances are shared across all
+ * factories using the same {@link ValueCache}.
+ * </p>
+ *
+ * <p>
+ * This factory can be used as delegate of the validating value factories, in
+ * which case only valid literals are interned.
+ * </p>
+ */
+public class InterningValueFactory extends SimpleValueFactory {
+    private final ValueCache cache;
+
+    public InterningValueFactory(ValueCache cache) {
+        this.cache = cache;
+    }
+
+    public ValueCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public IRI createIRI(String iri) {
+        return cache.intern(super.createIRI(iri));
+    }
+
+    @Override
+    public IRI createIRI(String namespace, String localName) {
+        return cache.intern(super.createIRI(namespace, localName));
+    }
+
+    @Override
+    public Literal createLiteral(String value) {
+        return cache.intern(super.createLiteral(value));
+    }
+
+    @Override
+    public Literal createLiteral(String value, String language) {
+        return cache.intern(super.createLiteral(value, language));
+    }
+
+    @Override
+    public Literal createLiteral(String value, IRI datatype) {
+        return cache.intern(super.createLiteral(value, datatype));
+    }
+
+    @Override
+    public Literal createLiteral(String value, CoreDatatype datatype) {
+        return cache.intern(super.createLiteral(value, datatype));
+    }
+
+    @Override
+    public Literal createLiteral(String value, IRI datatype, CoreDatatype coreDatatype) {
+        return cache.intern(super.createLiteral(value, datatype, coreDatatype));
+    }
+}
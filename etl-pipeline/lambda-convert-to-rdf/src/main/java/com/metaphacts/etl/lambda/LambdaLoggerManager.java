@@ -4,6 +4,7 @@
 package com.metaphacts.etl.lambda;
 
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 import com.amazonaws.services.lambda.runtime.LambdaLogger;
 
@@ -12,10 +13,16 @@ import jakarta.enterprise.context.ApplicationScoped;
 /**
  * Helper class to manage the {@link LambdaLogger} using a thread-local variable
  * and make it accessable where required.
+ * 
+ * <p>
+ * The logger is not inherited by child threads, as pooled worker threads
+ * outlive the task which created them. Use {@link #propagate(Callable)} to
+ * hand the logger of the current thread over to a worker thread.
+ * </p>
  */
 @ApplicationScoped
 public class LambdaLoggerManager {
-    private final InheritableThreadLocal<LambdaLogger> lambdaLoggerTL = new InheritableThreadLocal<>();
+    private final ThreadLocal<LambdaLogger> lambdaLoggerTL = new ThreadLocal<>();
 
     public LambdaLoggerManager() {
     }
@@ -45,4 +52,29 @@ public class LambdaLoggerManager {
     public Optional<LambdaLogger> get() {
         return Optional.ofNullable(lambdaLoggerTL.get());
     }
+
+    /**
+     * Wrap a {@link Callable} so that it runs with the logger of the current
+     * thread, regardless of the thread it is executed on.
+     * 
+     * @param <T>      result type
+     * @param callable callable to wrap
+     * @return wrapped callable
+     */
+    public <T> Callable<T> propagate(Callable<T> callable) {
+        final LambdaLogger logger = lambdaLoggerTL.get();
+        return () -> {
+            LambdaLogger previous = lambdaLoggerTL.get();
+            lambdaLoggerTL.set(logger);
+            try {
+                return callable.call();
+            } finally {
+                if (previous != null) {
+                    lambdaLoggerTL.set(previous);
+                } else {
+                    lambdaLoggerTL.remove();
+                }
+            }
+        };
+    }
 }
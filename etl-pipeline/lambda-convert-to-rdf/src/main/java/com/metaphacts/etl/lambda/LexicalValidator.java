@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.base.CoreDatatype;
+
+/**
+ * Fast check of the lexical form of literals of common XSD datatypes.
+ *
+ * <p>
+ * The check is conservative: a value is only reported as {@link Result#VALID}
+ * if it has a simple lexical form which is valid for the datatype, and only as
+ * {@link Result#INVALID} if it is empty or contains characters which cannot
+ * occur in any lexical form of the datatype. All other values are reported as
+ * {@link Result#UNKNOWN} and need to be checked with the full validation of
+ * RDF4J, so the outcome is the same as with the full validation alone.
+ * </p>
+ *
+ * <p>
+ * The checks do not allocate and do not throw exceptions, which makes
+ * rejecting dirty values (e.g. a date like {@code 2019-xx}) cheap.
+ * </p>
+ */
+public final class LexicalValidator {
+
+    /**
+     * Result of a check.
+     */
+    public enum Result {
+        /** the value is valid for the datatype */
+        VALID,
+        /** the value is invalid for the datatype */
+        INVALID,
+        /** the value needs to be checked with the full validation */
+        UNKNOWN
+    }
+
+    private LexicalValidator() {
+    }
+
+    /**
+     * Check the lexical form of a literal.
+     *
+     * @param label    label of the literal
+     * @param datatype datatype of the literal
+     * @return result of the check
+     */
+    public static Result check(String label, IRI datatype) {
+        if (datatype == null) {
+            return Result.UNKNOWN;
+        }
+        return check(label, CoreDatatype.from(datatype));
+    }
+
+    /**
+     * Check the lexical form of a literal.
+     *
+     * @param label    label of the literal
+     * @param datatype datatype of the literal
+     * @return result of the check
+     */
+    public static Result check(String label, CoreDatatype datatype) {
+        if (label == null || datatype == null || !datatype.isXSDDatatype()) {
+            return Result.UNKNOWN;
+        }
+        switch (datatype.asXSDDatatype().get()) {
+        case INTEGER:
+            return checkInteger(label, Long.MIN_VALUE, Long.MAX_VALUE, false);
+        case LONG:
+            return checkInteger(label, Long.MIN_VALUE, Long.MAX_VALUE, true);
+        case INT:
+            return checkInteger(label, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+        case SHORT:
+            return checkInteger(label, Short.MIN_VALUE, Short.MAX_VALUE, true);
+        case BYTE:
+            return checkInteger(label, Byte.MIN_VALUE, Byte.MAX_VALUE, true);
+        case DECIMAL:
+            return checkDecimal(label);
+        case DOUBLE:
+        case FLOAT:
+            return checkFloatingPoint(label);
+        case BOOLEAN:
+            return checkBoolean(label);
+        case DATE:
+            return checkDate(label);
+        case DATETIME:
+            return checkDateTime(label);
+        default:
+            return Result.UNKNOWN;
+        }
+    }
+
+    /**
+     * Check an integer value.
+     *
+     * @param bounded <code>true</code> if the range of the datatype is limited to
+     *                <code>min</code> and <code>max</code>
+     */
+    static Result checkInteger(String label, long min, long max, boolean bounded) {
+        int length = label.length();
+        int start = (length > 0 && label.charAt(0) == '-') ? 1 : 0;
+        if (start < length && digits(label, start, length) == length) {
+            // skip leading zeros to determine the magnitude
+            int significant = start;
+            while (significant < length - 1 && label.charAt(significant) == '0') {
+                significant++;
+            }
+            if (length - significant > 18) {
+                // may exceed the range of long
+                return bounded ? Result.UNKNOWN : Result.VALID;
+            }
+            long value = 0;
+            for (int i = significant; i < length; i++) {
+                value = value * 10 + (label.charAt(i) - '0');
+            }
+            if (start == 1) {
+                value = -value;
+            }
+            return (value >= min && value <= max) ? Result.VALID : Result.INVALID;
+        }
+        return checkCharacters(label, "+-");
+    }
+
+    static Result checkDecimal(String label) {
+        int length = label.length();
+        int start = (length > 0 && label.charAt(0) == '-') ? 1 : 0;
+        int end = digits(label, start, length);
+        if (end > start) {
+            if (end == length) {
+                return Result.VALID;
+            }
+            if (label.charAt(end) == '.' && end + 1 < length && digits(label, end + 1, length) == length) {
+                return Result.VALID;
+            }
+        }
+        return checkCharacters(label, "+-.");
+    }
+
+    static Result checkFloatingPoint(String label) {
+        int length = label.length();
+        int start = (length > 0 && label.charAt(0) == '-') ? 1 : 0;
+        int end = digits(label, start, length);
+        if (end > start) {
+            if (end < length && label.charAt(end) == '.') {
+                int fractionEnd = digits(label, end + 1, length);
+                end = (fractionEnd > end + 1) ? fractionEnd : -1;
+            }
+            if (end > 0 && end < length && (label.charAt(end) == 'e' || label.charAt(end) == 'E')) {
+                int exponentStart = end + 1;
+                if (exponentStart < length && label.charAt(exponentStart) == '-') {
+                    exponentStart++;
+                }
+                int exponentEnd = digits(label, exponentStart, length);
+                // large exponents may exceed the range of the datatype
+                end = (exponentEnd > exponentStart && exponentEnd - exponentStart <= 2) ? exponentEnd : -1;
+            }
+            if (end == length) {
+                return Result.VALID;
+            }
+        }
+        return checkCharacters(label, "+-.eEINFa");
+    }
+
+    static Result checkBoolean(String label) {
+        if (label.equals("true") || label.equals("false") || label.equals("1") || label.equals("0")) {
+            return Result.VALID;
+        }
+        String value = label.strip();
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false") || value.equals("1")
+                || value.equals("0")) {
+            return Result.UNKNOWN;
+        }
+        return Result.INVALID;
+    }
+
+    static Result checkDate(String label) {
+        int length = label.length();
+        if (length >= 10 && isDate(label, 0) && isTimezone(label, 10)) {
+            return Result.VALID;
+        }
+        return checkCharacters(label, "+-:TZ.");
+    }
+
+    static Result checkDateTime(String label) {
+        int length = label.length();
+        if (length >= 19 && isDate(label, 0) && label.charAt(10) == 'T' && isTime(label, 11)) {
+            int end = 19;
+            if (end < length && label.charAt(end) == '.') {
+                int fractionEnd = digits(label, end + 1, length);
+                end = (fractionEnd > end + 1) ? fractionEnd : -1;
+            }
+            if (end > 0 && isTimezone(label, end)) {
+                return Result.VALID;
+            }
+        }
+        return checkCharacters(label, "+-:TZ.");
+    }
+
+    /**
+     * Check for a date of the form <code>YYYY-MM-DD</code> with a year between 1
+     * and 9999.
+     */
+    private static boolean isDate(String label, int offset) {
+        if (digits(label, offset, offset + 4) != offset + 4 || label.charAt(offset + 4) != '-'
+                || digits(label, offset + 5, offset + 7) != offset + 7 || label.charAt(offset + 7) != '-'
+                || digits(label, offset + 8, offset + 10) != offset + 10) {
+            return false;
+        }
+        int year = number(label, offset, 4);
+        int month = number(label, offset + 5, 2);
+        int day = number(label, offset + 8, 2);
+        return year > 0 && month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month);
+    }
+
+    /**
+     * Check for a time of the form <code>hh:mm:ss</code> before 24:00:00.
+     */
+    private static boolean isTime(String label, int offset) {
+        if (digits(label, offset, offset + 2) != offset + 2 || label.charAt(offset + 2) != ':'
+                || digits(label, offset + 3, offset + 5) != offset + 5 || label.charAt(offset + 5) != ':'
+                || digits(label, offset + 6, offset + 8) != offset + 8) {
+            return false;
+        }
+        return number(label, offset, 2) < 24 && number(label, offset + 3, 2) < 60 && number(label, offset + 6, 2) < 60;
+    }
+
+    /**
+     * Check for an optional timezone (<code>Z</code> or <code>+hh:mm</code>)
+     * which ends the value.
+     */
+    private static boolean isTimezone(String label, int offset) {
+        int length = label.length();
+        if (offset == length) {
+            return true;
+        }
+        if (label.charAt(offset) == 'Z') {
+            return offset + 1 == length;
+        }
+        if (offset + 6 != length || (label.charAt(offset) != '+' && label.charAt(offset) != '-')
+                || digits(label, offset + 1, offset + 3) != offset + 3 || label.charAt(offset + 3) != ':'
+                || digits(label, offset + 4, offset + 6) != offset + 6) {
+            return false;
+        }
+        int hours = number(label, offset + 1, 2);
+        int minutes = number(label, offset + 4, 2);
+        return (hours < 14 && minutes < 60) || (hours == 14 && minutes == 0);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+        case 2:
+            boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leapYear ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    /**
+     * Determine the end of a sequence of ASCII digits.
+     *
+     * @return index of the first character after the digits or <code>end</code>
+     */
+    private static int digits(String label, int start, int end) {
+        int i = start;
+        while (i < end && i < label.length() && isDigit(label.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int number(String label, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = value * 10 + (label.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Reject empty values and values containing characters other than digits,
+     * whitespace and the provided characters.
+     */
+    private static Result checkCharacters(String label, String allowed) {
+        boolean hasDigit = false;
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (isDigit(c)) {
+                hasDigit = true;
+            } else if (c != ' ' && c != '\t' && c != '\n' && c != '\r' && allowed.indexOf(c) < 0) {
+                return Result.INVALID;
+            }
+        }
+        // values without digits are only valid for special floating point values
+        return (hasDigit || allowed.indexOf('N') >= 0) && !label.isEmpty() ? Result.UNKNOWN : Result.INVALID;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} providing all lines of a source which start within a
+ * {@link ByteRange}.
+ *
+ * <p>
+ * The source stream has to start at {@link ByteRange#getReadOffset()}. Data up
+ * to the first line start within the range is skipped, and the line crossing
+ * the end of the range is read completely.
+ * </p>
+ */
+public class LineRangeInputStream extends InputStream {
+    private final InputStream source;
+    private final ByteRange range;
+
+    // offset of the next byte read from the source
+    private long position;
+    private boolean atLineStart;
+    private boolean started = false;
+    private boolean finished = false;
+
+    /**
+     * Create a stream for a byte range.
+     * 
+     * @param source source stream, starting at {@link ByteRange#getReadOffset()}
+     * @param range  range to read
+     */
+    public LineRangeInputStream(InputStream source, ByteRange range) {
+        this.source = source;
+        this.range = range;
+        this.position = range.getReadOffset();
+        this.atLineStart = (range.getStart() == 0);
+    }
+
+    /**
+     * Skip data up to the first line starting within the range.
+     * 
+     * @throws IOException in case of errors
+     */
+    private void skipToStart() throws IOException {
+        if (started) {
+            return;
+        }
+        started = true;
+        while (!atLineStart || position < range.getStart()) {
+            int c = source.read();
+            if (c < 0) {
+                finished = true;
+                return;
+            }
+            position++;
+            atLineStart = (c == '\n');
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int count = read(b, 0, 1);
+        return (count < 0) ? -1 : (b[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        skipToStart();
+        if (finished) {
+            return -1;
+        }
+        if (position >= range.getEnd()) {
+            if (atLineStart) {
+                // next line belongs to the next range
+                finished = true;
+                return -1;
+            }
+            // complete the line crossing the end of the range
+            int count = 0;
+            while (count < len) {
+                int c = source.read();
+                if (c < 0) {
+                    finished = true;
+                    break;
+                }
+                b[off + count++] = (byte) c;
+                position++;
+                if (c == '\n') {
+                    atLineStart = true;
+                    break;
+                }
+            }
+            return (count == 0) ? -1 : count;
+        }
+
+        int count = source.read(b, off, (int) Math.min(len, range.getEnd() - position));
+        if (count < 0) {
+            finished = true;
+            return -1;
+        }
+        position += count;
+        if (count > 0) {
+            atLineStart = (b[off + count - 1] == '\n');
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        source.close();
+    }
+}
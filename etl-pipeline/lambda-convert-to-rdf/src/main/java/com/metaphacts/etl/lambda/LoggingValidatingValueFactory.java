@@ -5,7 +5,9 @@ package com.metaphacts.etl.lambda;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.base.CoreDatatype;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.impl.ValidatingValueFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,35 +15,136 @@ import org.slf4j.LoggerFactory;
 /**
  * {@link ValidatingValueFactory} which logs issues.
  * 
+ * <p>
+ * The lexical form of literals of common XSD datatypes is checked with the
+ * {@link LexicalValidator} first, so for most literals the decision whether
+ * they are valid does not require catching an exception. Invalid literals are
+ * passed to {@link #handleInvalid(String, IRI, CoreDatatype, RuntimeException)}
+ * which can be overridden to return a replacement value.
+ * </p>
+ * 
  * @author Wolfgang Schell <ws@metaphacts.com>
  */
 public class LoggingValidatingValueFactory extends ValidatingValueFactory {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
+    private final ValueFactory delegate;
+    private ConversionDiagnostics diagnostics;
+    private String mappingId;
+
+    public LoggingValidatingValueFactory() {
+        this(SimpleValueFactory.getInstance());
+    }
+
+    /**
+     * Create a factory which creates values with the provided factory after
+     * validating them.
+     * 
+     * @param delegate factory for valid values
+     */
+    public LoggingValidatingValueFactory(ValueFactory delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    /**
+     * Report invalid values to the provided diagnostics instead of logging each
+     * of them.
+     * 
+     * @param diagnostics diagnostics to report to
+     * @param mappingId   id of the mapping using this factory
+     */
+    public void setDiagnostics(ConversionDiagnostics diagnostics, String mappingId) {
+        this.diagnostics = diagnostics;
+        this.mappingId = mappingId;
+    }
+
     public Literal createLiteral(String label, IRI datatype) {
-        try {
-            return super.createLiteral(label, datatype);
-        } catch (RuntimeException e) {
-            warn("Invalid value for datatype " + datatype + ": '" + label + "', error: " + e.getMessage());
-            throw e;
+        switch (LexicalValidator.check(label, datatype)) {
+        case VALID:
+            return delegate.createLiteral(label, datatype);
+        case INVALID:
+            return handleInvalid(label, datatype, null, null);
+        default:
+            try {
+                return super.createLiteral(label, datatype);
+            } catch (RuntimeException e) {
+                return handleInvalid(label, datatype, null, e);
+            }
         }
     }
 
     public Literal createLiteral(String label, CoreDatatype datatype) {
-        try {
-            return super.createLiteral(label, datatype);
-        } catch (RuntimeException e) {
-            warn("Invalid value for datatype " + datatype + ": '" + label + "', error: " + e.getMessage());
-            throw e;
+        switch (LexicalValidator.check(label, datatype)) {
+        case VALID:
+            return delegate.createLiteral(label, datatype);
+        case INVALID:
+            return handleInvalid(label, null, datatype, null);
+        default:
+            try {
+                return super.createLiteral(label, datatype);
+            } catch (RuntimeException e) {
+                return handleInvalid(label, null, datatype, e);
+            }
         }
     }
 
     public Literal createLiteral(String label, IRI datatype, CoreDatatype coreDatatype) {
-        try {
-            return super.createLiteral(label, datatype, coreDatatype);
-        } catch (RuntimeException e) {
-            warn("Invalid value for datatype " + datatype + ": '" + label + "', error: " + e.getMessage());
-            throw e;
+        LexicalValidator.Result result = (datatype != null) ? LexicalValidator.check(label, datatype)
+                : LexicalValidator.check(label, coreDatatype);
+        switch (result) {
+        case VALID:
+            return delegate.createLiteral(label, datatype, coreDatatype);
+        case INVALID:
+            return handleInvalid(label, datatype, coreDatatype, null);
+        default:
+            try {
+                return super.createLiteral(label, datatype, coreDatatype);
+            } catch (RuntimeException e) {
+                return handleInvalid(label, datatype, coreDatatype, e);
+            }
+        }
+    }
+
+    /**
+     * Handle a literal with a value which is invalid for its datatype.
+     * 
+     * <p>
+     * This implementation logs a warning and fails.
+     * </p>
+     * 
+     * @param label        label of the literal
+     * @param datatype     datatype of the literal, may be <code>null</code> if
+     *                     <code>coreDatatype</code> is provided
+     * @param coreDatatype core datatype of the literal, may be <code>null</code>
+     * @param error        error reported by the full validation or
+     *                     <code>null</code> if the value was rejected by the
+     *                     {@link LexicalValidator}
+     * @return replacement value
+     * @throws RuntimeException if there is no replacement value
+     */
+    protected Literal handleInvalid(String label, IRI datatype, CoreDatatype coreDatatype, RuntimeException error) {
+        if (error == null) {
+            error = new IllegalArgumentException("Not a valid literal value");
+        }
+        reportInvalid(label, datatype, coreDatatype, "error: " + error.getMessage());
+        throw error;
+    }
+
+    /**
+     * Report an invalid value, either to the diagnostics or as a warning.
+     * 
+     * @param label        label of the literal
+     * @param datatype     datatype of the literal, may be <code>null</code>
+     * @param coreDatatype core datatype of the literal, may be <code>null</code>
+     * @param action       how the value was handled
+     */
+    protected void reportInvalid(String label, IRI datatype, CoreDatatype coreDatatype, String action) {
+        Object type = (datatype != null) ? datatype : coreDatatype;
+        if (diagnostics != null) {
+            diagnostics.report(mappingId, String.valueOf(type), "invalid value, " + action, label);
+        } else {
+            warn("Invalid value for datatype " + type + ": '" + label + "', " + action);
         }
     }
 
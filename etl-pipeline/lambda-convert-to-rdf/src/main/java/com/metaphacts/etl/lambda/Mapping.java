@@ -3,30 +3,73 @@
  */
 package com.metaphacts.etl.lambda;
 
+import java.io.IOException;
 import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import io.carml.engine.rdf.RdfRmlMapper;
+import software.amazon.awssdk.core.exception.SdkException;
 
 /**
  * Holder for a RDF mapper for a certain type.
  * 
+ * <p>
+ * The mapper may be provided up front or built on first use with a loader.
+ * Only a single thread runs the loader, other threads requesting the mapper
+ * wait for it to finish.
+ * </p>
+ * 
+ * <p>
+ * If the mapping files cannot be parsed or the mapper cannot be built, the
+ * error is permanent and reported for each further request. Errors reading the
+ * mapping files (see {@link #isTransientError(Throwable)}) are reported until
+ * a backoff delay has passed, then loading is tried again. The delay doubles
+ * with each failed attempt.
+ * </p>
+ * 
  * @author Wolfgang Schell <ws@metaphacts.com>
  *
  */
 public class Mapping {
+    private static final long INITIAL_RETRY_DELAY = 1000;
+    private static final long MAX_RETRY_DELAY = 5 * 60 * 1000;
 
     private final String type;
-    private final Optional<RdfRmlMapper> mapper;
+    private volatile Optional<RdfRmlMapper> mapper;
+    private Supplier<Optional<RdfRmlMapper>> mapperLoader;
+    private RuntimeException loadError;
+    private boolean loadErrorPermanent = false;
+    private long retryDelay = 0;
+    private long retryTime = 0;
+    // current time in milliseconds, replaced in tests
+    LongSupplier clock = System::currentTimeMillis;
     private MappingSpec mappingSpec;
     private Pattern includePattern;
     private Pattern excludePattern;
     private boolean processLines = false;
 
     public Mapping(MappingSpec spec, Optional<RdfRmlMapper> mapper) {
+        this(spec, mapper, null);
+    }
+
+    /**
+     * Create a mapping whose mapper is built on first use.
+     * 
+     * @param spec         mapping spec
+     * @param mapperLoader loader for the mapper, called again only after a
+     *                     transient error
+     */
+    public Mapping(MappingSpec spec, Supplier<Optional<RdfRmlMapper>> mapperLoader) {
+        this(spec, null, mapperLoader);
+    }
+
+    private Mapping(MappingSpec spec, Optional<RdfRmlMapper> mapper, Supplier<Optional<RdfRmlMapper>> mapperLoader) {
         this.type = spec.getId();
         this.mappingSpec = spec;
         this.mapper = mapper;
+        this.mapperLoader = mapperLoader;
 
         includePattern = parsePattern("include", spec.getSourceFileIncludePattern());
         excludePattern = parsePattern("exclude", spec.getSourceFileExcludePattern());
@@ -52,8 +95,67 @@ public class Mapping {
         return type;
     }
 
+    /**
+     * Get the mapper, building it if this has not been done yet.
+     * 
+     * @return mapper or an empty optional if the mapping has no RDF mappings
+     * @throws RuntimeException if building the mapper failed, now or in a
+     *                          previous attempt which is not retried yet
+     */
     public Optional<RdfRmlMapper> getMapper() {
-        return mapper;
+        Optional<RdfRmlMapper> currentMapper = mapper;
+        if (currentMapper != null) {
+            return currentMapper;
+        }
+        synchronized (this) {
+            if (mapper == null) {
+                if (loadError != null && (loadErrorPermanent || clock.getAsLong() < retryTime)) {
+                    throw loadError;
+                }
+                try {
+                    mapper = mapperLoader.get();
+                    mapperLoader = null;
+                    loadError = null;
+                } catch (RuntimeException e) {
+                    loadError = e;
+                    if (isTransientError(e)) {
+                        retryDelay = (retryDelay == 0) ? INITIAL_RETRY_DELAY
+                                : Math.min(2 * retryDelay, MAX_RETRY_DELAY);
+                        retryTime = clock.getAsLong() + retryDelay;
+                    } else {
+                        loadErrorPermanent = true;
+                    }
+                    throw e;
+                }
+            }
+            return mapper;
+        }
+    }
+
+    /**
+     * Determine whether an error loading a mapper may go away when trying
+     * again, i.e. it was caused by reading a mapping file rather than by its
+     * content.
+     * 
+     * @param error error thrown while loading a mapper
+     * @return <code>true</code> if the error was caused by an I/O or S3 error
+     */
+    static boolean isTransientError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof SdkException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine whether the mapper is available without building it.
+     * 
+     * @return <code>true</code> if the mapper has been built
+     */
+    public boolean isLoaded() {
+        return mapper != null;
     }
 
     public void setProcessLines(boolean processLines) {
@@ -64,6 +166,25 @@ public class Mapping {
         return processLines;
     }
 
+    /**
+     * Get the compiled include pattern.
+     * 
+     * @return include pattern or <code>null</code> if all files are included
+     */
+    public Pattern getIncludePattern() {
+        return includePattern;
+    }
+
+    /**
+     * Determine whether a file is excluded by the exclude pattern.
+     * 
+     * @param fileName name of the file
+     * @return <code>true</code> if the file is excluded
+     */
+    public boolean isExcluded(String fileName) {
+        return (excludePattern != null) && excludePattern.matcher(fileName).matches();
+    }
+
     public boolean matches(String fileName) {
         if (includePattern != null) {
             if (!includePattern.matcher(fileName).matches()) {
@@ -3,18 +3,33 @@
  */
 package com.metaphacts.etl.lambda;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -42,7 +57,6 @@ import io.carml.engine.rdf.RdfRmlMapper;
 import io.carml.logicalsourceresolver.CsvResolver;
 import io.carml.logicalsourceresolver.JsonPathResolver;
 import io.carml.logicalsourceresolver.XPathResolver;
-import io.carml.model.TriplesMap;
 import io.carml.util.ModelSerializer;
 import io.carml.util.RmlMappingLoader;
 import io.carml.util.RmlNamespaces;
@@ -50,6 +64,7 @@ import io.carml.vocab.Carml;
 import io.carml.vocab.Rdf;
 import io.carml.vocab.Rml;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
@@ -63,23 +78,58 @@ public class MappingManager {
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
     private final Map<String, Mapping> mappings = new TreeMap<>();
+    private volatile MappingMatcher matcher;
 
     private Model namespaces = new TreeModel();
 
     // see LiteralConversionMode for allowed values
     @ConfigProperty(name = "mappings.literalConversionMode", defaultValue = "validateAndFallbackToPlaceholder")
     String mappingsLiteralConversionMode;
+    // memory for canonical instances of recurring IRIs and literals, 0 to disable interning
+    @ConfigProperty(name = "mappings.intern.memory", defaultValue = "33554432")
+    long mappingsInternMemory;
+    // maximum length of interned IRIs and literals
+    @ConfigProperty(name = "mappings.intern.maxlength", defaultValue = "256")
+    int mappingsInternMaxLength;
+
+    // build mappers when the first matching file is processed instead of at startup
+    @ConfigProperty(name = "mappings.lazy", defaultValue = "true")
+    boolean mappingsLazy;
+    // ids of mappings to build at startup even when loading lazily, * for all
+    @ConfigProperty(name = "mappings.eager")
+    Optional<List<String>> mappingsEager;
+    // number of threads for loading mapping files and building mappers at startup
+    @ConfigProperty(name = "mappings.load.concurrency", defaultValue = "8")
+    int mappingsLoadConcurrency;
+    // use the mapping snapshot stored next to the mapping config if it is up to date
+    @ConfigProperty(name = "mappings.snapshot", defaultValue = "true")
+    boolean mappingsSnapshot;
+    // minimum number of seconds between checks for changed mapping files, 0 to disable reloading
+    @ConfigProperty(name = "mappings.reload.interval", defaultValue = "0")
+    long mappingsReloadInterval;
+
+    private ValueCache valueCache;
+    private volatile ReloadState reloadState;
+    private volatile long lastReloadCheck;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private ExecutorService reloadExecutor;
 
     @Inject
     FileHelper fileHelper;
     @Inject
     LambdaLoggerManager lambdaLoggerManager;
+    @Inject
+    ConversionDiagnostics diagnostics;
 
     public MappingManager() {
     }
 
     @PostConstruct
     protected void init() throws IOException {
+        if (mappingsInternMemory > 0) {
+            valueCache = new ValueCache(mappingsInternMemory, mappingsInternMaxLength);
+        }
+
         // load namespace declarations to be used for pretty printing
         try (InputStream namespaceStream = getClass().getResourceAsStream("/namespaces.ttl")) {
             namespaces = Rio.parse(namespaceStream, RDFFormat.TURTLE);
@@ -87,6 +137,26 @@ public class MappingManager {
             logger.warn("failed to load namespaces from {}: {}", e.getMessage());
             logger.debug("Details: ", e);
         }
+
+        if (mappingsReloadInterval > 0) {
+            reloadExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("mapping-reload"));
+        }
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the cache of canonical values shared by all mappers.
+     * 
+     * @return value cache or an empty optional if interning is disabled
+     */
+    public Optional<ValueCache> getValueCache() {
+        return Optional.ofNullable(valueCache);
     }
 
     /**
@@ -99,6 +169,7 @@ public class MappingManager {
     }
 
     public void prepareMappers(URI mappingConfigURI, Path inputDir) {
+        long start = System.currentTimeMillis();
         String m = String.format("Loading mapping config from path %s ...", mappingConfigURI);
         logger.debug(m);
         lambdaLoggerManager.get().ifPresent(lambdaLogger -> lambdaLogger.log(m));
@@ -110,65 +181,567 @@ public class MappingManager {
             return;
         }
 
-        // iterate over all mapping specs
         MappingConfig mappingConfig = mappingConfigHolder.get();
-        for (MappingSpec spec : mappingConfig.getMappings()) {
+        if (mappingsReloadInterval > 0) {
+            // determine versions before loading, so changes while loading are detected
+            reloadState = new ReloadState(mappingConfigURI, inputDir, mappingConfig,
+                    getVersionTags(mappingConfigURI, mappingConfig), Set.of());
+            lastReloadCheck = System.currentTimeMillis();
+        }
+        MappingSnapshot snapshot = mappingsSnapshot ? loadSnapshot(mappingConfigURI, mappingConfig).orElse(null)
+                : null;
+        int eagerCount = createMappings(mappingConfig.getMappings(), mappingConfigURI, inputDir, snapshot,
+                this::putMapping);
+
+        String message = String.format("Prepared %d mappings (%d loaded eagerly) in %d ms",
+                mappingConfig.getMappings().size(), eagerCount, System.currentTimeMillis() - start);
+        logger.info(message);
+        lambdaLoggerManager.get().ifPresent(lambdaLogger -> lambdaLogger.log(message));
+    }
+
+    /**
+     * Create the mappings for the provided specs.
+     * 
+     * <p>
+     * The mappings are passed to the target in the order of the specs, after all
+     * eager mappers have been built, so a later spec with the same id replaces
+     * an earlier one regardless of which mapper was built first.
+     * </p>
+     * 
+     * @param specs            mapping specs
+     * @param mappingConfigURI URI of the mapping config to resolve mapping files
+     *                         against
+     * @param inputDir         directory for relative sources
+     * @param snapshot         snapshot of the mapping config or
+     *                         <code>null</code>, also used by mappers built
+     *                         lazily
+     * @param target           consumer of the created mappings
+     * @return number of mappers built eagerly
+     */
+    private int createMappings(List<MappingSpec> specs, URI mappingConfigURI, Path inputDir,
+            MappingSnapshot snapshot, Consumer<Mapping> target) {
+        Set<String> eagerIds = mappingsEager.orElse(List.of()).stream().map(String::toLowerCase)
+                .collect(Collectors.toSet());
+        Mapping[] created = new Mapping[specs.size()];
+        List<MappingSpec> eagerSpecs = new ArrayList<>();
+        List<Integer> eagerIndexes = new ArrayList<>();
+        for (int i = 0; i < specs.size(); i++) {
+            MappingSpec spec = specs.get(i);
             try {
-                Model mappingModel = null;
                 List<String> mappingFiles = spec.getMappingFiles();
-                if (mappingFiles != null && mappingFiles.size() > 0) {
-                    logger.info("creating mappings for {} from {}", spec.getId(), String.join(", ", mappingFiles));
-                    for (String mappingFile : mappingFiles) {
-                        URI mappingFileURI = mappingConfigURI.resolve(mappingFile);
-                        logger.debug("loading mappings for {} from {}", spec.getId(), mappingFileURI);
-                        try {
-                            Model model = loadModel(mappingFileURI);
-                            if (mappingModel == null) {
-                                // first mapping file
-                                mappingModel = model;
-                            } else {
-                                // additional files, merge into aggregated mappings model
-                                mappingModel.addAll(model);
-                            }
-                        } catch (Exception e) {
-                            logger.warn("failed to load mappings from {}: {}", mappingFileURI, e.getMessage());
-                            logger.debug("Details: ", e);
-                            throw e;
-                        }
-                    }
-                    createMapping(spec, mappingModel, inputDir);
-                }
-                else {
+                if (mappingFiles == null || mappingFiles.isEmpty()) {
                     logger.info("creating mappings for {} with processsing hints {}", spec.getId(),
                             String.join(", ", spec.getProcessingHints()));
                     logger.warn("no mappings specified for fileset {}", spec.getId());
-                    createMapping(spec, Optional.empty());
+                    created[i] = new Mapping(spec, Optional.empty());
+                } else if (!mappingsLazy || eagerIds.contains("*")
+                        || eagerIds.contains(spec.getId().toLowerCase())) {
+                    eagerSpecs.add(spec);
+                    eagerIndexes.add(i);
+                } else {
+                    // build mapper when the first file is matched
+                    created[i] = new Mapping(spec, () -> {
+                        long loadStart = System.currentTimeMillis();
+                        RdfRmlMapper mapper = loadMapper(spec, mappingConfigURI, inputDir, snapshot);
+                        logger.info("Loaded mappings for {} on first use in {} ms", spec.getId(),
+                                System.currentTimeMillis() - loadStart);
+                        return Optional.of(mapper);
+                    });
                 }
             } catch (Exception e) {
                 logger.warn("failed to load mappings for {}: {}", spec.getId(), e.getMessage());
                 logger.debug("Details: ", e);
             }
         }
+
+        List<Mapping> eagerMappings = loadMappers(eagerSpecs, mappingConfigURI, inputDir, snapshot);
+        int eagerCount = 0;
+        for (int i = 0; i < eagerMappings.size(); i++) {
+            if (eagerMappings.get(i) != null) {
+                created[eagerIndexes.get(i)] = eagerMappings.get(i);
+                eagerCount++;
+            }
+        }
+        for (Mapping mapping : created) {
+            if (mapping != null) {
+                target.accept(mapping);
+            }
+        }
+        return eagerCount;
+    }
+
+    /**
+     * Load the mapping files of the provided specs and build their mappers.
+     * 
+     * <p>
+     * With a {@code mappings.load.concurrency} of more than one, all mapping
+     * files are fetched and parsed in parallel, and the mapper of each spec is
+     * built as soon as its mapping files are available. Mapping files used by
+     * multiple specs are only loaded once. Failures are reported per spec.
+     * </p>
+     * 
+     * @param specs            mapping specs with at least one mapping file
+     * @param mappingConfigURI URI of the mapping config to resolve mapping files
+     *                         against
+     * @param inputDir         directory for relative sources
+     * @param snapshot         snapshot of the mapping config or
+     *                         <code>null</code>
+     * @return mappings in the order of the specs, <code>null</code> for specs
+     *         which failed to load
+     */
+    private List<Mapping> loadMappers(List<MappingSpec> specs, URI mappingConfigURI, Path inputDir,
+            MappingSnapshot snapshot) {
+        Mapping[] created = new Mapping[specs.size()];
+        if (mappingsLoadConcurrency <= 1 || specs.size() <= 1) {
+            for (int i = 0; i < specs.size(); i++) {
+                MappingSpec spec = specs.get(i);
+                try {
+                    created[i] = new Mapping(spec,
+                            Optional.of(loadMapper(spec, mappingConfigURI, inputDir, snapshot)));
+                } catch (Exception e) {
+                    logger.warn("failed to load mappings for {}: {}", spec.getId(), e.getMessage());
+                    logger.debug("Details: ", e);
+                }
+            }
+            return Arrays.asList(created);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(mappingsLoadConcurrency,
+                new NamedThreadFactory("mapping-loader"));
+        try {
+            Map<URI, CompletableFuture<Model>> models = new HashMap<>();
+            List<CompletableFuture<Void>> results = new ArrayList<>();
+            for (int i = 0; i < specs.size(); i++) {
+                MappingSpec spec = specs.get(i);
+                int index = i;
+                logger.info("creating mappings for {} from {}", spec.getId(),
+                        String.join(", ", spec.getMappingFiles()));
+                CompletableFuture<RdfRmlMapper> specMapper;
+                if (hasSnapshotModel(snapshot, spec)) {
+                    specMapper = CompletableFuture.supplyAsync(
+                            () -> loadMapper(spec, mappingConfigURI, inputDir, snapshot), executor);
+                } else {
+                    List<CompletableFuture<Model>> specModels = new ArrayList<>();
+                    for (String mappingFile : spec.getMappingFiles()) {
+                        URI mappingFileURI = mappingConfigURI.resolve(mappingFile);
+                        specModels.add(models.computeIfAbsent(mappingFileURI,
+                                uri -> CompletableFuture.supplyAsync(() -> loadMappingFile(uri), executor)));
+                    }
+                    specMapper = CompletableFuture.allOf(specModels.toArray(new CompletableFuture[0]))
+                            .thenApplyAsync(v -> {
+                                // models may be shared between specs, so merge them into a new model
+                                Model mappingModel = specModels.stream().flatMap(model -> model.join().stream())
+                                        .collect(new ModelCollector());
+                                prepareMappingModel(mappingModel);
+                                return prepareMapper(spec.getId(), mappingModel, inputDir);
+                            }, executor);
+                }
+                results.add(specMapper.handle((mapper, error) -> {
+                            if (error != null) {
+                                Throwable cause = (error instanceof CompletionException && error.getCause() != null)
+                                        ? error.getCause()
+                                        : error;
+                                logger.warn("failed to load mappings for {}: {}", spec.getId(), cause.getMessage());
+                                logger.debug("Details: ", cause);
+                            } else {
+                                created[index] = new Mapping(spec, Optional.of(mapper));
+                            }
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+        return Arrays.asList(created);
+    }
+
+    private Model loadMappingFile(URI mappingFileURI) {
+        logger.debug("loading mappings from {}", mappingFileURI);
+        try {
+            return loadModel(mappingFileURI);
+        } catch (Exception e) {
+            logger.warn("failed to load mappings from {}: {}", mappingFileURI, e.getMessage());
+            logger.debug("Details: ", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Build the mapper of a spec from the snapshot or from its mapping files.
+     * 
+     * @param spec             mapping spec with at least one mapping file
+     * @param mappingConfigURI URI of the mapping config to resolve mapping files
+     *                         against
+     * @param inputDir         directory for relative sources
+     * @param snapshot         snapshot of the mapping config or
+     *                         <code>null</code>
+     * @return mapper
+     */
+    private RdfRmlMapper loadMapper(MappingSpec spec, URI mappingConfigURI, Path inputDir,
+            MappingSnapshot snapshot) {
+        Optional<Model> snapshotModel = getSnapshotModel(snapshot, spec);
+        if (snapshotModel.isPresent()) {
+            logger.info("creating mappings for {} from snapshot", spec.getId());
+            return prepareMapper(spec.getId(), snapshotModel.get(), inputDir);
+        }
+        logger.info("creating mappings for {} from {}", spec.getId(), String.join(", ", spec.getMappingFiles()));
+        Model mappingModel = loadMappingModel(spec, mappingConfigURI);
+        prepareMappingModel(mappingModel);
+        return prepareMapper(spec.getId(), mappingModel, inputDir);
+    }
+
+    /**
+     * Load and merge the mapping files of a spec.
+     * 
+     * @param spec             mapping spec with at least one mapping file
+     * @param mappingConfigURI URI of the mapping config to resolve mapping files
+     *                         against
+     * @return mapping model as read from the files
+     */
+    private Model loadMappingModel(MappingSpec spec, URI mappingConfigURI) {
+        Model mappingModel = null;
+        List<String> mappingFiles = spec.getMappingFiles();
+        for (String mappingFile : mappingFiles) {
+            URI mappingFileURI = mappingConfigURI.resolve(mappingFile);
+            logger.debug("loading mappings for {} from {}", spec.getId(), mappingFileURI);
+            try {
+                Model model = loadModel(mappingFileURI);
+                if (mappingModel == null) {
+                    // first mapping file
+                    mappingModel = model;
+                } else {
+                    // additional files, merge into aggregated mappings model
+                    mappingModel.addAll(model);
+                }
+            } catch (Exception e) {
+                logger.warn("failed to load mappings from {}: {}", mappingFileURI, e.getMessage());
+                logger.debug("Details: ", e);
+                throw e;
+            }
+        }
+        return mappingModel;
     }
 
-    private void createMapping(MappingSpec spec, Model mappingModel, Path inputDir) {
-        RdfRmlMapper mapper = prepareMapper(mappingModel, inputDir);
-        createMapping(spec, Optional.of(mapper));
+    private boolean hasSnapshotModel(MappingSnapshot snapshot, MappingSpec spec) {
+        return (snapshot != null) && snapshot.getSpecIds().contains(spec.getId().toLowerCase());
     }
 
-    private void createMapping(MappingSpec spec, Optional<RdfRmlMapper> mapper) {
-        Mapping mapping = new Mapping(spec, mapper);
-        mappings.put(spec.getId().toLowerCase(), mapping);
+    private Optional<Model> getSnapshotModel(MappingSnapshot snapshot, MappingSpec spec) {
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        try {
+            return snapshot.getModel(spec.getId());
+        } catch (Exception e) {
+            logger.warn("failed to read mappings for {} from snapshot, loading mapping files instead: {}",
+                    spec.getId(), e.getMessage());
+            logger.debug("Details: ", e);
+            return Optional.empty();
+        }
     }
 
+    /**
+     * Load the snapshot for a mapping config if it matches the current mapping
+     * config and mapping files.
+     * 
+     * @param mappingConfigURI URI of the mapping config
+     * @param mappingConfig    mapping config
+     * @return snapshot or an empty optional if there is no up-to-date snapshot
+     */
+    private Optional<MappingSnapshot> loadSnapshot(URI mappingConfigURI, MappingConfig mappingConfig) {
+        URI snapshotURI = MappingSnapshot.snapshotFileFor(mappingConfigURI);
+        MappingSnapshot loadedSnapshot;
+        try (InputStream in = new BufferedInputStream(fileHelper.openInputStream(snapshotURI))) {
+            loadedSnapshot = MappingSnapshot.read(in);
+        } catch (Exception e) {
+            logger.debug("No mapping snapshot available at {}: {}", snapshotURI, e.getMessage());
+            return Optional.empty();
+        }
+        try {
+            // compares version tags, so unchanged files in S3 are not downloaded
+            if (!loadedSnapshot.isUpToDate(mappingConfig, mappingConfigURI, namespaces.getNamespaces(),
+                    fileHelper::getVersionTag, fileHelper::openInputStream)) {
+                logger.info("Ignoring mapping snapshot {}: mapping files have changed", snapshotURI);
+                return Optional.empty();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to verify mapping snapshot {}: {}", snapshotURI, e.getMessage());
+            logger.debug("Details: ", e);
+            return Optional.empty();
+        }
+        logger.info("Using mapping snapshot {}", snapshotURI);
+        return Optional.of(loadedSnapshot);
+    }
+
+    /**
+     * Create a snapshot of the prepared mapping models of a mapping config.
+     * 
+     * @param mappingConfigURI URI of the mapping config
+     * @return snapshot
+     * @throws IOException in case of errors loading the mapping config or files
+     */
+    public MappingSnapshot createSnapshot(URI mappingConfigURI) throws IOException {
+        MappingConfig mappingConfig = getMappingConfig(mappingConfigURI)
+                .orElseThrow(() -> new IOException("Failed to load mapping config from " + mappingConfigURI));
+        MappingSnapshot newSnapshot = new MappingSnapshot(MappingSnapshot.computeSetupHash(namespaces.getNamespaces()),
+                MappingSnapshot.computeFileDigests(mappingConfig, fileHelper::openInputStream, mappingConfigURI));
+        for (MappingSpec spec : mappingConfig.getMappings()) {
+            List<String> mappingFiles = spec.getMappingFiles();
+            if (mappingFiles == null || mappingFiles.isEmpty()) {
+                continue;
+            }
+            Model mappingModel = loadMappingModel(spec, mappingConfigURI);
+            prepareMappingModel(mappingModel);
+            newSnapshot.addModel(spec.getId(), mappingModel);
+        }
+        return newSnapshot;
+    }
+
+    private void putMapping(Mapping mapping) {
+        synchronized (mappings) {
+            mappings.put(mapping.getType().toLowerCase(), mapping);
+            // rebuild matcher on next use
+            matcher = null;
+        }
+    }
+
+    /**
+     * Determine the mapping for a file.
+     * 
+     * <p>
+     * If the mapper of the matching mapping has not been built yet, this is done
+     * before returning. When building it fails, the error is thrown, so the task
+     * fails, but the mapping is kept: errors reading the mapping files are
+     * retried by later tasks, see {@link Mapping#getMapper()}.
+     * </p>
+     * 
+     * @param fileName name of the file
+     * @return matching mapping or an empty optional
+     * @throws RuntimeException if the mapper of the matching mapping cannot be
+     *                          built
+     */
     public Optional<Mapping> getMappingFor(String fileName) {
-        // find matching mapping
-        for (Mapping mapping : mappings.values()) {
-            if (mapping.matches(fileName)) {
-                return Optional.of(mapping);
+        Optional<Mapping> mapping = getMatcher().getMappingFor(fileName);
+        if (mapping.isEmpty() || mapping.get().isLoaded()) {
+            return mapping;
+        }
+        try {
+            mapping.get().getMapper();
+            return mapping;
+        } catch (RuntimeException e) {
+            // keep the mapping: transient errors are retried by Mapping after a backoff
+            logger.warn("failed to load mappings for {}: {}", mapping.get().getType(), e.getMessage());
+            logger.debug("Details: ", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Find the mapping for a file without building its mapper.
+     * 
+     * <p>
+     * Unlike {@link #getMappingFor(String)} this only matches the file name, so
+     * it can be used to check whether a file will be processed at all without
+     * reading any mapping files.
+     * </p>
+     * 
+     * @param fileName name of the file
+     * @return matching mapping or an empty optional
+     */
+    public Optional<Mapping> findMapping(String fileName) {
+        return getMatcher().getMappingFor(fileName);
+    }
+
+    private MappingMatcher getMatcher() {
+        MappingMatcher currentMatcher = matcher;
+        if (currentMatcher == null) {
+            synchronized (mappings) {
+                if (matcher == null) {
+                    matcher = new MappingMatcher(mappings.values());
+                }
+                currentMatcher = matcher;
             }
         }
-        return Optional.empty();
+        return currentMatcher;
+    }
+
+    /**
+     * Check whether the mapping config or any mapping file has changed and reload
+     * the changed mappings in the background.
+     * 
+     * <p>
+     * Changes are detected by comparing the version tags (e.g. the ETag of S3
+     * objects) of the files, so checking does not require reading them. Checks
+     * are performed at most once per {@code mappings.reload.interval} seconds
+     * and only if reloading is enabled. The mappings of changed specs are
+     * created in the background and replace the current mappings at once, so
+     * each task uses either the old or the new mappings. If the mapper of a
+     * changed spec cannot be built, its current mapping is kept and building it
+     * is retried with the next check.
+     * </p>
+     */
+    public void checkForUpdates() {
+        ReloadState state = reloadState;
+        if (state == null || reloadExecutor == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastReloadCheck < mappingsReloadInterval * 1000 || !reloading.compareAndSet(false, true)) {
+            return;
+        }
+        lastReloadCheck = now;
+        try {
+            reloadExecutor.execute(() -> {
+                try {
+                    reload(state);
+                } catch (Exception e) {
+                    logger.warn("Failed to reload mappings: {}", e.getMessage());
+                    logger.debug("Details: ", e);
+                } finally {
+                    reloading.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reloading.set(false);
+        }
+    }
+
+    /**
+     * Check for changes and reload the changed mappings in the calling thread,
+     * regardless of the time of the last check.
+     */
+    void reloadNow() {
+        ReloadState state = reloadState;
+        if (state != null) {
+            reload(state);
+        }
+    }
+
+    private void reload(ReloadState state) {
+        long start = System.currentTimeMillis();
+        URI mappingConfigURI = state.mappingConfigURI;
+        Map<URI, String> versionTags = getVersionTags(mappingConfigURI, state.mappingConfig);
+        if (versionTags.equals(state.versionTags) && state.failedSpecs.isEmpty()) {
+            logger.debug("Mappings are unchanged");
+            return;
+        }
+        MappingConfig mappingConfig = state.mappingConfig;
+        if (!Objects.equals(versionTags.get(mappingConfigURI), state.versionTags.get(mappingConfigURI))) {
+            Optional<MappingConfig> changedConfig = getMappingConfig(mappingConfigURI);
+            if (changedConfig.isEmpty()) {
+                logger.warn("Keeping current mappings");
+                return;
+            }
+            mappingConfig = changedConfig.get();
+            // the changed config may refer to other mapping files
+            versionTags = getVersionTags(mappingConfigURI, mappingConfig);
+        }
+
+        // keep the mappings of unchanged specs
+        Map<String, MappingSpec> previousSpecs = new HashMap<>();
+        state.mappingConfig.getMappings().forEach(spec -> previousSpecs.put(spec.getId().toLowerCase(), spec));
+        Map<String, Mapping> currentMappings;
+        synchronized (mappings) {
+            currentMappings = new HashMap<>(mappings);
+        }
+        Map<String, Mapping> newMappings = new ConcurrentHashMap<>();
+        List<MappingSpec> changedSpecs = new ArrayList<>();
+        for (MappingSpec spec : mappingConfig.getMappings()) {
+            String id = spec.getId().toLowerCase();
+            MappingSpec previousSpec = previousSpecs.get(id);
+            Mapping mapping = currentMappings.get(id);
+            if (mapping != null && previousSpec != null && !state.failedSpecs.contains(id)
+                    && gson.toJson(previousSpec).equals(gson.toJson(spec))
+                    && !hasChangedFiles(spec, mappingConfigURI, state.versionTags, versionTags)) {
+                newMappings.put(id, mapping);
+            } else {
+                changedSpecs.add(spec);
+            }
+        }
+
+        // lazy mappings keep the snapshot they were created with, so mappings still in
+        // use are not built from the snapshot of a newer config
+        MappingSnapshot snapshot = mappingsSnapshot ? loadSnapshot(mappingConfigURI, mappingConfig).orElse(null)
+                : null;
+        createMappings(changedSpecs, mappingConfigURI, state.inputDir, snapshot,
+                mapping -> newMappings.put(mapping.getType().toLowerCase(), mapping));
+
+        // keep the current mapping of specs which failed to build and do not record
+        // the versions of their files, so they are rebuilt with the next check
+        Set<String> failedSpecs = new HashSet<>();
+        Map<URI, String> loadedVersionTags = new HashMap<>(versionTags);
+        for (MappingSpec spec : changedSpecs) {
+            String id = spec.getId().toLowerCase();
+            if (newMappings.containsKey(id)) {
+                continue;
+            }
+            failedSpecs.add(id);
+            Mapping currentMapping = currentMappings.get(id);
+            if (currentMapping != null) {
+                logger.warn("Keeping current mappings for {}", spec.getId());
+                newMappings.put(id, currentMapping);
+            }
+            if (spec.getMappingFiles() == null) {
+                continue;
+            }
+            for (String mappingFile : spec.getMappingFiles()) {
+                URI mappingFileURI = mappingConfigURI.resolve(mappingFile);
+                String previousTag = state.versionTags.get(mappingFileURI);
+                if (previousTag != null) {
+                    loadedVersionTags.put(mappingFileURI, previousTag);
+                } else {
+                    loadedVersionTags.remove(mappingFileURI);
+                }
+            }
+        }
+
+        synchronized (mappings) {
+            mappings.clear();
+            mappings.putAll(newMappings);
+            matcher = null;
+        }
+        reloadState = new ReloadState(mappingConfigURI, state.inputDir, mappingConfig, loadedVersionTags,
+                failedSpecs);
+        logger.info("Reloaded {} of {} mappings in {} ms", changedSpecs.size() - failedSpecs.size(),
+                mappingConfig.getMappings().size(), System.currentTimeMillis() - start);
+    }
+
+    private boolean hasChangedFiles(MappingSpec spec, URI mappingConfigURI, Map<URI, String> previousVersionTags,
+            Map<URI, String> versionTags) {
+        List<String> mappingFiles = spec.getMappingFiles();
+        if (mappingFiles == null) {
+            return false;
+        }
+        for (String mappingFile : mappingFiles) {
+            URI mappingFileURI = mappingConfigURI.resolve(mappingFile);
+            if (!Objects.equals(previousVersionTags.get(mappingFileURI), versionTags.get(mappingFileURI))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine the version tags of the mapping config and all mapping files.
+     * 
+     * @param mappingConfigURI URI of the mapping config
+     * @param mappingConfig    mapping config
+     * @return version tag per file, empty if the version could not be determined
+     */
+    private Map<URI, String> getVersionTags(URI mappingConfigURI, MappingConfig mappingConfig) {
+        Map<URI, String> versionTags = new HashMap<>();
+        versionTags.put(mappingConfigURI, fileHelper.getVersionTag(mappingConfigURI).orElse(""));
+        for (MappingSpec spec : mappingConfig.getMappings()) {
+            if (spec.getMappingFiles() == null) {
+                continue;
+            }
+            for (String mappingFile : spec.getMappingFiles()) {
+                versionTags.computeIfAbsent(mappingConfigURI.resolve(mappingFile),
+                        uri -> fileHelper.getVersionTag(uri).orElse(""));
+            }
+        }
+        return versionTags;
     }
 
     public Optional<MappingConfig> getMappingConfig(URI mappingConfigURI) {
@@ -186,8 +759,8 @@ public class MappingManager {
         return Optional.empty();
     }
 
-    private RdfRmlMapper prepareMapper(Model mappingModel, Path inputDir) {
-        var mapping = loadMapping(mappingModel);
+    RdfRmlMapper prepareMapper(String mappingId, Model mappingModel, Path inputDir) {
+        var mapping = RmlMappingLoader.build().load(mappingModel);
 
         if (logger.isDebugEnabled()) {
             logger.debug("The following mapping constructs were detected:");
@@ -198,7 +771,7 @@ public class MappingManager {
         var mapperBuilder = RdfRmlMapper.builder()
                 .baseIri(BASE_IRI)
                 // add mappings
-                .triplesMaps(mapping).valueFactorySupplier(getValueFactory())
+                .triplesMaps(mapping).valueFactorySupplier(getValueFactory(mappingId))
                 .setLogicalSourceResolver(Rdf.Ql.Csv, CsvResolver::getInstance)
                 .setLogicalSourceResolver(Rdf.Ql.XPath, XPathResolver::getInstance)
                 .setLogicalSourceResolver(Rdf.Ql.JsonPath, JsonPathResolver::getInstance);
@@ -214,7 +787,7 @@ public class MappingManager {
         return mapperBuilder.build();
     }
 
-    private Supplier<ValueFactory> getValueFactory() {
+    private Supplier<ValueFactory> getValueFactory(String mappingId) {
         LiteralConversionMode mode = LiteralConversionMode.validateAndFallbackToPlaceholder;
         try {
             mode = LiteralConversionMode.valueOf(mappingsLiteralConversionMode);
@@ -222,53 +795,45 @@ public class MappingManager {
             logger.warn("invalid value for mappings.literalConversionMode: {}! Allowed values are {}",
                     mappingsLiteralConversionMode, LiteralConversionMode.values());
         }
+        // share canonical instances of values across all mappers
+        final ValueFactory baseFactory = (valueCache != null) ? new InterningValueFactory(valueCache)
+                : SimpleValueFactory.getInstance();
         switch (mode) {
         default:
         case noValidation:
-            return () -> SimpleValueFactory.getInstance();
+            return () -> baseFactory;
         case validateAndFail:
-            return () -> new LoggingValidatingValueFactory() {
-                protected void warn(String message) {
-                    super.warn(message);
-                    MappingManager.this.handleValueFactoryWarning(message);
-                }
-            };
+            return () -> withDiagnostics(new LoggingValidatingValueFactory(baseFactory), mappingId);
         case validateAndFallbackToString:
-            return () -> new ValidatingValueFactoryWithFallback() {
-                protected void warn(String message) {
-                    super.warn(message);
-                    MappingManager.this.handleValueFactoryWarning(message);
-                }
-            };
+            return () -> withDiagnostics(new ValidatingValueFactoryWithFallback(baseFactory), mappingId);
         case validateAndFallbackToPlaceholder:
-            return () -> new ValidatingValueFactoryWithPlaceholder() {
-                protected void warn(String message) {
-                    super.warn(message);
-                    MappingManager.this.handleValueFactoryWarning(message);
-                }
-            };
+            return () -> withDiagnostics(new ValidatingValueFactoryWithPlaceholder(baseFactory), mappingId);
         }
     }
 
-    protected void handleValueFactoryWarning(String message) {
-        try {
-            lambdaLoggerManager.get().ifPresent(lambdaLogger -> lambdaLogger.log(message));
-        } catch (Exception e) {
-            // ignore
-            logger.warn("failed to get Lambda Logger: {}", e.getMessage());
-            logger.debug("Details: ", e);
-        }
+    private ValueFactory withDiagnostics(LoggingValidatingValueFactory valueFactory, String mappingId) {
+        // invalid values are aggregated and logged in the background
+        valueFactory.setDiagnostics(diagnostics, mappingId);
+        return valueFactory;
     }
 
-    private Set<TriplesMap> loadMapping(Model mappingModel) {
+    /**
+     * Prepare a mapping model as read from the mapping files for the mapper.
+     * 
+     * <p>
+     * Prepared models are stored in {@link MappingSnapshot}s, so
+     * {@link MappingSnapshot#VERSION} has to be incremented when this changes.
+     * </p>
+     * 
+     * @param mappingModel mapping model to modify
+     */
+    private void prepareMappingModel(Model mappingModel) {
         namespaces.getNamespaces().forEach(mappingModel::setNamespace);
         RmlNamespaces.applyRmlNameSpaces(mappingModel);
 
         // replace RML source spec with CARML stream source
         // as we will inject the actual source input using a stream
         replaceRMLSourceFileReferencesWithInputStream(mappingModel);
-
-        return RmlMappingLoader.build().load(mappingModel);
     }
 
     /**
@@ -351,4 +916,25 @@ public class MappingManager {
     public enum LiteralConversionMode {
         noValidation, validateAndFail, validateAndFallbackToString, validateAndFallbackToPlaceholder;
     }
+
+    /**
+     * Mapping config and file versions the current mappings were created from.
+     */
+    private static class ReloadState {
+        private final URI mappingConfigURI;
+        private final Path inputDir;
+        private final MappingConfig mappingConfig;
+        private final Map<URI, String> versionTags;
+        // ids of specs which failed to build and are retried with the next check
+        private final Set<String> failedSpecs;
+
+        ReloadState(URI mappingConfigURI, Path inputDir, MappingConfig mappingConfig, Map<URI, String> versionTags,
+                Set<String> failedSpecs) {
+            this.mappingConfigURI = mappingConfigURI;
+            this.inputDir = inputDir;
+            this.mappingConfig = mappingConfig;
+            this.versionTags = versionTags;
+            this.failedSpecs = failedSpecs;
+        }
+    }
 }
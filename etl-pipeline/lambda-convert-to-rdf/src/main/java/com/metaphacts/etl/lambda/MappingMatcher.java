@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Determines the {@link Mapping} for a file.
+ *
+ * <p>
+ * Mappings are matched in a deterministic order: by descending
+ * {@link MappingSpec#getPriority() priority}, then by their case-insensitive
+ * id. The first mapping whose include pattern matches and whose exclude
+ * pattern does not match is used.
+ * </p>
+ *
+ * <p>
+ * To avoid evaluating the patterns of all mappings one after another, the
+ * literal prefix of each include pattern (e.g. <code>publications/</code> for
+ * <code>publications/.*\.jsonl</code>) is used to select the candidate mappings
+ * for the directory of a file. The include patterns of the candidates are
+ * combined into a single pattern, so each file name is matched once. The
+ * candidates and combined patterns are cached for the most recently used
+ * directories.
+ * </p>
+ */
+public class MappingMatcher {
+    static final int DEFAULT_MAX_DIRECTORIES = 1024;
+    private static final String REGEX_META_CHARACTERS = "[](){}.*+?^$|";
+    private static final String QUANTIFIERS = "*+?{";
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+
+    /**
+     * Order in which mappings are matched.
+     */
+    public static final Comparator<Mapping> PRIORITY_ORDER = Comparator
+            .comparingInt((Mapping mapping) -> -mapping.getMappingSpec().getPriority())
+            .thenComparing(mapping -> mapping.getType().toLowerCase());
+
+    private final List<Mapping> mappings;
+    private final String[] prefixes;
+    private final Map<String, Candidates> directories;
+    private final Map<BitSet, Candidates> candidateSets;
+
+    public MappingMatcher(Collection<Mapping> mappings) {
+        this(mappings, DEFAULT_MAX_DIRECTORIES);
+    }
+
+    /**
+     * Create a matcher.
+     *
+     * @param mappings       mappings to match
+     * @param maxDirectories maximum number of directories to cache the candidate
+     *                       mappings for
+     */
+    public MappingMatcher(Collection<Mapping> mappings, int maxDirectories) {
+        this.mappings = new ArrayList<>(mappings);
+        this.mappings.sort(PRIORITY_ORDER);
+        this.prefixes = new String[this.mappings.size()];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = literalPrefix(this.mappings.get(i).getIncludePattern());
+        }
+        this.directories = lruMap(maxDirectories);
+        this.candidateSets = lruMap(maxDirectories);
+    }
+
+    private static <K, V> Map<K, V> lruMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the mappings in the order in which they are matched.
+     *
+     * @return list of mappings
+     */
+    public List<Mapping> getMappings() {
+        return mappings;
+    }
+
+    /**
+     * Determine the mapping for a file.
+     *
+     * @param fileName name of the file, typically an S3 key
+     * @return matching mapping or empty if no mapping matches
+     */
+    public Optional<Mapping> getMappingFor(String fileName) {
+        return getCandidates(directoryOf(fileName)).match(fileName);
+    }
+
+    static String directoryOf(String fileName) {
+        return fileName.substring(0, fileName.lastIndexOf('/') + 1);
+    }
+
+    private Candidates getCandidates(String directory) {
+        Candidates candidates;
+        synchronized (directories) {
+            candidates = directories.get(directory);
+        }
+        if (candidates == null) {
+            BitSet indices = new BitSet(prefixes.length);
+            for (int i = 0; i < prefixes.length; i++) {
+                // files in the directory can only match if the literal prefix
+                // of the include pattern is compatible with the directory
+                if (directory.startsWith(prefixes[i]) || prefixes[i].startsWith(directory)) {
+                    indices.set(i);
+                }
+            }
+            // directories with the same candidates share the combined pattern
+            synchronized (candidateSets) {
+                candidates = candidateSets.get(indices);
+            }
+            if (candidates == null) {
+                candidates = new Candidates(indices);
+                synchronized (candidateSets) {
+                    candidateSets.put(indices, candidates);
+                }
+            }
+            synchronized (directories) {
+                directories.put(directory, candidates);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Determine the literal prefix of a pattern, i.e. the characters every
+     * matching string starts with.
+     *
+     * @param pattern pattern or <code>null</code>
+     * @return literal prefix, possibly empty
+     */
+    static String literalPrefix(Pattern pattern) {
+        if (pattern == null || pattern.flags() != 0) {
+            return "";
+        }
+        String regex = pattern.pattern();
+        if (regex.indexOf('|') >= 0) {
+            // alternatives may start differently
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            char literal;
+            int next;
+            if (c == '\\') {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    // character classes, quotes and other special escapes
+                    break;
+                }
+                literal = regex.charAt(i + 1);
+                next = i + 2;
+            } else if (REGEX_META_CHARACTERS.indexOf(c) >= 0) {
+                break;
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+            if (next < regex.length() && QUANTIFIERS.indexOf(regex.charAt(next)) >= 0) {
+                // the character is optional or repeated
+                break;
+            }
+            prefix.append(literal);
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Candidate mappings for a directory.
+     */
+    private class Candidates {
+        private final int[] indices;
+        private final Pattern combined;
+        private final int[] groups;
+
+        Candidates(BitSet indices) {
+            this.indices = indices.stream().toArray();
+            this.groups = new int[this.indices.length];
+            this.combined = combine();
+        }
+
+        /**
+         * Combine the include patterns into a single pattern with one capturing
+         * group per candidate. Alternatives are tried in order, so the first
+         * matching group is the first matching candidate.
+         *
+         * @return combined pattern or <code>null</code> if the patterns cannot be
+         *         combined
+         */
+        private Pattern combine() {
+            if (indices.length < 2) {
+                return null;
+            }
+            StringBuilder regex = new StringBuilder();
+            int group = 1;
+            for (int i = 0; i < indices.length; i++) {
+                Pattern include = mappings.get(indices[i]).getIncludePattern();
+                String part;
+                if (include == null) {
+                    part = "(?s:.*)";
+                } else if (include.flags() != 0 || BACK_REFERENCE.matcher(include.pattern()).find()) {
+                    // numbered back references would refer to different groups
+                    return null;
+                } else {
+                    part = include.pattern();
+                }
+                if (i > 0) {
+                    regex.append('|');
+                }
+                regex.append('(').append(part).append(')');
+                groups[i] = group;
+                group += 1 + ((include != null) ? include.matcher("").groupCount() : 0);
+            }
+            try {
+                return Pattern.compile(regex.toString());
+            } catch (PatternSyntaxException e) {
+                // e.g. duplicate group names, match one after another
+                return null;
+            }
+        }
+
+        Optional<Mapping> match(String fileName) {
+            if (combined == null) {
+                return matchEach(fileName, 0);
+            }
+            Matcher matcher = combined.matcher(fileName);
+            if (!matcher.matches()) {
+                return Optional.empty();
+            }
+            int first = 0;
+            while (first < groups.length && matcher.start(groups[first]) < 0) {
+                first++;
+            }
+            Mapping mapping = mappings.get(indices[first]);
+            if (!mapping.isExcluded(fileName)) {
+                return Optional.of(mapping);
+            }
+            return matchEach(fileName, first + 1);
+        }
+
+        private Optional<Mapping> matchEach(String fileName, int start) {
+            for (int i = start; i < indices.length; i++) {
+                if (!fileName.startsWith(prefixes[indices[i]])) {
+                    continue;
+                }
+                Mapping mapping = mappings.get(indices[i]);
+                if (mapping.matches(fileName)) {
+                    return Optional.of(mapping);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+/**
+ * Snapshot of the prepared mapping models of a mapping config.
+ *
+ * <p>
+ * A snapshot contains the mapping model of each {@link MappingSpec} after all
+ * mapping files have been merged and rewritten for stream input, encoded as
+ * binary RDF. It is stored next to the mapping config (see
+ * {@link #snapshotFileFor(URI)}) and created with the
+ * {@link MappingSnapshotTool}. Loading a model from the snapshot avoids
+ * parsing and rewriting the mapping files.
+ * </p>
+ *
+ * <p>
+ * The snapshot records the MD5 digest of the mapping config and each mapping
+ * file, and a hash of the snapshot version and the namespaces added to the
+ * models. It is only used when all of them match, see
+ * {@link #isUpToDate(MappingConfig, URI, Set, VersionTagSource, ContentSource)}.
+ * As the ETag of an object uploaded to S3 in a single part is the MD5 digest
+ * of its content, files in S3 are usually checked without downloading them.
+ * </p>
+ */
+public class MappingSnapshot {
+    public static final String EXTENSION_SNAPSHOT = ".snapshot";
+
+    private static final int MAGIC = 0x4d534e50;
+    // increment when the format or the preparation of mapping models changes, see
+    // MappingManager.prepareMappingModel(), so older snapshots are ignored
+    static final int VERSION = 3;
+    // key of the mapping config in the file digests
+    private static final String CONFIG_KEY = "";
+
+    /**
+     * Source of the content of the mapping config and mapping files.
+     */
+    public interface ContentSource {
+        InputStream open(URI uri) throws IOException;
+    }
+
+    /**
+     * Source of version tags of files, see {@link FileHelper#getVersionTag(URI)}.
+     */
+    public interface VersionTagSource {
+        Optional<String> getVersionTag(URI uri);
+    }
+
+    private final String setupHash;
+    private final Map<String, String> fileDigests;
+    private final Map<String, byte[]> models = new LinkedHashMap<>();
+
+    /**
+     * Create a snapshot.
+     *
+     * @param setupHash   hash of the snapshot version and namespaces, see
+     *                    {@link #computeSetupHash(Set)}
+     * @param fileDigests digests of the mapping config and mapping files, see
+     *                    {@link #computeFileDigests(MappingConfig, ContentSource, URI)}
+     */
+    public MappingSnapshot(String setupHash, Map<String, String> fileDigests) {
+        this.setupHash = setupHash;
+        this.fileDigests = new LinkedHashMap<>(fileDigests);
+    }
+
+    /**
+     * Determine the location of the snapshot for a mapping config.
+     *
+     * @param mappingConfigURI URI of the mapping config
+     * @return URI of the snapshot
+     */
+    public static URI snapshotFileFor(URI mappingConfigURI) {
+        return URI.create(mappingConfigURI.toString() + EXTENSION_SNAPSHOT);
+    }
+
+    /**
+     * Compute the hash of everything besides the mapping files which affects
+     * the prepared models: the snapshot version and the namespaces added to
+     * each mapping model.
+     *
+     * @param namespaces namespaces added to the mapping models
+     * @return hash as hex string
+     */
+    public static String computeSetupHash(Set<Namespace> namespaces) {
+        MessageDigest digest = newDigest("SHA-256");
+        try (DataOutputStream out = new DataOutputStream(
+                new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            out.writeInt(VERSION);
+            for (Namespace namespace : new TreeSet<>(namespaces)) {
+                out.writeUTF(namespace.getPrefix());
+                out.writeUTF(namespace.getName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Compute the MD5 digests of a mapping config and all mapping files
+     * referenced by it.
+     *
+     * <p>
+     * Mapping files are identified by their name as used in the mapping config,
+     * so the digests do not depend on the location of the files.
+     * </p>
+     *
+     * @param config           mapping config
+     * @param source           source of file contents
+     * @param mappingConfigURI URI of the mapping config
+     * @return digest as hex string by file name
+     * @throws IOException in case of errors reading the files
+     */
+    public static Map<String, String> computeFileDigests(MappingConfig config, ContentSource source,
+            URI mappingConfigURI) throws IOException {
+        Map<String, String> digests = new LinkedHashMap<>();
+        for (Map.Entry<String, URI> file : files(config, mappingConfigURI).entrySet()) {
+            digests.put(file.getKey(), md5(source, file.getValue()));
+        }
+        return digests;
+    }
+
+    /**
+     * Determine whether the snapshot matches the current mapping config and
+     * mapping files.
+     *
+     * <p>
+     * A file is only read if its version tag differs from the recorded digest,
+     * e.g. for local files or objects uploaded to S3 in multiple parts.
+     * </p>
+     *
+     * @param config           current mapping config
+     * @param mappingConfigURI URI of the mapping config
+     * @param namespaces       namespaces added to the mapping models
+     * @param versionTags      source of version tags
+     * @param source           source of file contents
+     * @return <code>true</code> if the snapshot is up to date
+     * @throws IOException in case of errors reading the files
+     */
+    public boolean isUpToDate(MappingConfig config, URI mappingConfigURI, Set<Namespace> namespaces,
+            VersionTagSource versionTags, ContentSource source) throws IOException {
+        if (!setupHash.equals(computeSetupHash(namespaces))) {
+            return false;
+        }
+        Map<String, URI> files = files(config, mappingConfigURI);
+        if (!files.keySet().equals(fileDigests.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, URI> file : files.entrySet()) {
+            String expected = fileDigests.get(file.getKey());
+            Optional<String> versionTag = versionTags.getVersionTag(file.getValue())
+                    .map(tag -> tag.replace("\"", ""));
+            if (versionTag.isPresent() && versionTag.get().equalsIgnoreCase(expected)) {
+                continue;
+            }
+            if (!expected.equals(md5(source, file.getValue()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine the mapping config and all mapping files.
+     *
+     * @param config           mapping config
+     * @param mappingConfigURI URI of the mapping config
+     * @return URI by file name, the mapping config is stored with an empty name
+     */
+    private static Map<String, URI> files(MappingConfig config, URI mappingConfigURI) {
+        Map<String, URI> files = new TreeMap<>();
+        files.put(CONFIG_KEY, mappingConfigURI);
+        for (MappingSpec spec : config.getMappings()) {
+            List<String> mappingFiles = spec.getMappingFiles();
+            if (mappingFiles == null) {
+                continue;
+            }
+            for (String mappingFile : mappingFiles) {
+                files.put(mappingFile, mappingConfigURI.resolve(mappingFile));
+            }
+        }
+        return files;
+    }
+
+    private static String md5(ContentSource source, URI uri) throws IOException {
+        MessageDigest digest = newDigest("MD5");
+        try (InputStream in = source.open(uri)) {
+            in.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getSetupHash() {
+        return setupHash;
+    }
+
+    public Map<String, String> getFileDigests() {
+        return fileDigests;
+    }
+
+    /**
+     * Add the prepared mapping model of a spec.
+     *
+     * @param specId id of the mapping spec
+     * @param model  prepared mapping model
+     */
+    public void addModel(String specId, Model model) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Rio.write(model, out, RDFFormat.BINARY);
+        models.put(specId.toLowerCase(), out.toByteArray());
+    }
+
+    /**
+     * Get the ids of all specs with a mapping model.
+     *
+     * @return lowercase spec ids
+     */
+    public Set<String> getSpecIds() {
+        return models.keySet();
+    }
+
+    /**
+     * Get the prepared mapping model of a spec.
+     *
+     * <p>
+     * The model is decoded on each call, so callers may modify it.
+     * </p>
+     *
+     * @param specId id of the mapping spec
+     * @return mapping model or an empty optional if the snapshot does not
+     *         contain the spec
+     * @throws IOException in case of errors decoding the model
+     */
+    public Optional<Model> getModel(String specId) throws IOException {
+        byte[] data = models.get(specId.toLowerCase());
+        if (data == null) {
+            return Optional.empty();
+        }
+        return Optional.of(Rio.parse(new ByteArrayInputStream(data), RDFFormat.BINARY));
+    }
+
+    /**
+     * Write the snapshot.
+     *
+     * @param out stream to write to
+     * @throws IOException in case of errors
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeUTF(setupHash);
+        data.writeInt(fileDigests.size());
+        for (Map.Entry<String, String> fileDigest : fileDigests.entrySet()) {
+            data.writeUTF(fileDigest.getKey());
+            data.writeUTF(fileDigest.getValue());
+        }
+        data.writeInt(models.size());
+        for (Map.Entry<String, byte[]> model : models.entrySet()) {
+            data.writeUTF(model.getKey());
+            data.writeInt(model.getValue().length);
+            data.write(model.getValue());
+        }
+        data.flush();
+    }
+
+    /**
+     * Read a snapshot.
+     *
+     * @param in stream to read from
+     * @return snapshot
+     * @throws IOException in case of errors or if the stream does not contain a
+     *                     snapshot of the current version
+     */
+    public static MappingSnapshot read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not a mapping snapshot");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported mapping snapshot version " + version);
+        }
+        String setupHash = data.readUTF();
+        Map<String, String> fileDigests = new LinkedHashMap<>();
+        int fileCount = data.readInt();
+        for (int i = 0; i < fileCount; i++) {
+            fileDigests.put(data.readUTF(), data.readUTF());
+        }
+        MappingSnapshot snapshot = new MappingSnapshot(setupHash, fileDigests);
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            String specId = data.readUTF();
+            byte[] model = new byte[data.readInt()];
+            data.readFully(model);
+            snapshot.models.put(specId, model);
+        }
+        return snapshot;
+    }
+}
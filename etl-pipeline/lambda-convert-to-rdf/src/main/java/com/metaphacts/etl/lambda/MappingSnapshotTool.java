@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command line tool to create a {@link MappingSnapshot} for a mapping config.
+ *
+ * <p>
+ * Usage: {@code MappingSnapshotTool <mappings.json>}
+ * </p>
+ *
+ * <p>
+ * The snapshot is written next to the mapping config and has to be uploaded
+ * together with the mapping config and mapping files. It is ignored when the
+ * mapping config or any of the mapping files change, so the tool has to be run
+ * again after each change to benefit from the snapshot. Files uploaded to S3
+ * in a single part are checked by their ETag without downloading them.
+ * </p>
+ */
+public class MappingSnapshotTool {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: MappingSnapshotTool <mappings.json>");
+            System.exit(1);
+        }
+
+        URI mappingConfigURI = Path.of(args[0]).toAbsolutePath().toUri();
+        MappingManager mappingManager = new MappingManager();
+        mappingManager.fileHelper = new FileHelper();
+        mappingManager.init();
+        MappingSnapshot snapshot = mappingManager.createSnapshot(mappingConfigURI);
+
+        Path snapshotFile = Path.of(MappingSnapshot.snapshotFileFor(mappingConfigURI));
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(snapshotFile))) {
+            snapshot.write(out);
+        }
+        System.out.println("Created snapshot of " + snapshot.getSpecIds().size() + " mappings, written to "
+                + snapshotFile);
+    }
+}
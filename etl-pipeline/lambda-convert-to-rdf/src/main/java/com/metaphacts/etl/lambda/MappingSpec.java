@@ -20,7 +20,12 @@ import java.util.regex.Pattern;
  */
 public class MappingSpec {
     public enum LineProcessingMode {
-        auto, document, line;
+        auto, document, line,
+        /**
+         * Stream JSON records: each top-level object and each element of a top-level
+         * array is mapped on its own, like a line in JSONL files.
+         */
+        records;
     }
 
     /**
@@ -105,10 +110,35 @@ public class MappingSpec {
     public List<String> processingHints;
 
     /**
-     * 
+     * How to split source files for mapping (optional), see
+     * {@link LineProcessingMode}.
      */
     public String lineProcessingMode = LineProcessingMode.auto.name();
 
+    /**
+     * Number of lines (or records) to map together with a single mapper call when
+     * processing line by line (optional).
+     * 
+     * <p>
+     * Larger batches reduce the per-call overhead of the mapper for small records.
+     * Batching is only applied when records are wrapped as list for the mapping and
+     * no per-record change detection is performed. When mapping a batch fails, its
+     * lines are mapped one by one to determine the failing lines.
+     * </p>
+     */
+    public int lineBatchSize = 1;
+
+    /**
+     * Priority of this mapping when matching files (optional).
+     * 
+     * <p>
+     * When a file matches the patterns of multiple mappings, the mapping with
+     * the highest priority is used. Mappings with the same priority are ordered
+     * by their (case-insensitive) id.
+     * </p>
+     */
+    public int priority = 0;
+
     public MappingSpec() {
     }
     
@@ -251,6 +281,32 @@ public class MappingSpec {
         return true;
     }
 
+    public int getLineBatchSize() {
+        return lineBatchSize;
+    }
+
+    public void setLineBatchSize(int lineBatchSize) {
+        this.lineBatchSize = lineBatchSize;
+    }
+
+    public MappingSpec withLineBatchSize(int lineBatchSize) {
+        setLineBatchSize(lineBatchSize);
+        return this;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public MappingSpec withPriority(int priority) {
+        setPriority(priority);
+        return this;
+    }
+
     public LineProcessingMode getLineProcessingMode() {
         if (lineProcessingMode != null) {
             try {
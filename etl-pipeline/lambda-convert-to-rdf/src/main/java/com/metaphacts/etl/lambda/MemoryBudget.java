@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Amount of memory shared by several consumers, e.g. the
+ * {@link FingerprintFilter}s of all output files written concurrently.
+ *
+ * <p>
+ * Consumers reserve memory before allocating it and release it again when it
+ * is freed, so the total stays within the budget regardless of the number of
+ * consumers.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class MemoryBudget {
+    private final long capacity;
+    private final AtomicLong available;
+
+    /**
+     * Create a budget.
+     *
+     * @param capacity total number of bytes
+     */
+    public MemoryBudget(long capacity) {
+        this.capacity = capacity;
+        this.available = new AtomicLong(capacity);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of bytes not reserved so far.
+     *
+     * @return number of bytes, may be negative if more than the budget was
+     *         reserved with {@link #reserve(long)}
+     */
+    public long getAvailable() {
+        return available.get();
+    }
+
+    /**
+     * Reserve memory if enough is available.
+     *
+     * @param bytes number of bytes
+     * @return <code>true</code> if the memory was reserved, <code>false</code>
+     *         if not enough memory is available
+     */
+    public boolean tryReserve(long bytes) {
+        while (true) {
+            long current = available.get();
+            if (current < bytes) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserve as much memory as available, up to a maximum.
+     *
+     * @param maxBytes maximum number of bytes
+     * @return number of bytes reserved, possibly 0
+     */
+    public long reserveUpTo(long maxBytes) {
+        while (true) {
+            long current = available.get();
+            long bytes = Math.max(0, Math.min(current, maxBytes));
+            if (bytes == 0 || available.compareAndSet(current, current - bytes)) {
+                return bytes;
+            }
+        }
+    }
+
+    /**
+     * Reserve memory regardless of the available amount. Used for small minimum
+     * allocations which are required to make progress at all.
+     *
+     * @param bytes number of bytes
+     */
+    public void reserve(long bytes) {
+        available.addAndGet(-bytes);
+    }
+
+    /**
+     * Release previously reserved memory.
+     *
+     * @param bytes number of bytes
+     */
+    public void release(long bytes) {
+        available.addAndGet(bytes);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Pipeline processing a sequence of items with multiple worker threads while
+ * retaining the order of the items.
+ *
+ * <p>
+ * Items are read on the calling thread, processed by a pool of worker threads
+ * and handed to a single consumer thread in the order in which they were read.
+ * The number of items in flight is bounded, so a slow consumer will eventually
+ * block the reader.
+ * </p>
+ *
+ * <p>
+ * Errors while processing an item are passed to the consumer together with the
+ * item, so they can be handled per item. Errors thrown by the source or the
+ * consumer stop the pipeline and are re-thrown from
+ * {@link #run(Source, Processor, Consumer)}.
+ * </p>
+ *
+ * @param <T> type of input items
+ * @param <R> type of processing results
+ */
+public class OrderedPipeline<T, R> {
+
+    /**
+     * Source of items.
+     */
+    @FunctionalInterface
+    public interface Source<T> {
+        /**
+         * Get the next item.
+         *
+         * @return next item or <code>null</code> when there are no more items
+         * @throws Exception in case of errors
+         */
+        T next() throws Exception;
+    }
+
+    /**
+     * Processing step, executed concurrently on worker threads.
+     */
+    @FunctionalInterface
+    public interface Processor<T, R> {
+        R process(T item) throws Exception;
+    }
+
+    /**
+     * Consumer of results, called on a single thread in the order of the items.
+     */
+    @FunctionalInterface
+    public interface Consumer<T, R> {
+        /**
+         * Consume the result for an item.
+         *
+         * @param item   item as provided by the source
+         * @param result processing result or <code>null</code> in case of errors
+         * @param error  processing error or <code>null</code> when successful
+         * @throws Exception in case of errors, which stops the pipeline
+         */
+        void accept(T item, R result, Exception error) throws Exception;
+    }
+
+    private final String name;
+    private final int workers;
+    private final int capacity;
+    private UnaryOperator<Callable<R>> taskDecorator = UnaryOperator.identity();
+
+    /**
+     * Create a pipeline.
+     *
+     * @param name     name of the pipeline, used as prefix for thread names
+     * @param workers  number of worker threads
+     * @param capacity maximum number of items in flight
+     */
+    public OrderedPipeline(String name, int workers, int capacity) {
+        this.name = name;
+        this.workers = Math.max(1, workers);
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Set a decorator which is applied (on the calling thread) to each
+     * processing task before it is handed to a worker thread, e.g. to propagate
+     * thread-local state.
+     *
+     * @param taskDecorator decorator for processing tasks
+     * @return this pipeline
+     */
+    public OrderedPipeline<T, R> withTaskDecorator(UnaryOperator<Callable<R>> taskDecorator) {
+        this.taskDecorator = taskDecorator;
+        return this;
+    }
+
+    /**
+     * Run the pipeline until the source is exhausted.
+     *
+     * @param source    source of items
+     * @param processor processing step
+     * @param consumer  consumer of processing results
+     * @return number of items read from the source
+     * @throws Exception in case of errors in the source or the consumer
+     */
+    public long run(Source<T> source, Processor<T, R> processor, Consumer<T, R> consumer) throws Exception {
+        final BlockingQueue<Entry<T, R>> queue = new ArrayBlockingQueue<>(capacity);
+        final Entry<T, R> end = new Entry<>(null, null);
+        final AtomicReference<Exception> consumerError = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new NamedThreadFactory(name + "-worker"));
+        Thread consumerThread = new NamedThreadFactory(name + "-consumer")
+                .newThread(() -> consume(queue, end, consumer, consumerError));
+        consumerThread.start();
+
+        long count = 0;
+        try {
+            T item;
+            while ((consumerError.get() == null) && ((item = source.next()) != null)) {
+                final T current = item;
+                Future<R> future = executor.submit(taskDecorator.apply(() -> processor.process(current)));
+                queue.put(new Entry<>(current, future));
+                count++;
+            }
+        } finally {
+            try {
+                // signal end of input and wait for all pending items to be consumed
+                queue.put(end);
+                consumerThread.join();
+            } catch (InterruptedException e) {
+                consumerThread.interrupt();
+                Thread.currentThread().interrupt();
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        Exception error = consumerError.get();
+        if (error != null) {
+            throw error;
+        }
+        return count;
+    }
+
+    private void consume(BlockingQueue<Entry<T, R>> queue, Entry<T, R> end, Consumer<T, R> consumer,
+            AtomicReference<Exception> consumerError) {
+        try {
+            Entry<T, R> entry;
+            while ((entry = queue.take()) != end) {
+                if (consumerError.get() != null) {
+                    // pipeline failed, discard remaining items until the reader has stopped
+                    entry.future.cancel(true);
+                    continue;
+                }
+                R result = null;
+                Exception error = null;
+                try {
+                    result = entry.future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    error = (cause instanceof Exception) ? (Exception) cause : e;
+                }
+                try {
+                    consumer.accept(entry.item, result, error);
+                } catch (Exception e) {
+                    consumerError.set(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            consumerError.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Entry<T, R> {
+        private final T item;
+        private final Future<R> future;
+
+        Entry(T item, Future<R> future) {
+            this.item = item;
+            this.future = future;
+        }
+    }
+}
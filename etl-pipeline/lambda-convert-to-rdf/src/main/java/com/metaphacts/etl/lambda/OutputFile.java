@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single output file written for a source file.
+ *
+ * <p>
+ * The file is either written to a local file and uploaded afterwards or
+ * streamed directly to S3. The number of (uncompressed) bytes and of RDF
+ * statements written to the file is tracked for reporting.
+ * </p>
+ */
+public class OutputFile implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(OutputFile.class);
+
+    private final Path key;
+    private final Path localPath;
+    private final CountingOutputStream stream;
+    private final S3MultipartOutputStream uploadStream;
+    private RDFWriter writer;
+    private DeduplicatingRDFWriter deduplicatingWriter;
+    private long statementCount = 0;
+    private boolean closed = false;
+    private boolean completed = false;
+
+    /**
+     * Create an output file.
+     *
+     * @param key          key of the file in the upload bucket
+     * @param localPath    local path of the file or <code>null</code> when it is
+     *                     streamed to S3
+     * @param stream       stream to write the (uncompressed) content to
+     * @param uploadStream stream uploading the file to S3 or <code>null</code>
+     *                     when it is written locally
+     */
+    public OutputFile(Path key, Path localPath, OutputStream stream, S3MultipartOutputStream uploadStream) {
+        this.key = key;
+        this.localPath = localPath;
+        this.stream = new CountingOutputStream(stream);
+        this.uploadStream = uploadStream;
+    }
+
+    public Path getKey() {
+        return key;
+    }
+
+    public Path getLocalPath() {
+        return localPath;
+    }
+
+    public OutputStream getStream() {
+        return stream;
+    }
+
+    /**
+     * Get the number of bytes written to the file so far, before compression.
+     *
+     * @return number of bytes
+     */
+    public long getSize() {
+        return stream.getByteCount();
+    }
+
+    /**
+     * Get the writer for RDF files.
+     *
+     * @return writer or <code>null</code> if none was set
+     */
+    public RDFWriter getWriter() {
+        return writer;
+    }
+
+    public void setWriter(RDFWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Set the writer dropping duplicate statements, which is released when the
+     * file is discarded.
+     *
+     * @param deduplicatingWriter writer dropping duplicates
+     */
+    public void setDeduplicatingWriter(DeduplicatingRDFWriter deduplicatingWriter) {
+        this.deduplicatingWriter = deduplicatingWriter;
+    }
+
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Record that a statement was written to the file.
+     */
+    public void countStatement() {
+        statementCount++;
+    }
+
+    /**
+     * Determine whether the file is uploaded while it is written.
+     *
+     * @return <code>true</code> if the file is streamed to S3
+     */
+    public boolean isStreamed() {
+        return uploadStream != null;
+    }
+
+    /**
+     * Determine whether the file has been uploaded completely while it was
+     * written, so it is visible in the upload bucket.
+     *
+     * @return <code>true</code> if the file was streamed to S3 and closed
+     *         successfully
+     */
+    public boolean isUploaded() {
+        return completed && uploadStream != null;
+    }
+
+    /**
+     * Discard the file after an error: a partial upload is aborted before the
+     * stream is closed and memory used to drop duplicates is released.
+     */
+    public void abort() {
+        if (deduplicatingWriter != null) {
+            deduplicatingWriter.close();
+        }
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (uploadStream != null) {
+            uploadStream.abort();
+        }
+        try {
+            stream.close();
+        } catch (Exception e) {
+            logger.debug("Failed to close output file {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Close the file and complete its upload when it is streamed to S3. When
+     * closing fails, the upload is aborted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+        closed = true;
+        completed = true;
+    }
+
+    @Override
+    public String toString() {
+        return key.toString();
+    }
+}
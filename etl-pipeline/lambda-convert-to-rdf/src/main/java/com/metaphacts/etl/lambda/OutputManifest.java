@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manifest listing the output files written for a source file.
+ *
+ * <p>
+ * As this manifest is written as JSON, all attributes should use types that can
+ * easily be converted from/to JSON.
+ * </p>
+ */
+public class OutputManifest {
+    public static final String EXTENSION_MANIFEST = ".manifest.json";
+
+    /**
+     * Single output file.
+     */
+    public static class Part {
+        /**
+         * Key of the output file in the upload bucket.
+         */
+        public String key;
+
+        /**
+         * Number of RDF statements in the file.
+         */
+        public long statements;
+
+        /**
+         * Uncompressed size of the file in bytes.
+         */
+        public long size;
+
+        public Part() {
+        }
+
+        public Part(String key, long statements, long size) {
+            this.key = key;
+            this.statements = statements;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Key of the source file (including a byte range, if any).
+     */
+    public String source;
+
+    /**
+     * Total number of RDF statements in all parts.
+     */
+    public long statements;
+
+    /**
+     * Output files in the order in which they were written.
+     */
+    public List<Part> parts = new ArrayList<>();
+
+    public OutputManifest() {
+    }
+
+    public OutputManifest(String source) {
+        this.source = source;
+    }
+
+    public void addPart(OutputFile outputFile) {
+        parts.add(new Part(outputFile.getKey().toString(), outputFile.getStatementCount(), outputFile.getSize()));
+        statements += outputFile.getStatementCount();
+    }
+
+    public List<Part> getParts() {
+        return parts;
+    }
+}
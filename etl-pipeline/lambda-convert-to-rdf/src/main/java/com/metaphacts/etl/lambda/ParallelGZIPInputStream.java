@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import com.metaphacts.etl.lambda.GzipIndex.Member;
+
+/**
+ * {@link InputStream} which decompresses a multi-member gzip file using
+ * multiple threads.
+ *
+ * <p>
+ * Based on a {@link GzipIndex} the members of the file are read and inflated
+ * concurrently on worker threads, while the decompressed data is provided in
+ * order. The number of members being decompressed is bounded.
+ * </p>
+ */
+public class ParallelGZIPInputStream extends InputStream {
+    private final FileChannel channel;
+    private final Executor executor;
+    private final Deque<Member> members;
+    private final Deque<FutureTask<byte[]>> pending = new ArrayDeque<>();
+    private final int maxPending;
+
+    private byte[] current;
+    private int position;
+    private int end;
+    private boolean closed = false;
+
+    /**
+     * Open a gzip file for reading all members.
+     *
+     * @param file       gzip file to read
+     * @param index      index of the gzip file
+     * @param executor   executor used to decompress members
+     * @param maxPending maximum number of members being decompressed concurrently
+     * @throws IOException in case of errors
+     */
+    public ParallelGZIPInputStream(Path file, GzipIndex index, Executor executor, int maxPending)
+            throws IOException {
+        this.members = new ArrayDeque<>(index.getMembers());
+        this.executor = executor;
+        this.maxPending = Math.max(1, maxPending);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    private void schedule() {
+        while (pending.size() < maxPending && !members.isEmpty()) {
+            Member member = members.removeFirst();
+            if (member.getUncompressedLength() == 0) {
+                // nothing to read from this member
+                continue;
+            }
+            FutureTask<byte[]> task = new FutureTask<>(() -> inflate(member));
+            pending.addLast(task);
+            executor.execute(task);
+        }
+    }
+
+    private boolean ensureData() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        while (current == null || position >= end) {
+            schedule();
+            if (pending.isEmpty()) {
+                return false;
+            }
+            FutureTask<byte[]> task = pending.removeFirst();
+            try {
+                current = task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while decompressing data");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("failed to decompress data: " + cause.getMessage(), cause);
+            }
+            position = 0;
+            end = current.length;
+            schedule();
+        }
+        return true;
+    }
+
+    /**
+     * Read and decompress a single member.
+     *
+     * @param member member to decompress
+     * @return uncompressed data of the member
+     * @throws IOException in case of errors
+     */
+    private byte[] inflate(Member member) throws IOException {
+        if (member.getCompressedLength() > Integer.MAX_VALUE || member.getUncompressedLength() > Integer.MAX_VALUE) {
+            throw new IOException("gzip member at offset " + member.getCompressedOffset() + " is too large");
+        }
+        byte[] compressed = new byte[(int) member.getCompressedLength()];
+        ByteBuffer buffer = ByteBuffer.wrap(compressed);
+        long offset = member.getCompressedOffset();
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, offset + buffer.position());
+            if (count < 0) {
+                throw new EOFException("unexpected end of gzip data at offset " + (offset + buffer.position()));
+            }
+        }
+
+        int header = GzipIndex.headerLength(compressed, 0, compressed.length);
+        byte[] data = new byte[(int) member.getUncompressedLength()];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed, header, compressed.length - header - 8);
+            int length = 0;
+            while (!inflater.finished() && length < data.length) {
+                int count = inflater.inflate(data, length, data.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += count;
+            }
+            if (!inflater.finished() && length == data.length) {
+                // consume the end of the deflate stream
+                length += inflater.inflate(new byte[1]);
+            }
+            if (length != data.length || !inflater.finished()) {
+                throw new ZipException("gzip member at offset " + offset + " does not match index");
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("invalid gzip data at offset " + offset + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        int trailer = compressed.length - 8;
+        int expectedCrc = (compressed[trailer] & 0xff) | ((compressed[trailer + 1] & 0xff) << 8)
+                | ((compressed[trailer + 2] & 0xff) << 16) | ((compressed[trailer + 3] & 0xff) << 24);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new ZipException("corrupt gzip member at offset " + offset + ": CRC mismatch");
+        }
+        return data;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int count = Math.min(len, end - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed || current == null) {
+            return 0;
+        }
+        return end - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (FutureTask<byte[]> task : pending) {
+            task.cancel(false);
+        }
+        pending.clear();
+        members.clear();
+        current = null;
+        channel.close();
+    }
+}
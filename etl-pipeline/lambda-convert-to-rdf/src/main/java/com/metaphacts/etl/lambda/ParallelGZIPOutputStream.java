@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * {@link OutputStream} which compresses data in gzip format using multiple
+ * threads.
+ *
+ * <p>
+ * Data is split into blocks of a fixed size. Each block is compressed
+ * independently on a worker thread and written as a separate gzip member, so
+ * the output is a sequence of concatenated gzip members. This is a valid gzip
+ * file which can be read by any standard gzip implementation, including
+ * {@link java.util.zip.GZIPInputStream}.
+ * </p>
+ *
+ * <p>
+ * Blocks are written in order. The number of blocks being compressed is
+ * bounded, so writing to the stream blocks when the workers cannot keep up.
+ * {@link Deflater} instances are shared between all streams using a pool.
+ * </p>
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int MAX_POOLED_DEFLATERS = 64;
+
+    private static final Queue<Deflater> deflaterPool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledDeflaters = new AtomicInteger();
+
+    private final OutputStream out;
+    private final Executor executor;
+    private final int blockSize;
+    private final int level;
+    private final int maxPending;
+    private final Deque<FutureTask<Block>> pending = new ArrayDeque<>();
+    private final Queue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+
+    private byte[] buffer;
+    private int position = 0;
+    private boolean membersWritten = false;
+    private boolean closed = false;
+
+    /**
+     * Create a compressing stream.
+     *
+     * @param out        stream to write compressed data to
+     * @param executor   executor used to compress blocks
+     * @param blockSize  size of uncompressed blocks in bytes
+     * @param level      compression level, see {@link Deflater#setLevel(int)}
+     * @param maxPending maximum number of blocks being compressed concurrently
+     */
+    public ParallelGZIPOutputStream(OutputStream out, Executor executor, int blockSize, int level, int maxPending) {
+        this.out = out;
+        this.executor = executor;
+        this.blockSize = Math.max(1024, blockSize);
+        this.level = level;
+        this.maxPending = Math.max(1, maxPending);
+        this.buffer = new byte[this.blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == buffer.length) {
+            submitBlock();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (position == buffer.length) {
+                submitBlock();
+            }
+            int count = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, count);
+            position += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Write all blocks which have already been compressed. The current block is
+     * not compressed before it is full, so flushing does not produce small gzip
+     * members.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeBlock(pending.removeFirst());
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (position > 0 || (!membersWritten && pending.isEmpty())) {
+                // write the last block, or an empty member to produce a valid gzip file
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeBlock(pending.removeFirst());
+            }
+        } finally {
+            closed = true;
+            for (FutureTask<Block> task : pending) {
+                task.cancel(false);
+            }
+            buffer = null;
+            out.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] data = buffer;
+        final int length = position;
+        FutureTask<Block> task = new FutureTask<>(() -> {
+            try {
+                return compress(data, length);
+            } finally {
+                freeBuffers.offer(data);
+            }
+        });
+        pending.addLast(task);
+        executor.execute(task);
+
+        while (pending.size() > maxPending) {
+            // wait for the oldest block
+            writeBlock(pending.removeFirst());
+        }
+
+        byte[] next = freeBuffers.poll();
+        buffer = (next != null) ? next : new byte[blockSize];
+        position = 0;
+    }
+
+    private void writeBlock(FutureTask<Block> task) throws IOException {
+        Block block;
+        try {
+            block = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while compressing data");
+        } catch (ExecutionException e) {
+            throw new IOException("failed to compress data: " + e.getCause().getMessage(), e.getCause());
+        }
+        out.write(block.data, 0, block.length);
+        membersWritten = true;
+    }
+
+    /**
+     * Compress data as a complete gzip member.
+     *
+     * @param data   data to compress
+     * @param length number of bytes to compress
+     * @return compressed gzip member
+     */
+    private Block compress(byte[] data, int length) {
+        Deflater deflater = acquireDeflater(level);
+        try {
+            Block block = new Block(Math.max(64, length / 2));
+            block.writeHeader();
+
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            while (!deflater.finished()) {
+                block.ensureCapacity(1024);
+                block.length += deflater.deflate(block.data, block.length, block.data.length - block.length);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            block.writeTrailer((int) crc.getValue(), length);
+            return block;
+        } finally {
+            releaseDeflater(deflater);
+        }
+    }
+
+    private static Deflater acquireDeflater(int level) {
+        Deflater deflater = deflaterPool.poll();
+        if (deflater == null) {
+            // raw deflate data, header and trailer are written separately
+            return new Deflater(level, true);
+        }
+        pooledDeflaters.decrementAndGet();
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    private static void releaseDeflater(Deflater deflater) {
+        deflater.reset();
+        if (pooledDeflaters.incrementAndGet() <= MAX_POOLED_DEFLATERS) {
+            deflaterPool.offer(deflater);
+        } else {
+            pooledDeflaters.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compressed gzip member.
+     */
+    private static class Block {
+        private byte[] data;
+        private int length;
+
+        Block(int capacity) {
+            this.data = new byte[capacity];
+        }
+
+        void ensureCapacity(int free) {
+            if (data.length - length < free) {
+                byte[] bigger = new byte[Math.max(data.length * 2, length + free)];
+                System.arraycopy(data, 0, bigger, 0, length);
+                data = bigger;
+            }
+        }
+
+        void writeHeader() {
+            // same header as written by java.util.zip.GZIPOutputStream
+            writeShort(GZIP_MAGIC);
+            writeByte(Deflater.DEFLATED);
+            writeByte(0); // flags
+            writeInt(0); // modification time
+            writeByte(0); // extra flags
+            writeByte(0); // operating system
+        }
+
+        void writeTrailer(int crc, int size) {
+            ensureCapacity(8);
+            writeInt(crc);
+            writeInt(size);
+        }
+
+        private void writeInt(int i) {
+            writeShort(i & 0xffff);
+            writeShort((i >> 16) & 0xffff);
+        }
+
+        private void writeShort(int s) {
+            writeByte(s & 0xff);
+            writeByte((s >> 8) & 0xff);
+        }
+
+        private void writeByte(int b) {
+            ensureCapacity(1);
+            data[length++] = (byte) b;
+        }
+    }
+}
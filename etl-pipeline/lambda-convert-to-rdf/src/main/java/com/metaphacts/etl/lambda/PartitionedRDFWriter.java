@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.RioSetting;
+import org.eclipse.rdf4j.rio.WriterConfig;
+
+/**
+ * RDFWriter which distributes statements over a fixed number of partitions
+ * based on a hash of their subject.
+ *
+ * <p>
+ * The partition of a subject only depends on the subject itself and the number
+ * of partitions, so all statements about an entity end up in the same
+ * partition across all source files. Statements about a blank node are
+ * partitioned by the blank node's id.
+ * </p>
+ *
+ * <p>
+ * The writer for a partition is created when the first statement of the
+ * partition is written, so no output is created for empty partitions. Created
+ * writers are expected to be started already, i.e. {@link #startRDF()} is not
+ * forwarded.
+ * </p>
+ */
+public class PartitionedRDFWriter implements RDFWriter, RecordAware {
+
+    /**
+     * Factory for the writers of the partitions.
+     */
+    @FunctionalInterface
+    public interface PartitionWriterFactory {
+        /**
+         * Create the writer for a partition.
+         *
+         * @param partition number of the partition
+         * @return started writer
+         * @throws IOException in case of errors
+         */
+        RDFWriter createWriter(int partition) throws IOException;
+    }
+
+    private final RDFFormat format;
+    private final int partitions;
+    private final PartitionWriterFactory factory;
+    private final RDFWriter[] writers;
+    private final Map<String, String> namespaces = new LinkedHashMap<>();
+    private WriterConfig config = new WriterConfig();
+
+    public PartitionedRDFWriter(RDFFormat format, int partitions, PartitionWriterFactory factory) {
+        this.format = format;
+        this.partitions = partitions;
+        this.factory = factory;
+        this.writers = new RDFWriter[partitions];
+    }
+
+    /**
+     * Determine the partition of a subject.
+     *
+     * @param subject    subject of a statement
+     * @param partitions number of partitions
+     * @return partition number between 0 and <code>partitions - 1</code>
+     */
+    public static int partitionFor(Resource subject, int partitions) {
+        return (int) Math.floorMod(FingerprintFilter.mix(subject.stringValue().hashCode()), (long) partitions);
+    }
+
+    public int getPartitionCount() {
+        return partitions;
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        writerFor(partitionFor(st.getSubject(), partitions)).handleStatement(st);
+    }
+
+    private RDFWriter writerFor(int partition) {
+        RDFWriter writer = writers[partition];
+        if (writer == null) {
+            try {
+                writer = factory.createWriter(partition);
+            } catch (IOException e) {
+                throw new RDFHandlerException("failed to create output for partition " + partition + ": "
+                        + e.getMessage(), e);
+            }
+            // namespaces declared after the start of the output
+            namespaces.forEach(writer::handleNamespace);
+            writers[partition] = writer;
+        }
+        return writer;
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+        // writers are started when they are created
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        for (RDFWriter writer : writers) {
+            if (writer != null) {
+                writer.endRDF();
+            }
+        }
+    }
+
+    @Override
+    public void endRecord() throws RDFHandlerException {
+        for (RDFWriter writer : writers) {
+            if (writer != null) {
+                RecordAware.endRecord(writer);
+            }
+        }
+    }
+
+    @Override
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+        namespaces.put(prefix, uri);
+        for (RDFWriter writer : writers) {
+            if (writer != null) {
+                writer.handleNamespace(prefix, uri);
+            }
+        }
+    }
+
+    @Override
+    public void handleComment(String comment) throws RDFHandlerException {
+        for (RDFWriter writer : writers) {
+            if (writer != null) {
+                writer.handleComment(comment);
+            }
+        }
+    }
+
+    @Override
+    public RDFFormat getRDFFormat() {
+        return format;
+    }
+
+    @Override
+    public RDFWriter setWriterConfig(WriterConfig config) {
+        this.config = config;
+        return this;
+    }
+
+    @Override
+    public WriterConfig getWriterConfig() {
+        return config;
+    }
+
+    @Override
+    public Collection<RioSetting<?>> getSupportedSettings() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public <T> RDFWriter set(RioSetting<T> setting, T value) {
+        config.set(setting, value);
+        return this;
+    }
+}
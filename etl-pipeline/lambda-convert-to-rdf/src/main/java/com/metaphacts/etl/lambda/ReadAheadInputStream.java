@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * {@link InputStream} which reads ahead from a source stream on a background
+ * thread.
+ *
+ * <p>
+ * Data is read in chunks of a fixed size. Up to a configurable number of chunks
+ * is buffered, so reading from a slow source (e.g. a network stream) overlaps
+ * with processing the data which has already been read. Chunk buffers are
+ * recycled to avoid allocating large arrays over and over.
+ * </p>
+ */
+public class ReadAheadInputStream extends InputStream {
+    private static final Chunk END = new Chunk(new byte[0], 0);
+
+    private final InputStream source;
+    private final int chunkSize;
+    private final BlockingQueue<Chunk> filled;
+    private final BlockingQueue<byte[]> free;
+    private final Thread readerThread;
+
+    private volatile Throwable error;
+    private volatile boolean closed = false;
+
+    private Chunk current;
+    private int position;
+    private boolean finished = false;
+
+    /**
+     * Create a read-ahead stream.
+     *
+     * @param source    source stream to read from
+     * @param chunkSize size of each chunk in bytes
+     * @param chunks    maximum number of chunks to read ahead
+     */
+    public ReadAheadInputStream(InputStream source, int chunkSize, int chunks) {
+        this.source = source;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.filled = new ArrayBlockingQueue<>(Math.max(1, chunks) + 1);
+        this.free = new ArrayBlockingQueue<>(Math.max(1, chunks) + 2);
+        this.readerThread = new NamedThreadFactory("read-ahead").newThread(this::readAhead);
+        this.readerThread.start();
+    }
+
+    private void readAhead() {
+        try {
+            while (!closed) {
+                byte[] buffer = free.poll();
+                if (buffer == null) {
+                    buffer = new byte[chunkSize];
+                }
+                int length = source.readNBytes(buffer, 0, buffer.length);
+                if (length > 0) {
+                    filled.put(new Chunk(buffer, length));
+                }
+                if (length < buffer.length) {
+                    // end of stream
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // stream was closed
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException | Error e) {
+            // e.g. SDK exceptions of S3 response streams, handed to the reading thread
+            error = e;
+        } finally {
+            // always signal the end, otherwise the reading thread waits forever
+            if (!closed) {
+                try {
+                    filled.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Make sure there is data available in the current chunk.
+     *
+     * @return <code>true</code> if data is available, <code>false</code> at the end
+     *         of the stream
+     * @throws IOException in case of errors
+     */
+    private boolean ensureData() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        if (current != null) {
+            // recycle buffer of the consumed chunk
+            free.offer(current.data);
+            current = null;
+        }
+        try {
+            Chunk next = filled.take();
+            if (next == END) {
+                finished = true;
+                Throwable e = error;
+                if (e instanceof IOException) {
+                    throw (IOException) e;
+                } else if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                } else if (e instanceof Error) {
+                    throw (Error) e;
+                }
+                return false;
+            }
+            current = next;
+            position = 0;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for data");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current.data[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed || current == null) {
+            return 0;
+        }
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        readerThread.interrupt();
+        filled.clear();
+        source.close();
+    }
+
+    private static class Chunk {
+        private final byte[] data;
+        private final int length;
+
+        Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
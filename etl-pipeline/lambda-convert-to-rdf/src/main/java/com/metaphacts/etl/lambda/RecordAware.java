@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+
+/**
+ * Handler which is notified about the end of a mapped record, e.g. a line of a
+ * JSONL file.
+ *
+ * <p>
+ * Writers wrapping other writers forward the notification to their delegate,
+ * so it reaches the writer serializing the output.
+ * </p>
+ */
+public interface RecordAware {
+    /**
+     * Signal that all statements of the current record have been handled.
+     * 
+     * @throws RDFHandlerException in case of errors
+     */
+    void endRecord() throws RDFHandlerException;
+
+    /**
+     * Signal the end of a record to a handler if it is interested in records.
+     * 
+     * @param handler handler to notify
+     * @throws RDFHandlerException in case of errors
+     */
+    static void endRecord(RDFHandler handler) throws RDFHandlerException {
+        if (handler instanceof RecordAware) {
+            ((RecordAware) handler).endRecord();
+        }
+    }
+}
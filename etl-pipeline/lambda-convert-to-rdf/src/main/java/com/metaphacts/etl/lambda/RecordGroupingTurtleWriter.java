@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.RioSetting;
+import org.eclipse.rdf4j.rio.WriterConfig;
+import org.eclipse.rdf4j.rio.ntriples.NTriplesUtil;
+
+/**
+ * Writer for TriG and Turtle which groups statements by subject within a
+ * record.
+ *
+ * <p>
+ * The pretty printing of the Rio writers buffers all statements of a document
+ * to group them by subject. This writer only buffers the statements of the
+ * current record and writes them when {@link #endRecord()} is called, with the
+ * statements about a subject in a compact block:
+ * </p>
+ *
+ * <pre>
+ * ex:subject a ex:Type;
+ *   rdfs:label "label";
+ *   ex:related ex:other1, ex:other2 .
+ * </pre>
+ *
+ * <p>
+ * IRIs are abbreviated with the declared namespaces. For TriG, the graph block
+ * is kept open while the context of the statements does not change, so with a
+ * fixed context the whole output is written as a single graph block. To limit
+ * memory usage when no records are signaled, the statements are written after
+ * a maximum number of statements has been buffered.
+ * </p>
+ */
+public class RecordGroupingTurtleWriter implements FixedContextRDFWriter, RecordAware {
+    private static final int DEFAULT_MAX_BUFFERED = 10000;
+    private static final String INDENT = "  ";
+
+    private final Writer out;
+    private final RDFFormat format;
+    private final boolean writeContext;
+    private final int maxBuffered;
+    private final Map<String, String> prefixByNamespace = new HashMap<>();
+    private final List<Statement> buffer = new ArrayList<>();
+    private WriterConfig config = new WriterConfig();
+    private Resource fixedContext;
+    private boolean graphOpen = false;
+    private Resource currentGraph;
+
+    public RecordGroupingTurtleWriter(OutputStream out, RDFFormat format) {
+        this(out, format, DEFAULT_MAX_BUFFERED);
+    }
+
+    /**
+     * Create a writer.
+     *
+     * @param out         stream to write to
+     * @param format      {@link RDFFormat#TRIG} or {@link RDFFormat#TURTLE}
+     * @param maxBuffered maximum number of statements to buffer before they are
+     *                    written without waiting for the end of the record
+     */
+    public RecordGroupingTurtleWriter(OutputStream out, RDFFormat format, int maxBuffered) {
+        if (!supports(format)) {
+            throw new IllegalArgumentException("unsupported format: " + format);
+        }
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        this.format = format;
+        this.writeContext = RDFFormat.TRIG.equals(format);
+        this.maxBuffered = maxBuffered;
+    }
+
+    /**
+     * Determine whether a format is supported by this writer.
+     *
+     * @param format RDF format
+     * @return <code>true</code> if the format is supported
+     */
+    public static boolean supports(RDFFormat format) {
+        return RDFFormat.TRIG.equals(format) || RDFFormat.TURTLE.equals(format);
+    }
+
+    @Override
+    public void setFixedContext(Resource context) {
+        this.fixedContext = context;
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+        // no header
+    }
+
+    @Override
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+        try {
+            writeRecord();
+            // prefixes cannot be declared within a graph block
+            closeGraph();
+            out.write("@prefix " + prefix + ": " + NTriplesUtil.toNTriplesString(Values.iri(uri)) + " .\n");
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+        prefixByNamespace.put(uri, prefix);
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        buffer.add(st);
+        if (buffer.size() >= maxBuffered) {
+            endRecord();
+        }
+    }
+
+    @Override
+    public void endRecord() throws RDFHandlerException {
+        try {
+            writeRecord();
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    @Override
+    public void handleComment(String comment) throws RDFHandlerException {
+        try {
+            writeRecord();
+            for (String line : comment.split("\r\n|\r|\n")) {
+                out.write("# ");
+                out.write(line);
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        try {
+            writeRecord();
+            closeGraph();
+            out.flush();
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    private void writeRecord() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        // group statements by graph, subject and predicate in the order of
+        // their first occurrence
+        Map<Resource, Map<Resource, Map<IRI, List<Value>>>> graphs = new LinkedHashMap<>();
+        for (Statement st : buffer) {
+            Resource graph = writeContext ? (fixedContext != null ? fixedContext : st.getContext()) : null;
+            graphs.computeIfAbsent(graph, g -> new LinkedHashMap<>())
+                    .computeIfAbsent(st.getSubject(), s -> new LinkedHashMap<>())
+                    .computeIfAbsent(st.getPredicate(), p -> new ArrayList<>())
+                    .add(st.getObject());
+        }
+        buffer.clear();
+
+        for (Map.Entry<Resource, Map<Resource, Map<IRI, List<Value>>>> graph : graphs.entrySet()) {
+            openGraph(graph.getKey());
+            String indent = graphOpen ? INDENT : "";
+            for (Map.Entry<Resource, Map<IRI, List<Value>>> subject : graph.getValue().entrySet()) {
+                out.write(indent);
+                writeValue(subject.getKey());
+                boolean firstPredicate = true;
+                for (Map.Entry<IRI, List<Value>> predicate : subject.getValue().entrySet()) {
+                    if (!firstPredicate) {
+                        out.write(";\n");
+                        out.write(indent);
+                        out.write(INDENT);
+                    }
+                    firstPredicate = false;
+                    out.write(' ');
+                    if (RDF.TYPE.equals(predicate.getKey())) {
+                        out.write('a');
+                    } else {
+                        writeValue(predicate.getKey());
+                    }
+                    boolean firstObject = true;
+                    for (Value object : predicate.getValue()) {
+                        out.write(firstObject ? " " : ", ");
+                        firstObject = false;
+                        writeValue(object);
+                    }
+                }
+                out.write(" .\n");
+            }
+        }
+    }
+
+    private void openGraph(Resource graph) throws IOException {
+        if (graphOpen && Objects.equals(graph, currentGraph)) {
+            return;
+        }
+        closeGraph();
+        if (graph != null) {
+            writeValue(graph);
+            out.write(" {\n");
+            graphOpen = true;
+            currentGraph = graph;
+        }
+    }
+
+    private void closeGraph() throws IOException {
+        if (graphOpen) {
+            out.write("}\n");
+            graphOpen = false;
+            currentGraph = null;
+        }
+    }
+
+    private void writeValue(Value value) throws IOException {
+        if (value.isIRI()) {
+            writeIRI((IRI) value);
+        } else if (value.isLiteral()) {
+            Literal literal = (Literal) value;
+            out.write('"');
+            out.write(NTriplesUtil.escapeString(literal.getLabel()));
+            out.write('"');
+            if (literal.getLanguage().isPresent()) {
+                out.write('@');
+                out.write(literal.getLanguage().get());
+            } else if (!XSD.STRING.equals(literal.getDatatype())) {
+                out.write("^^");
+                writeIRI(literal.getDatatype());
+            }
+        } else {
+            // blank nodes and triples
+            out.write(NTriplesUtil.toNTriplesString(value));
+        }
+    }
+
+    private void writeIRI(IRI iri) throws IOException {
+        String prefix = prefixByNamespace.get(iri.getNamespace());
+        if (prefix != null && isLocalName(iri.getLocalName())) {
+            out.write(prefix);
+            out.write(':');
+            out.write(iri.getLocalName());
+        } else {
+            out.write(NTriplesUtil.toNTriplesString(iri));
+        }
+    }
+
+    /**
+     * Determine whether a local name can be written as part of a prefixed name
+     * without escaping. Only a conservative subset of the allowed characters is
+     * accepted.
+     */
+    static boolean isLocalName(String localName) {
+        for (int i = 0; i < localName.length(); i++) {
+            char c = localName.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                continue;
+            }
+            if ((c == '-' || c == '.') && i > 0 && i < localName.length() - 1) {
+                continue;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public RDFFormat getRDFFormat() {
+        return format;
+    }
+
+    @Override
+    public RDFWriter setWriterConfig(WriterConfig config) {
+        this.config = config;
+        return this;
+    }
+
+    @Override
+    public WriterConfig getWriterConfig() {
+        return config;
+    }
+
+    @Override
+    public Collection<RioSetting<?>> getSupportedSettings() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public <T> RDFWriter set(RioSetting<T> setting, T value) {
+        config.set(setting, value);
+        return this;
+    }
+}
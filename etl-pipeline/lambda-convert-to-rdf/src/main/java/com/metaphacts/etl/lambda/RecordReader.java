@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Reader for the records of a source file which are mapped independently of
+ * each other.
+ */
+public interface RecordReader extends Closeable {
+
+    /**
+     * Read the next record.
+     *
+     * @return next record or <code>null</code> at the end of the source
+     * @throws IOException in case of errors
+     */
+    String nextRecord() throws IOException;
+
+    /**
+     * Create a reader providing each line as one record.
+     *
+     * @param reader source reader
+     * @return record reader
+     */
+    static RecordReader lines(BufferedReader reader) {
+        return new RecordReader() {
+            @Override
+            public String nextRecord() throws IOException {
+                return reader.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    /**
+     * Create a reader streaming JSON records.
+     *
+     * <p>
+     * The source may contain any number of top-level JSON values (e.g. a single
+     * JSON document or JSONL). Each top-level object is one record, top-level
+     * arrays are streamed element by element with each element being one record.
+     * Only a single record is kept in memory at any time, so huge arrays as well
+     * as huge JSONL lines consisting of an array can be processed with bounded
+     * memory.
+     * </p>
+     *
+     * @param reader source reader
+     * @return record reader
+     */
+    static RecordReader json(Reader reader) {
+        return new JsonRecordReader(reader);
+    }
+
+    /**
+     * {@link RecordReader} pulling one JSON record at a time from a streaming
+     * parser.
+     */
+    class JsonRecordReader implements RecordReader {
+        private final JsonReader jsonReader;
+        private boolean inArray = false;
+
+        JsonRecordReader(Reader reader) {
+            this.jsonReader = new JsonReader(reader);
+            // allow multiple top-level values
+            this.jsonReader.setLenient(true);
+        }
+
+        @Override
+        public String nextRecord() throws IOException {
+            try {
+                while (true) {
+                    JsonToken token;
+                    try {
+                        token = jsonReader.peek();
+                    } catch (EOFException e) {
+                        if (inArray) {
+                            throw e;
+                        }
+                        // empty source
+                        return null;
+                    }
+                    if (inArray) {
+                        if (token == JsonToken.END_ARRAY) {
+                            jsonReader.endArray();
+                            inArray = false;
+                            continue;
+                        }
+                        return readRecord();
+                    }
+                    switch (token) {
+                    case END_DOCUMENT:
+                        return null;
+                    case BEGIN_ARRAY:
+                        jsonReader.beginArray();
+                        inArray = true;
+                        continue;
+                    default:
+                        return readRecord();
+                    }
+                }
+            } catch (JsonParseException | IllegalStateException e) {
+                throw new IOException("invalid JSON at " + jsonReader.getPath() + ": " + e.getMessage(), e);
+            }
+        }
+
+        private String readRecord() {
+            JsonElement record = JsonParser.parseReader(jsonReader);
+            return record.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            jsonReader.close();
+        }
+    }
+}
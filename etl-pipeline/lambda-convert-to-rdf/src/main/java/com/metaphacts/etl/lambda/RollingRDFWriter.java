@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.RioSetting;
+import org.eclipse.rdf4j.rio.WriterConfig;
+
+/**
+ * RDFWriter which splits its output into multiple parts of limited size.
+ *
+ * <p>
+ * Once the current part has reached the maximum number of statements or
+ * (uncompressed) bytes, it is ended and closed, so each part is a complete RDF
+ * document. The next part is opened when the next statement is written. The
+ * first part is opened by {@link #startRDF()}, so there is always at least one
+ * part.
+ * </p>
+ *
+ * <p>
+ * The size of a part is checked after each statement. As writers may buffer
+ * statements, parts may exceed the maximum size slightly.
+ * </p>
+ */
+public class RollingRDFWriter implements RDFWriter, RecordAware {
+
+    /**
+     * Factory for the parts of the output.
+     */
+    @FunctionalInterface
+    public interface PartFactory {
+        /**
+         * Open a part of the output.
+         *
+         * @param part number of the part, starting at 0
+         * @return output file with a started writer
+         * @throws IOException in case of errors
+         */
+        OutputFile openPart(int part) throws IOException;
+    }
+
+    private final RDFFormat format;
+    private final long maxStatements;
+    private final long maxBytes;
+    private final PartFactory factory;
+    private final Map<String, String> namespaces = new LinkedHashMap<>();
+    private WriterConfig config = new WriterConfig();
+    private OutputFile current;
+    private int partCount = 0;
+
+    /**
+     * Create a writer.
+     *
+     * @param format        RDF format of the parts
+     * @param maxStatements maximum number of statements per part, 0 for no limit
+     * @param maxBytes      maximum number of (uncompressed) bytes per part, 0 for
+     *                      no limit
+     * @param factory       factory for the parts
+     */
+    public RollingRDFWriter(RDFFormat format, long maxStatements, long maxBytes, PartFactory factory) {
+        this.format = format;
+        this.maxStatements = maxStatements;
+        this.maxBytes = maxBytes;
+        this.factory = factory;
+    }
+
+    /**
+     * Get the number of parts opened so far.
+     *
+     * @return number of parts
+     */
+    public int getPartCount() {
+        return partCount;
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+        openPart();
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        if (current == null) {
+            openPart();
+        }
+        current.getWriter().handleStatement(st);
+        current.countStatement();
+        if ((maxStatements > 0 && current.getStatementCount() >= maxStatements)
+                || (maxBytes > 0 && current.getSize() >= maxBytes)) {
+            closePart();
+        }
+    }
+
+    private void openPart() {
+        try {
+            current = factory.openPart(partCount++);
+        } catch (IOException e) {
+            throw new RDFHandlerException("failed to open output part " + (partCount - 1) + ": " + e.getMessage(),
+                    e);
+        }
+        // namespaces declared after the start of the output
+        namespaces.forEach(current.getWriter()::handleNamespace);
+    }
+
+    private void closePart() {
+        OutputFile part = current;
+        current = null;
+        part.getWriter().endRDF();
+        try {
+            part.close();
+        } catch (IOException e) {
+            throw new RDFHandlerException("failed to close output part " + part + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        if (current != null) {
+            // the remaining part is closed together with all other output files
+            current.getWriter().endRDF();
+            current = null;
+        }
+    }
+
+    @Override
+    public void endRecord() throws RDFHandlerException {
+        if (current != null) {
+            RecordAware.endRecord(current.getWriter());
+        }
+    }
+
+    @Override
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+        namespaces.put(prefix, uri);
+        if (current != null) {
+            current.getWriter().handleNamespace(prefix, uri);
+        }
+    }
+
+    @Override
+    public void handleComment(String comment) throws RDFHandlerException {
+        if (current != null) {
+            current.getWriter().handleComment(comment);
+        }
+    }
+
+    @Override
+    public RDFFormat getRDFFormat() {
+        return format;
+    }
+
+    @Override
+    public RDFWriter setWriterConfig(WriterConfig config) {
+        this.config = config;
+        return this;
+    }
+
+    @Override
+    public WriterConfig getWriterConfig() {
+        return config;
+    }
+
+    @Override
+    public Collection<RioSetting<?>> getSupportedSettings() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public <T> RDFWriter set(RioSetting<T> setting, T value) {
+        config.set(setting, value);
+        return this;
+    }
+}
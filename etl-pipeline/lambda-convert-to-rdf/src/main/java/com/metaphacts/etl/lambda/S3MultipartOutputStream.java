@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+/**
+ * {@link OutputStream} which uploads all data written to it to a S3 bucket
+ * while it is being written.
+ *
+ * <p>
+ * Data is collected in parts of a fixed size which are uploaded concurrently
+ * using a S3 multipart upload. Only a bounded number of parts is kept in
+ * memory: when all upload slots are busy, writing blocks until a part has been
+ * uploaded. The upload is completed when the stream is closed.
+ * </p>
+ *
+ * <p>
+ * Parts are uploaded using an executor which may be shared by many streams.
+ * The buffer of the first part grows with the data written, so many small
+ * streams do not allocate a full part each. When the data fits into a single
+ * part, it is uploaded using a simple {@code PutObject} request instead.
+ * </p>
+ *
+ * <p>
+ * In case of errors {@link #abort()} should be called to discard all uploaded
+ * parts. It is called automatically when an upload of a part fails.
+ * </p>
+ */
+public class S3MultipartOutputStream extends OutputStream {
+    /**
+     * Minimum part size for S3 multipart uploads (except for the last part).
+     */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(S3MultipartOutputStream.class);
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String key;
+    private final int partSize;
+    private final Semaphore uploadSlots;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final Executor executor;
+    private final List<Future<CompletedPart>> parts = new ArrayList<>();
+
+    private String uploadId;
+    private byte[] buffer = new byte[0];
+    private int position = 0;
+    private boolean closed = false;
+    private boolean aborted = false;
+    private boolean completed = false;
+
+    /**
+     * Create a stream uploading to S3.
+     *
+     * @param s3          S3 client
+     * @param bucket      bucket to upload to
+     * @param key         key (path) within the bucket
+     * @param partSize    size of each part in bytes, at least
+     *                    {@value #MIN_PART_SIZE}
+     * @param concurrency maximum number of parts of this stream being uploaded
+     *                    concurrently
+     * @param executor    executor used to upload parts
+     */
+    public S3MultipartOutputStream(S3Client s3, String bucket, String key, int partSize, int concurrency,
+            Executor executor) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.key = key;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        int slots = Math.max(1, concurrency);
+        this.uploadSlots = new Semaphore(slots);
+        this.freeBuffers = new ArrayBlockingQueue<>(slots + 1);
+        this.executor = executor;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        ensureBuffer();
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            ensureBuffer();
+            int count = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, count);
+            position += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (aborted) {
+            throw new IOException("upload to " + bucket + "/" + key + " was aborted");
+        }
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+    }
+
+    /**
+     * Make sure there is space in the buffer, by growing it up to the part size
+     * or by uploading the full buffer.
+     *
+     * @throws IOException in case of errors
+     */
+    private void ensureBuffer() throws IOException {
+        if (position < buffer.length) {
+            return;
+        }
+        if (buffer.length < partSize) {
+            byte[] grown = new byte[Math.min(partSize, Math.max(INITIAL_BUFFER_SIZE, 2 * buffer.length))];
+            System.arraycopy(buffer, 0, grown, 0, position);
+            buffer = grown;
+            return;
+        }
+        uploadPart();
+    }
+
+    /**
+     * Upload the current buffer as next part.
+     *
+     * @throws IOException in case of errors
+     */
+    private void uploadPart() throws IOException {
+        checkFailedParts();
+        if (uploadId == null) {
+            uploadId = s3.createMultipartUpload(
+                    CreateMultipartUploadRequest.builder().bucket(bucket).key(key).build()).uploadId();
+            logger.trace("Started multipart upload {} to {}/{}", uploadId, bucket, key);
+        }
+        try {
+            // wait for a free upload slot
+            uploadSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new InterruptedIOException("interrupted while waiting for upload of " + bucket + "/" + key);
+        }
+
+        final byte[] data = buffer;
+        final int length = position;
+        final int partNumber = parts.size() + 1;
+        FutureTask<CompletedPart> part = new FutureTask<>(() -> {
+            try {
+                UploadPartRequest request = UploadPartRequest.builder().bucket(bucket).key(key).uploadId(uploadId)
+                        .partNumber(partNumber).contentLength((long) length).build();
+                UploadPartResponse response = s3.uploadPart(request,
+                        RequestBody.fromByteBuffer(ByteBuffer.wrap(data, 0, length)));
+                return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+            } finally {
+                if (data.length == partSize) {
+                    freeBuffers.offer(data);
+                }
+                uploadSlots.release();
+            }
+        });
+        parts.add(part);
+        try {
+            executor.execute(part);
+        } catch (RuntimeException e) {
+            uploadSlots.release();
+            abort();
+            throw new IOException("failed to upload part to " + bucket + "/" + key + ": " + e.getMessage(), e);
+        }
+
+        // the last part may be smaller than the part size
+        byte[] next = freeBuffers.poll();
+        buffer = (next != null) ? next : new byte[0];
+        position = 0;
+    }
+
+    /**
+     * Fail early if the upload of a previous part failed.
+     *
+     * @throws IOException in case a part failed to upload
+     */
+    private void checkFailedParts() throws IOException {
+        for (Future<CompletedPart> part : parts) {
+            if (part.isDone()) {
+                waitForPart(part);
+            }
+        }
+    }
+
+    private CompletedPart waitForPart(Future<CompletedPart> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new InterruptedIOException("interrupted while waiting for upload of " + bucket + "/" + key);
+        } catch (ExecutionException e) {
+            abort();
+            throw new IOException("failed to upload part to " + bucket + "/" + key + ": " + e.getCause().getMessage(),
+                    e.getCause());
+        }
+    }
+
+    /**
+     * Complete the upload. Blocks until all parts have been uploaded.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed || aborted) {
+            return;
+        }
+        closed = true;
+        try {
+            if (uploadId == null) {
+                // all data fits into a single part
+                PutObjectRequest request = PutObjectRequest.builder().bucket(bucket).key(key).build();
+                s3.putObject(request, RequestBody.fromByteBuffer(ByteBuffer.wrap(buffer, 0, position)));
+                logger.trace("Uploaded {} bytes to {}/{}", position, bucket, key);
+                completed = true;
+                return;
+            }
+            if (position > 0) {
+                uploadPart();
+            }
+            List<CompletedPart> completedParts = new ArrayList<>();
+            for (Future<CompletedPart> part : parts) {
+                completedParts.add(waitForPart(part));
+            }
+            CompleteMultipartUploadRequest request = CompleteMultipartUploadRequest.builder().bucket(bucket)
+                    .key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build()).build();
+            s3.completeMultipartUpload(request);
+            completed = true;
+            logger.trace("Completed multipart upload of {} parts to {}/{}", completedParts.size(), bucket, key);
+        } catch (RuntimeException e) {
+            abort();
+            throw new IOException("failed to upload " + bucket + "/" + key + ": " + e.getMessage(), e);
+        } finally {
+            buffer = null;
+            freeBuffers.clear();
+        }
+    }
+
+    /**
+     * Abort the upload and discard all parts uploaded so far. Any further writes
+     * will fail, closing the stream has no effect. Aborting a completed upload
+     * has no effect.
+     */
+    public void abort() {
+        if (aborted || completed) {
+            return;
+        }
+        aborted = true;
+        for (Future<CompletedPart> part : parts) {
+            part.cancel(true);
+        }
+        buffer = new byte[0];
+        freeBuffers.clear();
+        if (uploadId != null) {
+            try {
+                s3.abortMultipartUpload(
+                        AbortMultipartUploadRequest.builder().bucket(bucket).key(key).uploadId(uploadId).build());
+                logger.debug("Aborted multipart upload to {}/{}", bucket, key);
+            } catch (Exception e) {
+                logger.warn("Failed to abort multipart upload to {}/{}: {}", bucket, key, e.getMessage());
+                logger.debug("Details: ", e);
+            }
+        }
+    }
+}
@@ -18,7 +18,10 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.util.Statements;
 import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -108,6 +111,21 @@ public class SpecialCases {
     }
 
     public String preprocessLine(String line, Model out) {
+        return preprocessLine(line, new StatementCollector(out));
+    }
+
+    public String preprocessLine(String line, RDFHandler out) {
+        return wrapRecords(List.of(preprocessRecord(line, out)));
+    }
+
+    /**
+     * Preprocess a single record without wrapping it for the mapping.
+     * 
+     * @param line source record
+     * @param out  handler for additional statements
+     * @return preprocessed record
+     */
+    public String preprocessRecord(String line, RDFHandler out) {
         // TODO refactor as processor
         if (indexPreprocessingEnabled || parentPreprocessingEnabled) {
             Gson gson = new Gson();
@@ -120,15 +138,32 @@ public class SpecialCases {
             if (fromJson.getAsJsonObject().has("ocid")){
                 id = fromJson.getAsJsonObject().get("ocid").getAsString();
             }
-            out.add(Values.bnode(), ID_IRI, Values.literal(id));
+            out.handleStatement(Statements.statement(Values.bnode(), ID_IRI, Values.literal(id), null));
             // materialize again as string
             line = fromJson.toString();
         }
+        return line;
+    }
 
+    /**
+     * Wrap preprocessed records into a single document for the mapping.
+     * 
+     * <p>
+     * Multiple records can only be combined when
+     * {@link #supportsBatching(Mapping)} returns <code>true</code>.
+     * </p>
+     * 
+     * @param records preprocessed records
+     * @return document to map
+     */
+    public String wrapRecords(List<String> records) {
+        String line;
         // TODO refactor as processor root-to-list
         if (listPreprocessingEnabled) {
             // wrap as object with a list element
-            line = "{\"list\":[" + line + "]}";
+            line = "{\"list\":[" + String.join(",", records) + "]}";
+        } else {
+            line = String.join("\n", records);
         }
 
         if ((indexPreprocessingEnabled || parentPreprocessingEnabled || listPreprocessingEnabled)
@@ -139,6 +174,24 @@ public class SpecialCases {
         return line;
     }
 
+    /**
+     * Determine whether multiple records may be mapped together with a single
+     * mapper call.
+     * 
+     * <p>
+     * This is only possible when records are wrapped in a list, as the mapping
+     * then iterates over the list elements anyway, and when the results need not
+     * be attributed to individual records for change detection.
+     * </p>
+     * 
+     * @param mapping mapping to apply
+     * @return <code>true</code> if records may be mapped in batches
+     */
+    public boolean supportsBatching(Mapping mapping) {
+        return listPreprocessingEnabled && !onlyDetectLastUpdate
+                && !requiresRecordModel(mapping);
+    }
+
     // TODO refactor as processor "json-hierarchy"
     private void materializeContextInfo(JsonElement jsonNodeToProcess) {
         List<String> FIELDS_TO_MATERIALIZE = Arrays.asList("id", "name", "domain", "ocid");
@@ -199,10 +252,26 @@ public class SpecialCases {
         return true;
     }
 
+    /**
+     * Determine whether {@link #saveProcessTriples(TaskContext, Mapping, Path, Model, PrintWriter)}
+     * needs to inspect the statements of each record.
+     * 
+     * <p>
+     * If not, the statements of a record can be written as they are without
+     * materializing them as {@link Model}.
+     * </p>
+     * 
+     * @param mapping mapping to apply
+     * @return <code>true</code> if a model is required for each record
+     */
+    public boolean requiresRecordModel(Mapping mapping) {
+        return mapping.getMappingSpec().hasProcessingHint("last-update");
+    }
+
     public boolean saveProcessTriples(TaskContext tctx, Mapping mapping, Path sourceFile, Model model,
             PrintWriter outDelete) {
         // TODO refactor as processor: "last-update"
-        if (!mapping.getMappingSpec().hasProcessingHint("last-update")) {
+        if (!requiresRecordModel(mapping)) {
             return true;
         }
 
@@ -215,7 +284,7 @@ public class SpecialCases {
         boolean addTriplesToOutput = true;
         var docid = Models.objectString(model.getStatements(null, ID_IRI, null)).orElse("-none-");
 
-        String version = tctx.getTask().getS3Key();
+        String version = tctx.getSourceKey();
         String lookupKey = uploadBucket + mapping.getMappingSpec().getDatasetIri() + mapping.getType() + docid;
         String lookupKeyHash = DigestUtils.sha256Hex(lookupKey);
         if (onlyDetectLastUpdate) {
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+/**
+ * Append-only buffer for statements.
+ *
+ * <p>
+ * Like a {@link Model} the buffer drops duplicate statements, but it does not
+ * index them, it merely keeps them in the order in which they were first
+ * received. It is used to hand the mapping results of a single record from a
+ * worker thread to the writer with as little overhead as possible. A
+ * {@link Model} can be created on demand when the statements of a record need
+ * to be inspected.
+ * </p>
+ */
+public class StatementBuffer extends AbstractRDFHandler implements Iterable<Statement> {
+    private final Set<Statement> statements;
+
+    public StatementBuffer() {
+        this(16);
+    }
+
+    public StatementBuffer(int initialCapacity) {
+        this.statements = new LinkedHashSet<>(initialCapacity);
+    }
+
+    @Override
+    public void handleStatement(Statement st) {
+        statements.add(st);
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    public boolean isEmpty() {
+        return statements.isEmpty();
+    }
+
+    @Override
+    public Iterator<Statement> iterator() {
+        return statements.iterator();
+    }
+
+    /**
+     * Forward all buffered statements to the provided handler.
+     *
+     * @param handler handler to send statements to
+     * @return number of statements
+     */
+    public long writeTo(RDFHandler handler) {
+        for (Statement st : statements) {
+            handler.handleStatement(st);
+        }
+        return statements.size();
+    }
+
+    /**
+     * Create a {@link Model} containing the buffered statements.
+     *
+     * @return new model
+     */
+    public Model toModel() {
+        return new LinkedHashModel(statements);
+    }
+}
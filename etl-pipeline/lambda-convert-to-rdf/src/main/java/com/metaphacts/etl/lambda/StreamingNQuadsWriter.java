@@ -0,0 +1,423 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Triple;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.RioSetting;
+import org.eclipse.rdf4j.rio.WriterConfig;
+
+/**
+ * Streaming writer for N-Quads and N-Triples which encodes statements directly
+ * to UTF-8 bytes.
+ *
+ * <p>
+ * In contrast to the Rio writers, this writer does not buffer statements or
+ * create intermediate strings: each term is escaped and encoded into a
+ * reusable byte buffer which is written to the output stream when full. The
+ * encoded form of a fixed context is computed once and the encoded forms of
+ * recurring IRIs (predicates, types and datatypes) are kept in a small LRU
+ * cache.
+ * </p>
+ *
+ * <p>
+ * Namespaces are ignored as they cannot be expressed in N-Quads. This class is
+ * not thread-safe.
+ * </p>
+ */
+public class StreamingNQuadsWriter implements FixedContextRDFWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    private static final byte[] STATEMENT_END = " .\n".getBytes();
+
+    private final OutputStream out;
+    private final RDFFormat format;
+    private final boolean writeContext;
+    private final IriCache iriCache;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private byte[] fixedContext;
+    private WriterConfig config = new WriterConfig();
+
+    public StreamingNQuadsWriter(OutputStream out, RDFFormat format) {
+        this(out, format, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Create a writer.
+     *
+     * @param out       stream to write to
+     * @param format    {@link RDFFormat#NQUADS} or {@link RDFFormat#NTRIPLES}
+     * @param cacheSize maximum number of encoded IRIs to cache
+     */
+    public StreamingNQuadsWriter(OutputStream out, RDFFormat format, int cacheSize) {
+        if (!RDFFormat.NQUADS.equals(format) && !RDFFormat.NTRIPLES.equals(format)) {
+            throw new IllegalArgumentException("unsupported format: " + format);
+        }
+        this.out = out;
+        this.format = format;
+        this.writeContext = RDFFormat.NQUADS.equals(format);
+        this.iriCache = new IriCache(cacheSize);
+    }
+
+    /**
+     * Determine whether a format is supported by this writer.
+     *
+     * @param format RDF format
+     * @return <code>true</code> if the format is supported
+     */
+    public static boolean supports(RDFFormat format) {
+        return RDFFormat.NQUADS.equals(format) || RDFFormat.NTRIPLES.equals(format);
+    }
+
+    @Override
+    public void setFixedContext(Resource context) {
+        if (context == null || !writeContext) {
+            fixedContext = null;
+            return;
+        }
+        // encode context once
+        flushBuffer();
+        writeSpace();
+        writeResource(context);
+        fixedContext = new byte[position];
+        System.arraycopy(buffer, 0, fixedContext, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+        // no header
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        flushBuffer();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    @Override
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+        // not supported by N-Quads
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        writeResource(st.getSubject());
+        writeSpace();
+        writeCachedIri(st.getPredicate());
+        writeSpace();
+        Value object = st.getObject();
+        if (object.isIRI() && RDF.TYPE.equals(st.getPredicate())) {
+            writeCachedIri((IRI) object);
+        } else {
+            writeValue(object);
+        }
+        if (fixedContext != null) {
+            writeBytes(fixedContext);
+        } else if (writeContext && st.getContext() != null) {
+            writeSpace();
+            writeResource(st.getContext());
+        }
+        writeBytes(STATEMENT_END);
+    }
+
+    @Override
+    public void handleComment(String comment) throws RDFHandlerException {
+        for (String line : comment.split("\r\n|\r|\n")) {
+            writeByte('#');
+            writeSpace();
+            writeUtf8(line, false);
+            writeByte('\n');
+        }
+    }
+
+    private void writeValue(Value value) {
+        if (value.isLiteral()) {
+            writeLiteral((Literal) value);
+        } else {
+            writeResource((Resource) value);
+        }
+    }
+
+    private void writeResource(Resource resource) {
+        if (resource.isIRI()) {
+            writeIri((IRI) resource);
+        } else if (resource.isBNode()) {
+            writeBNode((BNode) resource);
+        } else if (resource.isTriple()) {
+            Triple triple = (Triple) resource;
+            writeByte('<');
+            writeByte('<');
+            writeSpace();
+            writeResource(triple.getSubject());
+            writeSpace();
+            writeIri(triple.getPredicate());
+            writeSpace();
+            writeValue(triple.getObject());
+            writeSpace();
+            writeByte('>');
+            writeByte('>');
+        } else {
+            throw new RDFHandlerException("unsupported value: " + resource);
+        }
+    }
+
+    private void writeCachedIri(IRI iri) {
+        byte[] encoded = iriCache.get(iri);
+        if (encoded != null) {
+            writeBytes(encoded);
+            return;
+        }
+        // worst case: every character is written as unicode escape
+        int maxLength = 6 * iri.stringValue().length() + 2;
+        if (maxLength > BUFFER_SIZE) {
+            writeIri(iri);
+            return;
+        }
+        if (BUFFER_SIZE - position < maxLength) {
+            flushBuffer();
+        }
+        int start = position;
+        writeIri(iri);
+        encoded = new byte[position - start];
+        System.arraycopy(buffer, start, encoded, 0, encoded.length);
+        iriCache.put(iri, encoded);
+    }
+
+    private void writeIri(IRI iri) {
+        writeByte('<');
+        String value = iri.stringValue();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c <= 0x20 || c == '<' || c == '>' || c == '"' || c == '{' || c == '}' || c == '|' || c == '^'
+                    || c == '`' || c == '\\') {
+                writeUnicodeEscape(c);
+            } else {
+                i = writeChar(value, i);
+            }
+        }
+        writeByte('>');
+    }
+
+    private void writeBNode(BNode bnode) {
+        writeByte('_');
+        writeByte(':');
+        String id = bnode.getID();
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || (i > 0 && (c == '-' || c == '_'))) {
+                writeByte(c);
+            } else {
+                // replace characters not allowed in blank node labels
+                writeByte('x');
+                writeHex(c);
+            }
+        }
+    }
+
+    private void writeLiteral(Literal literal) {
+        writeByte('"');
+        writeUtf8(literal.getLabel(), true);
+        writeByte('"');
+        if (literal.getLanguage().isPresent()) {
+            writeByte('@');
+            writeUtf8(literal.getLanguage().get(), false);
+        } else {
+            IRI datatype = literal.getDatatype();
+            if (datatype != null && !XSD.STRING.equals(datatype)) {
+                writeByte('^');
+                writeByte('^');
+                writeCachedIri(datatype);
+            }
+        }
+    }
+
+    private void writeUtf8(String value, boolean escape) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (escape) {
+                switch (c) {
+                case '\\':
+                    writeByte('\\');
+                    writeByte('\\');
+                    continue;
+                case '"':
+                    writeByte('\\');
+                    writeByte('"');
+                    continue;
+                case '\n':
+                    writeByte('\\');
+                    writeByte('n');
+                    continue;
+                case '\r':
+                    writeByte('\\');
+                    writeByte('r');
+                    continue;
+                case '\t':
+                    writeByte('\\');
+                    writeByte('t');
+                    continue;
+                default:
+                    if (c < 0x20 || c == 0x7f) {
+                        writeUnicodeEscape(c);
+                        continue;
+                    }
+                }
+            }
+            i = writeChar(value, i);
+        }
+    }
+
+    /**
+     * Write the character at the provided index as UTF-8.
+     *
+     * @return index of the last character consumed
+     */
+    private int writeChar(String value, int index) {
+        char c = value.charAt(index);
+        if (c < 0x80) {
+            writeByte(c);
+        } else if (c < 0x800) {
+            writeByte(0xc0 | (c >> 6));
+            writeByte(0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            writeByte(0xf0 | (codePoint >> 18));
+            writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+            writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+            writeByte(0x80 | (codePoint & 0x3f));
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            // unpaired surrogate
+            writeUnicodeEscape(c);
+        } else {
+            writeByte(0xe0 | (c >> 12));
+            writeByte(0x80 | ((c >> 6) & 0x3f));
+            writeByte(0x80 | (c & 0x3f));
+        }
+        return index;
+    }
+
+    private void writeUnicodeEscape(char c) {
+        writeByte('\\');
+        writeByte('u');
+        writeHex(c);
+    }
+
+    private void writeHex(char c) {
+        writeByte(HEX[(c >> 12) & 0xf]);
+        writeByte(HEX[(c >> 8) & 0xf]);
+        writeByte(HEX[(c >> 4) & 0xf]);
+        writeByte(HEX[c & 0xf]);
+    }
+
+    private void writeSpace() {
+        writeByte(' ');
+    }
+
+    private void writeByte(int b) {
+        if (position == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        if (bytes.length > BUFFER_SIZE - position) {
+            flushBuffer();
+            if (bytes.length > BUFFER_SIZE) {
+                try {
+                    out.write(bytes);
+                } catch (IOException e) {
+                    throw new RDFHandlerException(e);
+                }
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void flushBuffer() {
+        if (position == 0) {
+            return;
+        }
+        try {
+            out.write(buffer, 0, position);
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+        position = 0;
+    }
+
+    @Override
+    public RDFFormat getRDFFormat() {
+        return format;
+    }
+
+    @Override
+    public RDFWriter setWriterConfig(WriterConfig config) {
+        this.config = config;
+        return this;
+    }
+
+    @Override
+    public WriterConfig getWriterConfig() {
+        return config;
+    }
+
+    @Override
+    public Collection<RioSetting<?>> getSupportedSettings() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public <T> RDFWriter set(RioSetting<T> setting, T value) {
+        config.set(setting, value);
+        return this;
+    }
+
+    /**
+     * LRU cache of encoded IRIs.
+     */
+    private static class IriCache extends LinkedHashMap<IRI, byte[]> {
+        private static final long serialVersionUID = 1L;
+        private final int maxSize;
+
+        IriCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<IRI, byte[]> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -3,6 +3,14 @@
  */
 package com.metaphacts.etl.lambda;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.LambdaLogger;
 import com.amazonaws.services.lambda.runtime.events.S3BatchEvent.Task;
@@ -10,10 +18,34 @@ import com.amazonaws.services.lambda.runtime.events.S3BatchEvent.Task;
 public class TaskContext {
     protected final Context context;
     protected final Task task;
+    protected final Executor uploadExecutor;
+    protected final Semaphore pendingUploads;
+    protected final String sourceKey;
+    protected final Optional<ByteRange> byteRange;
+    private CompletableFuture<Void> uploads = CompletableFuture.completedFuture(null);
+    private final List<Path> outputFiles = new ArrayList<>();
 
     public TaskContext(Context context, Task task) {
+        // run uploads directly on the calling thread
+        this(context, task, Runnable::run, new Semaphore(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Create a task context.
+     * 
+     * @param context        Lambda context
+     * @param task           task to process
+     * @param uploadExecutor executor used for uploads, shared by all tasks
+     * @param pendingUploads permits for uploads which are scheduled but not done
+     *                       yet, shared by all tasks
+     */
+    public TaskContext(Context context, Task task, Executor uploadExecutor, Semaphore pendingUploads) {
         this.context = context;
         this.task = task;
+        this.uploadExecutor = uploadExecutor;
+        this.pendingUploads = pendingUploads;
+        this.sourceKey = ByteRange.stripFromKey(task.getS3Key());
+        this.byteRange = ByteRange.fromKey(task.getS3Key());
     }
 
     public Context getContext() {
@@ -27,4 +59,81 @@ public class TaskContext {
     public Task getTask() {
         return task;
     }
+
+    /**
+     * Get the key of the source object, without a byte range suffix.
+     * 
+     * @return key of the source object
+     */
+    public String getSourceKey() {
+        return sourceKey;
+    }
+
+    /**
+     * Get the byte range of the source object to process.
+     * 
+     * @return byte range or an empty {@link Optional} to process the whole object
+     */
+    public Optional<ByteRange> getByteRange() {
+        return byteRange;
+    }
+
+    /**
+     * Record an output file written for this task.
+     * 
+     * @param key key of the output file in the upload bucket
+     */
+    public synchronized void addOutputFile(Path key) {
+        outputFiles.add(key);
+    }
+
+    /**
+     * Get the output files written for this task so far.
+     * 
+     * @return keys of the output files
+     */
+    public synchronized List<Path> getOutputFiles() {
+        return new ArrayList<>(outputFiles);
+    }
+
+    /**
+     * Get the executor used for uploads. It is shared by all tasks of an
+     * invocation.
+     * 
+     * @return upload executor
+     */
+    public Executor getUploadExecutor() {
+        return uploadExecutor;
+    }
+
+    /**
+     * Schedule uploading results of this task.
+     * 
+     * <p>
+     * Uploads of a task are executed one after the other in the order in which
+     * they were scheduled, but possibly after the task itself has finished. When
+     * too many uploads are pending, this method blocks until one of them is
+     * done.
+     * </p>
+     * 
+     * @param upload upload to execute
+     * @throws InterruptedException when interrupted while waiting for pending
+     *                              uploads
+     */
+    public void scheduleUpload(Runnable upload) throws InterruptedException {
+        pendingUploads.acquire();
+        synchronized (this) {
+            uploads = uploads.thenRunAsync(upload, uploadExecutor)
+                    .whenComplete((result, e) -> pendingUploads.release());
+        }
+    }
+
+    /**
+     * Get a future which completes when all uploads scheduled so far are done.
+     * 
+     * @return future for pending uploads
+     */
+    public synchronized CompletableFuture<Void> getUploads() {
+        return uploads;
+    }
 }
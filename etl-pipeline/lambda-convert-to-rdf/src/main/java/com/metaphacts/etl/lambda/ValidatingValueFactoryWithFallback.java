@@ -5,6 +5,7 @@ package com.metaphacts.etl.lambda;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.base.CoreDatatype;
 
 /**
@@ -27,34 +28,14 @@ public class ValidatingValueFactoryWithFallback extends LoggingValidatingValueFa
     public ValidatingValueFactoryWithFallback() {
     }
 
-    public Literal createLiteral(String label, IRI datatype) {
-        try {
-            return super.createLiteral(label, datatype);
-        } catch (RuntimeException e) {
-            warn("Invalid value for datatype " + datatype + ": '" + label + "', returning plain string instead");
-            // ignore datatype, return plain string
-            return createLiteral(label);
-        }
+    public ValidatingValueFactoryWithFallback(ValueFactory delegate) {
+        super(delegate);
     }
 
-    public Literal createLiteral(String label, CoreDatatype datatype) {
-        try {
-            return super.createLiteral(label, datatype);
-        } catch (RuntimeException e) {
-            warn("Invalid value for datatype " + datatype + ": '" + label + "', returning plain string instead");
-            // ignore datatype, return plain string
-            return createLiteral(label);
-        }
-    }
-
-    public Literal createLiteral(String label, IRI datatype, CoreDatatype coreDatatype) {
-        try {
-            return super.createLiteral(label, datatype, coreDatatype);
-        } catch (RuntimeException e) {
-            warn("Invalid value for datatype " + datatype + ": '" + label + "', returning plain string instead");
-            // ignore datatype, return plain string
-            return createLiteral(label);
-        }
+    @Override
+    protected Literal handleInvalid(String label, IRI datatype, CoreDatatype coreDatatype, RuntimeException error) {
+        reportInvalid(label, datatype, coreDatatype, "returning plain string instead");
+        // ignore datatype, return plain string
+        return createLiteral(label);
     }
 }
-
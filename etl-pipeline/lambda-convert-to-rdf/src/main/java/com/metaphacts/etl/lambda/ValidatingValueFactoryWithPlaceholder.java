@@ -5,6 +5,7 @@ package com.metaphacts.etl.lambda;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.base.CoreDatatype;
 import org.eclipse.rdf4j.model.impl.ValidatingValueFactory;
 import org.eclipse.rdf4j.model.util.Values;
@@ -32,34 +33,15 @@ public class ValidatingValueFactoryWithPlaceholder extends LoggingValidatingValu
     public ValidatingValueFactoryWithPlaceholder() {
     }
 
-    public Literal createLiteral(String label, IRI datatype) {
-        try {
-            return super.createLiteral(label, datatype);
-        } catch (RuntimeException e) {
-            warn("Invalid value for datatype " + datatype + ": '" + label + "', returning placeholder instead");
-            // create placeholder value for the specified datatype
-            return createPlaceholder(label, datatype, null, e);
-        }
+    public ValidatingValueFactoryWithPlaceholder(ValueFactory delegate) {
+        super(delegate);
     }
 
-    public Literal createLiteral(String label, CoreDatatype datatype) {
-        try {
-            return super.createLiteral(label, datatype);
-        } catch (RuntimeException e) {
-            warn("Invalid value for datatype " + datatype + ": '" + label + "', returning placeholder instead");
-            // create placeholder value for the specified datatype
-            return createPlaceholder(label, null, datatype, e);
-        }
-    }
-
-    public Literal createLiteral(String label, IRI datatype, CoreDatatype coreDatatype) {
-        try {
-            return super.createLiteral(label, datatype, coreDatatype);
-        } catch (RuntimeException e) {
-            warn("Invalid value for datatype " + datatype + ": '" + label + "', returning placeholder instead");
-            // create placeholder value for the specified datatype
-            return createPlaceholder(label, datatype, coreDatatype, e);
-        }
+    @Override
+    protected Literal handleInvalid(String label, IRI datatype, CoreDatatype coreDatatype, RuntimeException error) {
+        reportInvalid(label, datatype, coreDatatype, "returning placeholder instead");
+        // create placeholder value for the specified datatype
+        return createPlaceholder(label, datatype, coreDatatype, error);
     }
 
     protected Literal createPlaceholder(String label, IRI datatype, CoreDatatype coreDatatype, Exception originalError) {
@@ -104,7 +86,8 @@ public class ValidatingValueFactoryWithPlaceholder extends LoggingValidatingValu
         }
         throw new IllegalArgumentException(
                 "Invalid value '" + label + "' for datatype '" + datatype.stringValue()
-                        + "': no replacement value available. Original error: " + originalError.getMessage(),
+                        + "': no replacement value available. Original error: "
+                        + (originalError != null ? originalError.getMessage() : "invalid lexical form"),
                 originalError);
     }
 }
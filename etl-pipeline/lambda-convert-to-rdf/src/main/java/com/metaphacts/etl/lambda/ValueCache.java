@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * Bounded cache of canonical {@link Value} instances.
+ *
+ * <p>
+ * {@link #intern(Value)} returns a previously cached value equal to the
+ * provided one, so recurring IRIs and literals share a single instance. The
+ * cache is split into segments which are locked independently, each holding
+ * the least recently used values up to its share of the memory limit. The
+ * memory used by a value is estimated from the length of its strings.
+ * </p>
+ *
+ * <p>
+ * Values with long strings are unlikely to recur and are passed through
+ * without being cached.
+ * </p>
+ */
+public class ValueCache {
+    private static final int SEGMENTS = 32;
+    // estimated memory of a cache entry and value object without strings
+    private static final long ENTRY_OVERHEAD = 120;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxLength;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a cache.
+     *
+     * @param maxMemory maximum estimated memory in bytes
+     * @param maxLength maximum length of the string value of cached values
+     */
+    public ValueCache(long maxMemory, int maxLength) {
+        this.maxLength = maxLength;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxMemory / SEGMENTS);
+        }
+    }
+
+    /**
+     * Get the canonical instance of a value.
+     *
+     * @param <V>   type of the value
+     * @param value value to intern
+     * @return cached value equal to the provided value or the provided value
+     *         itself
+     */
+    @SuppressWarnings("unchecked")
+    public <V extends Value> V intern(V value) {
+        if (value.stringValue().length() > maxLength) {
+            return value;
+        }
+        Segment segment = segments[(int) (FingerprintFilter.mix(value.hashCode()) & (SEGMENTS - 1))];
+        synchronized (segment) {
+            Value cached = segment.get(value);
+            if (cached != null) {
+                hits.increment();
+                // equal values always have the same type
+                return (V) cached;
+            }
+            misses.increment();
+            segment.add(value);
+        }
+        return value;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the ratio of lookups which returned a cached value.
+     *
+     * @return hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total > 0 ? (double) h / total : 0;
+    }
+
+    /**
+     * Get the number of cached values.
+     *
+     * @return number of values
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the estimated memory used by the cached values.
+     *
+     * @return memory in bytes
+     */
+    public long getMemory() {
+        long memory = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                memory += segment.memory;
+            }
+        }
+        return memory;
+    }
+
+    public String getSummary() {
+        return String.format("value cache: %d values (%d KB), hit rate %.1f%% (%d hits, %d misses, %d evictions)",
+                size(), getMemory() / 1024, getHitRate() * 100, getHits(), getMisses(), getEvictions());
+    }
+
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+
+    static long estimateMemory(Value value) {
+        long memory = ENTRY_OVERHEAD + 2L * value.stringValue().length();
+        if (value instanceof Literal) {
+            memory += ((Literal) value).getLanguage().map(lang -> 2L * lang.length()).orElse(0L);
+        }
+        return memory;
+    }
+
+    /**
+     * Segment of the cache with the values in least recently used order.
+     */
+    private class Segment extends LinkedHashMap<Value, Value> {
+        private static final long serialVersionUID = 1L;
+        private final long maxMemory;
+        private long memory = 0;
+
+        Segment(long maxMemory) {
+            super(16, 0.75f, true);
+            this.maxMemory = maxMemory;
+        }
+
+        void add(Value value) {
+            put(value, value);
+            memory += estimateMemory(value);
+            Iterator<Value> it = keySet().iterator();
+            while (memory > maxMemory && it.hasNext()) {
+                Value eldest = it.next();
+                it.remove();
+                memory -= estimateMemory(eldest);
+                evictions.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BatchingRDFWriterTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testStatementsAreWrittenInOrder() {
+        RecordingWriter delegate = new RecordingWriter(-1);
+        BatchingRDFWriter writer = new BatchingRDFWriter(delegate, 10, executor);
+        List<Statement> statements = statements(25);
+
+        writer.startRDF();
+        statements.forEach(writer::handleStatement);
+        // the trailing batch is only written when the output ends
+        writer.endRDF();
+
+        assertEquals(statements, delegate.written);
+        assertTrue(delegate.ended, "end of the output should be forwarded");
+    }
+
+    @Test
+    void testEndRecordIsForwardedAfterStatements() {
+        RecordingWriter delegate = new RecordingWriter(-1);
+        BatchingRDFWriter writer = new BatchingRDFWriter(delegate, 100, executor);
+        List<Statement> statements = statements(15);
+
+        writer.startRDF();
+        statements.subList(0, 5).forEach(writer::handleStatement);
+        writer.endRecord();
+        statements.subList(5, 15).forEach(writer::handleStatement);
+        writer.endRecord();
+        writer.endRDF();
+
+        assertEquals(List.of(5, 15), delegate.recordEnds, "records should end after their statements");
+        assertEquals(statements, delegate.written);
+    }
+
+    @Test
+    void testFailureOfDelegateIsRethrown() {
+        RecordingWriter delegate = new RecordingWriter(14);
+        BatchingRDFWriter writer = new BatchingRDFWriter(delegate, 10, executor);
+        List<Statement> statements = statements(40);
+
+        writer.startRDF();
+        RDFHandlerException failure = assertThrows(RDFHandlerException.class,
+                () -> statements.forEach(writer::handleStatement));
+        assertSame(delegate.failure, failure);
+
+        // the failure is sticky, the output is incomplete
+        assertSame(failure, assertThrows(RDFHandlerException.class,
+                () -> writer.handleStatement(statements.get(0))));
+        assertSame(failure, assertThrows(RDFHandlerException.class, writer::endRecord));
+        assertSame(failure, assertThrows(RDFHandlerException.class, writer::endRDF));
+        assertFalse(delegate.ended, "end of the output should not be forwarded after a failure");
+
+        // all statements before the failing one were written in order
+        assertEquals(statements.subList(0, 14), delegate.written);
+        writer.close();
+    }
+
+    @Test
+    void testFailureOfDelegateIsRethrownWithoutExecutor() {
+        RecordingWriter delegate = new RecordingWriter(14);
+        BatchingRDFWriter writer = new BatchingRDFWriter(delegate, 10);
+        List<Statement> statements = statements(40);
+
+        writer.startRDF();
+        RDFHandlerException failure = assertThrows(RDFHandlerException.class,
+                () -> statements.forEach(writer::handleStatement));
+        assertSame(delegate.failure, failure);
+        assertEquals(statements.subList(0, 14), delegate.written);
+    }
+
+    private static List<Statement> statements(int count) {
+        List<Statement> statements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            statements.add(Values.getValueFactory().createStatement(Values.iri("urn:entity:" + i), RDFS.LABEL,
+                    Values.literal("entity " + i)));
+        }
+        return statements;
+    }
+
+    /**
+     * Records the statements written to it and fails on the statement with the
+     * provided index.
+     */
+    static class RecordingWriter extends DelegatingRDFWriter {
+        final List<Statement> written = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> recordEnds = Collections.synchronizedList(new ArrayList<>());
+        final RDFHandlerException failure = new RDFHandlerException("failed to write statement");
+        final int failingIndex;
+        volatile boolean ended = false;
+
+        RecordingWriter(int failingIndex) {
+            super(Rio.createWriter(RDFFormat.NQUADS, OutputStream.nullOutputStream()));
+            this.failingIndex = failingIndex;
+        }
+
+        @Override
+        public void handleStatement(Statement st) throws RDFHandlerException {
+            if (written.size() == failingIndex) {
+                throw failure;
+            }
+            written.add(st);
+            super.handleStatement(st);
+        }
+
+        @Override
+        public void endRecord() throws RDFHandlerException {
+            recordEnds.add(written.size());
+            super.endRecord();
+        }
+
+        @Override
+        public void endRDF() throws RDFHandlerException {
+            ended = true;
+            super.endRDF();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class ConversionDiagnosticsTest {
+    private static final Pattern COUNT = Pattern.compile(": (\\d+) x ");
+
+    private ConversionDiagnostics diagnostics(int maxSamples, int maxKeys) {
+        ConversionDiagnostics diagnostics = new ConversionDiagnostics();
+        diagnostics.maxSamples = maxSamples;
+        diagnostics.maxKeys = maxKeys;
+        return diagnostics;
+    }
+
+    @Test
+    void testAggregation() {
+        ConversionDiagnostics diagnostics = diagnostics(5, 100);
+        diagnostics.report("authors", "xsd:date", "invalid literal", "2023-13-01");
+        diagnostics.report("authors", "xsd:date", "invalid literal", "yesterday");
+        diagnostics.report("authors", null, "invalid line", "{");
+
+        List<String> lines = diagnostics.drain();
+        assertEquals(2, lines.size());
+        assertTrue(lines.contains("Conversion warning for mapping authors: 2 x invalid literal (xsd:date), "
+                + "e.g. '2023-13-01', 'yesterday'"), lines.toString());
+        assertTrue(lines.contains("Conversion warning for mapping authors: 1 x invalid line, e.g. '{'"),
+                lines.toString());
+    }
+
+    @Test
+    void testSampleLimit() {
+        ConversionDiagnostics diagnostics = diagnostics(2, 100);
+        diagnostics.report("authors", null, "invalid line", "first");
+        diagnostics.report("authors", null, "invalid line", "second");
+        diagnostics.report("authors", null, "invalid line", "third");
+        diagnostics.report("authors", null, "invalid line", "x".repeat(300));
+
+        List<String> lines = diagnostics.drain();
+        assertEquals(List.of("Conversion warning for mapping authors: 4 x invalid line, e.g. 'first', 'second'"),
+                lines);
+
+        diagnostics.report("authors", null, "invalid line", "x".repeat(300));
+        String line = diagnostics.drain().get(0);
+        assertTrue(line.endsWith("'" + "x".repeat(200) + "...'"), "long samples should be truncated: " + line);
+    }
+
+    @Test
+    void testTruncate() {
+        assertEquals(null, ConversionDiagnostics.truncate(null));
+        assertEquals("short", ConversionDiagnostics.truncate("short"));
+        assertEquals("x".repeat(200), ConversionDiagnostics.truncate("x".repeat(200)));
+        assertEquals("x".repeat(200) + "...", ConversionDiagnostics.truncate("x".repeat(5_000_000)));
+    }
+
+    @Test
+    void testOverflow() {
+        ConversionDiagnostics diagnostics = diagnostics(1, 2);
+        diagnostics.report("a", null, "invalid line", "1");
+        diagnostics.report("b", null, "invalid line", "2");
+        diagnostics.report("c", null, "invalid line", "3");
+        diagnostics.report("d", null, "invalid line", "4");
+        // known keys are still counted separately
+        diagnostics.report("a", null, "invalid line", "5");
+
+        List<String> lines = diagnostics.drain();
+        assertEquals(3, lines.size(), lines.toString());
+        assertTrue(lines.contains("Conversion warning for mapping a: 2 x invalid line, e.g. '1'"), lines.toString());
+        assertTrue(lines.contains("Conversion warning for mapping *: 2 x other issues, e.g. '3'"), lines.toString());
+    }
+
+    @Test
+    void testDrain() {
+        ConversionDiagnostics diagnostics = diagnostics(1, 100);
+        diagnostics.report("authors", null, "invalid line", "1");
+        assertEquals(1, diagnostics.drain().size());
+        assertEquals(0, diagnostics.drain().size(), "drained warnings should be removed");
+
+        diagnostics.report("authors", null, "invalid line", "2");
+        assertEquals(List.of("Conversion warning for mapping authors: 1 x invalid line, e.g. '2'"),
+                diagnostics.drain());
+    }
+
+    @Test
+    void testNoWarningsLostWhileDraining() throws Exception {
+        ConversionDiagnostics diagnostics = diagnostics(1, 100);
+        int threads = 4;
+        int reportsPerThread = 100_000;
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long drained = 0;
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < reportsPerThread; i++) {
+                        diagnostics.report("authors", null, "invalid line", "sample");
+                    }
+                }));
+            }
+            while (!done.get()) {
+                done.set(results.stream().allMatch(Future::isDone));
+                drained += count(diagnostics.drain());
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        drained += count(diagnostics.drain());
+        assertEquals((long) threads * reportsPerThread, drained);
+    }
+
+    private static long count(List<String> lines) {
+        long count = 0;
+        for (String line : lines) {
+            Matcher matcher = COUNT.matcher(line);
+            assertTrue(matcher.find(), line);
+            count += Long.parseLong(matcher.group(1));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class FingerprintFilterTest {
+
+    @Test
+    void testExactDuplicates() {
+        FingerprintFilter filter = new FingerprintFilter(64 * 1024 * 1024, 0.000001);
+        Random random = new Random(42);
+        long[] fingerprints = random.longs(100_000).toArray();
+        for (long fingerprint : fingerprints) {
+            assertTrue(filter.add(fingerprint), "new fingerprint should be added");
+        }
+        for (long fingerprint : fingerprints) {
+            assertFalse(filter.add(fingerprint), "duplicate should be detected");
+        }
+        assertTrue(filter.add(0), "zero is a valid fingerprint");
+        assertFalse(filter.add(0), "duplicate zero should be detected");
+        assertFalse(filter.isApproximate(), "filter should be exact");
+        assertEquals(100_001, filter.size());
+    }
+
+    @Test
+    void testBloomFilterFallback() {
+        // 256 KB: exact for roughly 20000 entries
+        FingerprintFilter filter = new FingerprintFilter(256 * 1024, 0.001);
+        Random random = new Random(7);
+        long[] fingerprints = random.longs(50_000).toArray();
+        int falsePositives = 0;
+        for (long fingerprint : fingerprints) {
+            if (!filter.add(fingerprint)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(filter.isApproximate(), "filter should have switched to a Bloom filter");
+        assertTrue(falsePositives < 50, "false positives should be rare: " + falsePositives);
+        for (long fingerprint : fingerprints) {
+            assertFalse(filter.add(fingerprint), "duplicate should be detected");
+        }
+    }
+
+    @Test
+    void testSaturation() {
+        FingerprintFilter filter = new FingerprintFilter(64 * 1024, 0.001);
+        Random random = new Random(3);
+        for (int i = 0; i < 1_000_000 && !filter.isSaturated(); i++) {
+            filter.add(random.nextLong());
+        }
+        assertTrue(filter.isSaturated(), "filter should be saturated");
+        long fingerprint = random.nextLong();
+        assertTrue(filter.add(fingerprint), "saturated filter treats all fingerprints as new");
+        assertTrue(filter.add(fingerprint), "saturated filter treats all fingerprints as new");
+    }
+
+    @Test
+    void testSharedBudget() {
+        MemoryBudget budget = new MemoryBudget(1024 * 1024);
+        FingerprintFilter first = new FingerprintFilter(budget, 0.001);
+        FingerprintFilter second = new FingerprintFilter(budget, 0.001);
+        Random random = new Random(11);
+        for (int i = 0; i < 200_000; i++) {
+            first.add(random.nextLong());
+            second.add(random.nextLong());
+        }
+        assertTrue(first.isApproximate() && second.isApproximate(), "filters should share the budget");
+        assertTrue(first.getReservedMemory() + second.getReservedMemory() <= budget.getCapacity(),
+                "filters should stay within the shared budget");
+        assertEquals(budget.getCapacity() - first.getReservedMemory() - second.getReservedMemory(),
+                budget.getAvailable());
+
+        first.close();
+        second.close();
+        assertEquals(0, first.getReservedMemory());
+        assertEquals(budget.getCapacity(), budget.getAvailable(), "memory should be returned on close");
+        assertThrows(IllegalStateException.class, () -> first.add(1));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GzipIndexTest {
+    private static final int BLOCK_SIZE = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testIndexAndParallelRead() throws IOException {
+        byte[] data = createLines(new Random(42), 2000);
+        Path file = writeBlockGzip(data);
+
+        GzipIndex index = buildIndex(file);
+        assertTrue(index.size() > 1, "file should consist of multiple members");
+        assertEquals(data.length, index.getMembers().stream().mapToLong(GzipIndex.Member::getUncompressedLength).sum(),
+                "index should cover all data");
+
+        // index survives saving and loading
+        Path indexFile = GzipIndex.indexFileFor(file);
+        index.save(indexFile);
+        GzipIndex loaded = GzipIndex.load(indexFile);
+        assertEquals(index.size(), loaded.size(), "loaded index should have the same number of members");
+
+        try (InputStream in = new ParallelGZIPInputStream(file, loaded, executor, 3)) {
+            assertArrayEquals(data, in.readAllBytes(), "data should be unchanged");
+        }
+    }
+
+    private byte[] createLines(Random random, int count) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            lines.append("{\"line\":").append(i).append(",\"value\":\"");
+            int length = random.nextInt((i % 100 == 0) ? 5 * BLOCK_SIZE : 80);
+            for (int j = 0; j < length; j++) {
+                lines.append((char) ('a' + random.nextInt(26)));
+            }
+            lines.append("\"}\n");
+        }
+        return lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Path writeBlockGzip(byte[] data) throws IOException {
+        Path file = tempDir.resolve("data.jsonl.gz");
+        try (OutputStream out = new ParallelGZIPOutputStream(Files.newOutputStream(file), executor, BLOCK_SIZE,
+                Deflater.DEFAULT_COMPRESSION, 3)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private GzipIndex buildIndex(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return GzipIndex.build(in);
+        }
+    }
+}
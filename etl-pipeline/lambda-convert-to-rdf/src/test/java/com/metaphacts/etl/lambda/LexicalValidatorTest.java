@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.impl.ValidatingValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.junit.jupiter.api.Test;
+
+import com.metaphacts.etl.lambda.LexicalValidator.Result;
+
+class LexicalValidatorTest {
+
+    @Test
+    void testCheck() {
+        assertEquals(Result.VALID, LexicalValidator.check("1234", XSD.INT));
+        assertEquals(Result.VALID, LexicalValidator.check("-0012", XSD.SHORT));
+        assertEquals(Result.INVALID, LexicalValidator.check("1234", XSD.BYTE));
+        assertEquals(Result.INVALID, LexicalValidator.check("1234abcd", XSD.INT));
+        assertEquals(Result.INVALID, LexicalValidator.check("", XSD.INTEGER));
+        assertEquals(Result.UNKNOWN, LexicalValidator.check(" 12 ", XSD.INTEGER));
+        assertEquals(Result.VALID, LexicalValidator.check("1234.5", XSD.DECIMAL));
+        assertEquals(Result.VALID, LexicalValidator.check("-1.5E-3", XSD.DOUBLE));
+        assertEquals(Result.UNKNOWN, LexicalValidator.check("INF", XSD.FLOAT));
+        assertEquals(Result.INVALID, LexicalValidator.check("n/a", XSD.DOUBLE));
+        assertEquals(Result.VALID, LexicalValidator.check("false", XSD.BOOLEAN));
+        assertEquals(Result.INVALID, LexicalValidator.check("yes", XSD.BOOLEAN));
+        assertEquals(Result.VALID, LexicalValidator.check("2020-02-29", XSD.DATE));
+        assertEquals(Result.UNKNOWN, LexicalValidator.check("2019-02-29", XSD.DATE));
+        assertEquals(Result.INVALID, LexicalValidator.check("2019-xx", XSD.DATE));
+        assertEquals(Result.VALID, LexicalValidator.check("2023-05-15T08:09:10.123+02:00", XSD.DATETIME));
+        assertEquals(Result.INVALID, LexicalValidator.check("May 15th 2023 08:09:10", XSD.DATETIME));
+        assertEquals(Result.UNKNOWN, LexicalValidator.check("P1Y", XSD.DURATION));
+    }
+
+    @Test
+    void testConsistentWithFullValidation() {
+        ValidatingValueFactory vf = new ValidatingValueFactory();
+        IRI[] datatypes = { XSD.INTEGER, XSD.LONG, XSD.INT, XSD.SHORT, XSD.BYTE, XSD.DECIMAL, XSD.DOUBLE, XSD.FLOAT,
+                XSD.BOOLEAN, XSD.DATE, XSD.DATETIME };
+        String[] labels = { "0", "-1", "+1", "127", "128", "99999999999", "1.", ".5", "1.5", "1e5", "1E-10", "NaN",
+                "-INF", "true", "TRUE", "1", " 1 ", "abc", "", "2023-05-15", "2023-13-01", "2023-05-15Z",
+                "2023-05-15T08:09:10", "2023-05-15T24:00:00", "2023-05-15T08:09:10Z", "2019-xx" };
+        for (IRI datatype : datatypes) {
+            for (String label : labels) {
+                Result result = LexicalValidator.check(label, datatype);
+                if (result == Result.UNKNOWN) {
+                    continue;
+                }
+                boolean valid;
+                try {
+                    vf.createLiteral(label, datatype);
+                    valid = true;
+                } catch (IllegalArgumentException e) {
+                    valid = false;
+                }
+                assertEquals(valid, result == Result.VALID, "unexpected result for " + label + "^^" + datatype);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.batchEvent;
+import static com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.successfulS3BatchEvent;
+import static com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.task;
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.lambda.runtime.events.S3BatchEvent;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Runs the Lambda on JSONL files processed line by line and checks the
+ * statements written for each line.
+ */
+@io.quarkus.test.junit.QuarkusTest
+@TestProfile(LineModeLambdaTest.LineMode.class)
+public class LineModeLambdaTest extends LambdaHandlerTest {
+
+    private static final String NAME = "<https://schema.org/name>";
+
+    public static class LineMode implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            // one statement per line in uncompressed output
+            return Map.of("output.format", "nq", "output.compressed", "false");
+        }
+    }
+
+    @Test
+    public void testRepeatedTriplesOfRecordAreWrittenOnce() throws Exception {
+        String sourceKey = "authors/repeated.jsonl";
+        uploadSource(sourceKey,
+                "{ \"id\": \"author1\", \"name\": [\"Albert Einstein\", \"Albert Einstein\"] }",
+                "{ \"id\": \"author2\", \"name\": \"Marie Curie\" }");
+
+        convert(sourceKey);
+
+        List<String> statements = readOutput("authors/repeated");
+        assertEquals(1, count(statements, "<https://example.com/author/author1> " + NAME + " \"Albert Einstein\""),
+                "repeated triple of a record should be written once: " + statements);
+        assertEquals(1, count(statements, "<https://example.com/author/author2> " + NAME + " \"Marie Curie\""),
+                statements.toString());
+    }
+
+    @Test
+    public void testFailingLineOfBatch() throws Exception {
+        String sourceKey = "authors-batched/failing.jsonl";
+        uploadSource(sourceKey,
+                "{ \"id\": \"author1\", \"name\": \"Albert Einstein\" }",
+                "{ \"id\": \"author2\", \"name\": \"Marie Curie\" }",
+                "{ \"id\": \"author3\", \"name\": ",
+                "{ \"id\": \"author4\", \"name\": \"Bob Dylan\" }",
+                "{ \"id\": \"author5\", \"name\": \"Paul Ehrlich\" }");
+
+        // only the failing line is dropped, the task still succeeds
+        convert(sourceKey);
+
+        List<String> statements = readOutput("authors-batched/failing");
+        for (String author : List.of("author1", "author2", "author4", "author5")) {
+            assertEquals(1, count(statements, "<https://example.com/author/" + author + "> " + NAME),
+                    "line of " + author + " should be converted: " + statements);
+        }
+        assertEquals(0, count(statements, "<https://example.com/author/author3>"), statements.toString());
+    }
+
+    private void uploadSource(String key, String... lines) throws IOException {
+        Path file = Files.createTempFile("records", ".jsonl");
+        try {
+            Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+            fileHelper.uploadToS3("source-bucket", key, file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private void convert(String sourceKey) {
+        S3BatchEvent event = batchEvent(task("source-bucket", sourceKey));
+        given()
+                .contentType("application/json")
+                .accept("application/json")
+                .body(event)
+                .when()
+                .post()
+                .then()
+                .statusCode(200)
+                .body(successfulS3BatchEvent(event));
+    }
+
+    private List<String> readOutput(String baseName) throws IOException {
+        List<String> outputKeys = fileHelper.listS3BucketContent("output-bucket").stream()
+                .filter(key -> key.startsWith(baseName) && key.endsWith(".nq"))
+                .collect(Collectors.toList());
+        assertFalse(outputKeys.isEmpty(), "output should be uploaded for " + baseName);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                fileHelper.openS3InputStream("output-bucket", outputKeys.get(0), 1024 * 1024, 1),
+                StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    private static long count(List<String> statements, String prefix) {
+        return statements.stream().filter(statement -> statement.startsWith(prefix)).count();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LineRangeInputStreamTest {
+
+    @Test
+    void testParseKey() {
+        Optional<ByteRange> range = ByteRange.fromKey("data/file.jsonl#bytes=100-200");
+        assertTrue(range.isPresent(), "range should be parsed");
+        assertEquals(100, range.get().getStart());
+        assertEquals(200, range.get().getEnd());
+        assertEquals("data/file.jsonl", ByteRange.stripFromKey("data/file.jsonl#bytes=100-200"));
+
+        assertTrue(ByteRange.fromKey("data/file.jsonl%23bytes=0-10").isPresent(), "encoded range should be parsed");
+        assertFalse(ByteRange.fromKey("data/file.jsonl").isPresent(), "key without range");
+        assertFalse(ByteRange.fromKey("data/file.jsonl#bytes=200-100").isPresent(), "invalid range");
+        assertEquals("data/file.jsonl", ByteRange.stripFromKey("data/file.jsonl"));
+    }
+
+    @Test
+    void testRangesCoverAllLines() throws IOException {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            text.append("line ").append(i).append(" ").append("x".repeat(random.nextInt(200))).append('\n');
+        }
+        // last line without newline
+        text.append("last line");
+        byte[] data = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        for (int rangeSize : new int[] { 1, 7, 100, 1000, data.length }) {
+            StringBuilder combined = new StringBuilder();
+            for (long start = 0; start < data.length; start += rangeSize) {
+                ByteRange range = new ByteRange(start, Math.min(data.length, start + rangeSize));
+                String content = readRange(data, range);
+                if (!content.isEmpty()) {
+                    assertTrue(content.startsWith("line ") || content.startsWith("last line"),
+                            "range should start at a line start: " + content);
+                }
+                combined.append(content);
+            }
+            assertEquals(text.toString(), combined.toString(),
+                    "ranges of size " + rangeSize + " should contain every line exactly once");
+        }
+    }
+
+    private String readRange(byte[] data, ByteRange range) throws IOException {
+        InputStream source = new ByteArrayInputStream(data);
+        source.skip(range.getReadOffset());
+        try (InputStream in = new LineRangeInputStream(source, range)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
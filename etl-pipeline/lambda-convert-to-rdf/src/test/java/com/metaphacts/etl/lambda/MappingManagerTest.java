@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.util.Values;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+
+import io.carml.engine.rdf.RdfRmlMapper;
+
+class MappingManagerTest {
+    private static final String PREFIXES = "@prefix rr: <http://www.w3.org/ns/r2rml#> .\n"
+            + "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n"
+            + "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n";
+
+    @TempDir
+    Path mappingsDir;
+
+    // number of reads per mapping file
+    private final Map<String, AtomicInteger> reads = new ConcurrentHashMap<>();
+    // mapping model passed to the mapper per spec
+    private final Map<String, Model> models = new ConcurrentHashMap<>();
+    // version tag per mapping file, "1" if not set
+    private final Map<String, String> versionTags = new ConcurrentHashMap<>();
+    // building the mapper with this id waits until it is released
+    private volatile String blockedMappingId;
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @BeforeEach
+    void createMappingFiles() throws IOException {
+        writeMappingFile("shared.ttl", triplesMap("Shared"));
+        writeMappingFile("a.ttl", triplesMap("A"));
+        writeMappingFile("b.ttl", triplesMap("B"));
+        writeMappingFile("broken.ttl", "this is not turtle");
+    }
+
+    @Test
+    void testConcurrentLoading() throws IOException {
+        MappingManager manager = mappingManager(4);
+        URI configURI = writeConfig(
+                new MappingSpec("a").withMappingFiles("shared.ttl", "a.ttl").withSourceFileIncludePattern("a/.*"),
+                new MappingSpec("b").withMappingFiles("shared.ttl", "b.ttl").withSourceFileIncludePattern("b/.*"),
+                new MappingSpec("c").withMappingFiles("broken.ttl").withSourceFileIncludePattern("c/.*"),
+                new MappingSpec("d").withMappingFiles("a.ttl", "broken.ttl").withSourceFileIncludePattern("d/.*"));
+
+        manager.prepareMappers(configURI, mappingsDir);
+
+        assertEquals(1, reads.get("shared.ttl").get(), "shared mapping file should be loaded once");
+        assertEquals(1, reads.get("broken.ttl").get(), "failed mapping file should be loaded once");
+
+        // each spec gets its own model with only its own mapping files
+        Model modelA = models.get("a");
+        Model modelB = models.get("b");
+        assertNotSame(modelA, modelB);
+        assertTrue(modelA.contains(Values.iri("http://example.com/mappings#Shared"), null, null));
+        assertTrue(modelA.contains(Values.iri("http://example.com/mappings#A"), null, null));
+        assertFalse(modelA.contains(Values.iri("http://example.com/mappings#B"), null, null));
+        assertTrue(modelB.contains(Values.iri("http://example.com/mappings#Shared"), null, null));
+        assertFalse(modelB.contains(Values.iri("http://example.com/mappings#A"), null, null));
+
+        // a failing mapping file only fails the specs using it
+        assertEquals(Optional.of("a"), manager.getMappingFor("a/file.json").map(Mapping::getType));
+        assertEquals(Optional.of("b"), manager.getMappingFor("b/file.json").map(Mapping::getType));
+        assertTrue(manager.getMappingFor("c/file.json").isEmpty());
+        assertTrue(manager.getMappingFor("d/file.json").isEmpty());
+    }
+
+    @Test
+    void testDuplicateIdsKeepConfigOrder() throws IOException {
+        // the first spec is built last
+        writeMappingFile("slow.ttl", triplesMap("Slow"));
+        MappingManager manager = mappingManager(4);
+        URI configURI = writeConfig(
+                new MappingSpec("dup").withMappingFiles("slow.ttl").withSourceFileIncludePattern("first/.*"),
+                new MappingSpec("dup").withMappingFiles("a.ttl").withSourceFileIncludePattern("second/.*"));
+
+        manager.prepareMappers(configURI, mappingsDir);
+
+        assertTrue(manager.getMappingFor("first/file.json").isEmpty());
+        assertTrue(manager.getMappingFor("second/file.json").isPresent(), "the last spec with an id should win");
+    }
+
+    @Test
+    void testReloadChangedFiles() throws IOException {
+        MappingManager manager = mappingManager(1, false, 60);
+        URI configURI = writeConfig(
+                new MappingSpec("a").withMappingFiles("shared.ttl", "a.ttl").withSourceFileIncludePattern("a/.*"),
+                new MappingSpec("b").withMappingFiles("b.ttl").withSourceFileIncludePattern("b/.*"));
+        manager.prepareMappers(configURI, mappingsDir);
+        Mapping mappingA = mapping(manager, "a");
+        Mapping mappingB = mapping(manager, "b");
+
+        // unchanged mapping files are not read again
+        manager.reloadNow();
+        assertSame(mappingA, mapping(manager, "a"));
+        assertSame(mappingB, mapping(manager, "b"));
+        assertEquals(1, reads.get("shared.ttl").get());
+
+        // only specs using a changed mapping file are rebuilt
+        versionTags.put("shared.ttl", "2");
+        manager.reloadNow();
+        assertNotSame(mappingA, mapping(manager, "a"));
+        assertSame(mappingB, mapping(manager, "b"));
+        assertEquals(2, reads.get("shared.ttl").get());
+        assertEquals(1, reads.get("b.ttl").get());
+    }
+
+    @Test
+    void testFailedRebuildKeepsMapping() throws IOException {
+        MappingManager manager = mappingManager(1, false, 60);
+        URI configURI = writeConfig(
+                new MappingSpec("a").withMappingFiles("a.ttl").withSourceFileIncludePattern("a/.*"));
+        manager.prepareMappers(configURI, mappingsDir);
+        Mapping mappingA = mapping(manager, "a");
+
+        writeMappingFile("a.ttl", "this is not turtle");
+        versionTags.put("a.ttl", "2");
+        manager.reloadNow();
+        assertSame(mappingA, mapping(manager, "a"), "current mapping should be kept if rebuilding fails");
+
+        // retried with the next check, although the version tag is unchanged since
+        writeMappingFile("a.ttl", triplesMap("A2"));
+        manager.reloadNow();
+        assertNotSame(mappingA, mapping(manager, "a"));
+        assertTrue(models.get("a").contains(Values.iri("http://example.com/mappings#A2"), null, null));
+    }
+
+    @Test
+    void testReloadRetriesFailedLazyMapping() throws IOException {
+        MappingManager manager = mappingManager(1, true, 60);
+        URI configURI = writeConfig(
+                new MappingSpec("a").withMappingFiles("a.ttl").withSourceFileIncludePattern("a/.*"),
+                new MappingSpec("c").withMappingFiles("broken.ttl").withSourceFileIncludePattern("c/.*"));
+        manager.prepareMappers(configURI, mappingsDir);
+        Mapping mappingA = mapping(manager, "a");
+        assertThrows(RuntimeException.class, () -> manager.getMappingFor("c/file.json"));
+        // invalid mappings are not retried until the mapping file changes
+        assertThrows(RuntimeException.class, () -> manager.getMappingFor("c/file.json"));
+        assertEquals(1, reads.get("broken.ttl").get());
+
+        writeMappingFile("broken.ttl", triplesMap("Fixed"));
+        versionTags.put("broken.ttl", "2");
+        manager.reloadNow();
+        assertSame(mappingA, mapping(manager, "a"));
+        assertTrue(mapping(manager, "c").isLoaded());
+        assertTrue(models.get("c").contains(Values.iri("http://example.com/mappings#Fixed"), null, null));
+    }
+
+    @Test
+    void testFindMappingDoesNotBuildMapper() throws IOException {
+        MappingManager manager = mappingManager(1, true, 0);
+        URI configURI = writeConfig(
+                new MappingSpec("c").withMappingFiles("broken.ttl").withSourceFileIncludePattern("c/.*"));
+        manager.prepareMappers(configURI, mappingsDir);
+
+        Optional<Mapping> mapping = manager.findMapping("c/file.json");
+        assertTrue(mapping.isPresent());
+        assertFalse(mapping.get().isLoaded());
+        assertNull(reads.get("broken.ttl"), "mapping files should not be read");
+        assertTrue(manager.findMapping("d/file.json").isEmpty());
+
+        // building the mapper fails when the mapping is used
+        assertThrows(RuntimeException.class, () -> manager.getMappingFor("c/file.json"));
+    }
+
+    @Test
+    void testReloadSwapsMappingsAtOnce() throws Exception {
+        MappingManager manager = mappingManager(1, false, 60);
+        URI configURI = writeConfig(
+                new MappingSpec("a").withMappingFiles("a.ttl").withSourceFileIncludePattern("a/.*"),
+                new MappingSpec("b").withMappingFiles("b.ttl").withSourceFileIncludePattern("b/.*"));
+        manager.prepareMappers(configURI, mappingsDir);
+        Mapping mappingA = mapping(manager, "a");
+        Mapping mappingB = mapping(manager, "b");
+
+        // mappers are built in config order, so a is rebuilt while b is blocked
+        versionTags.put("a.ttl", "2");
+        versionTags.put("b.ttl", "2");
+        blockedMappingId = "b";
+        CompletableFuture<Void> reload = CompletableFuture.runAsync(manager::reloadNow);
+        try {
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            assertSame(mappingA, mapping(manager, "a"), "new mappings should not be used before all are built");
+            assertSame(mappingB, mapping(manager, "b"));
+        } finally {
+            released.countDown();
+        }
+        reload.get(10, TimeUnit.SECONDS);
+        assertNotSame(mappingA, mapping(manager, "a"));
+        assertNotSame(mappingB, mapping(manager, "b"));
+    }
+
+    private static Mapping mapping(MappingManager manager, String id) {
+        return manager.getMappingFor(id + "/file.json").orElseThrow();
+    }
+
+    private MappingManager mappingManager(int concurrency) throws IOException {
+        return mappingManager(concurrency, false, 0);
+    }
+
+    private MappingManager mappingManager(int concurrency, boolean lazy, long reloadInterval) throws IOException {
+        MappingManager manager = new MappingManager() {
+            @Override
+            RdfRmlMapper prepareMapper(String mappingId, Model mappingModel, Path inputDir) {
+                models.put(mappingId, mappingModel);
+                if (mappingId.equals(blockedMappingId)) {
+                    blocked.countDown();
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.prepareMapper(mappingId, mappingModel, inputDir);
+            }
+        };
+        manager.fileHelper = new FileHelper() {
+            @Override
+            public Optional<String> getVersionTag(URI uri) {
+                return Optional.of(versionTags.getOrDefault(Path.of(uri).getFileName().toString(), "1"));
+            }
+
+            @Override
+            public BufferedReader openInputReader(URI uri) throws IOException {
+                String fileName = Path.of(uri).getFileName().toString();
+                reads.computeIfAbsent(fileName, f -> new AtomicInteger()).incrementAndGet();
+                if (fileName.equals("slow.ttl")) {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.openInputReader(uri);
+            }
+        };
+        manager.lambdaLoggerManager = new LambdaLoggerManager();
+        manager.diagnostics = new ConversionDiagnostics();
+        manager.mappingsLiteralConversionMode = "validateAndFallbackToPlaceholder";
+        manager.mappingsLazy = lazy;
+        manager.mappingsEager = Optional.empty();
+        manager.mappingsLoadConcurrency = concurrency;
+        manager.mappingsSnapshot = false;
+        manager.mappingsReloadInterval = reloadInterval;
+        manager.init();
+        return manager;
+    }
+
+    private URI writeConfig(MappingSpec... specs) throws IOException {
+        Path configFile = mappingsDir.resolve("mappings.json");
+        Files.writeString(configFile, new Gson().toJson(new MappingConfig(specs)), StandardCharsets.UTF_8);
+        return configFile.toUri();
+    }
+
+    private void writeMappingFile(String fileName, String content) throws IOException {
+        Files.writeString(mappingsDir.resolve(fileName), PREFIXES + content, StandardCharsets.UTF_8);
+    }
+
+    private static String triplesMap(String name) {
+        return "<http://example.com/mappings#" + name + "> rml:logicalSource [\n"
+                + "        rml:source [] ;\n"
+                + "        rml:referenceFormulation ql:CSV\n"
+                + "    ] ;\n"
+                + "    rr:subjectMap [ rr:template \"http://example.com/" + name + "/{id}\" ] ;\n"
+                + "    rr:predicateObjectMap [\n"
+                + "        rr:predicate <http://example.com/name> ;\n"
+                + "        rr:objectMap [ rml:reference \"name\" ]\n"
+                + "    ] .\n";
+    }
+}
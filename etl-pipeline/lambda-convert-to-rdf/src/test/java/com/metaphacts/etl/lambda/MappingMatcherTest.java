@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class MappingMatcherTest {
+
+    private static Mapping mapping(String id, String include, String exclude, int priority) {
+        MappingSpec spec = new MappingSpec(id).withSourceFileIncludePattern(include)
+                .withSourceFileExcludePattern(exclude).withPriority(priority);
+        return new Mapping(spec, Optional.empty());
+    }
+
+    private static String match(MappingMatcher matcher, String fileName) {
+        return matcher.getMappingFor(fileName).map(Mapping::getType).orElse(null);
+    }
+
+    @Test
+    void testMatchesInPriorityOrder() {
+        MappingMatcher matcher = new MappingMatcher(List.of(
+                mapping("records", "data/.*\\.jsonl", ".*-summary\\.jsonl", 0),
+                mapping("Details", "data/details/.*", null, 0),
+                mapping("summary", "data/.*-summary\\.jsonl", null, 0),
+                mapping("special", "data/special/.*", null, 10),
+                mapping("fallback", null, null, -1)));
+
+        assertEquals(List.of("special", "Details", "records", "summary", "fallback"),
+                matcher.getMappings().stream().map(Mapping::getType).toList());
+        assertEquals("Details", match(matcher, "data/details/1.jsonl"));
+        assertEquals("records", match(matcher, "data/other.jsonl"));
+        assertEquals("special", match(matcher, "data/special/1.jsonl"));
+        assertEquals("fallback", match(matcher, "unrelated/file.txt"));
+    }
+
+    @Test
+    void testExcludedFileMatchesNextMapping() {
+        MappingMatcher matcher = new MappingMatcher(List.of(
+                mapping("records", "data/.*\\.jsonl", ".*-summary\\.jsonl", 0),
+                mapping("summary", "data/.*-summary\\.jsonl", null, 0)));
+
+        assertEquals("summary", match(matcher, "data/2023-summary.jsonl"));
+        // cached candidates for the directory
+        assertEquals("records", match(matcher, "data/2023.jsonl"));
+        assertFalse(matcher.getMappingFor("data/2023.csv").isPresent());
+    }
+
+    @Test
+    void testSameResultAsSequentialMatching() {
+        List<Mapping> mappings = List.of(
+                mapping("a", "(x)\\1/.*", null, 0),
+                mapping("b", "in/(?<year>[0-9]{4})/.*\\.json", null, 0),
+                mapping("c", "in/.*|out/.*", "out/tmp/.*", 0),
+                mapping("d", "(?i)IN/.*\\.CSV", null, 0),
+                mapping("e", "in/2023/.*", null, 0));
+        MappingMatcher matcher = new MappingMatcher(mappings, 2);
+
+        for (String fileName : List.of("xx/file", "in/2023/a.json", "in/2023/a.csv", "out/tmp/a", "out/a",
+                "in/abcd/a.json", "other")) {
+            Optional<Mapping> expected = matcher.getMappings().stream().filter(m -> m.matches(fileName))
+                    .findFirst();
+            assertEquals(expected, matcher.getMappingFor(fileName), fileName);
+        }
+    }
+
+    @Test
+    void testLiteralPrefix() {
+        assertEquals("publications/", MappingMatcher.literalPrefix(Pattern.compile("publications/.*\\.jsonl")));
+        assertEquals("data.v1/", MappingMatcher.literalPrefix(Pattern.compile("data\\.v1/[0-9]+")));
+        assertEquals("dat", MappingMatcher.literalPrefix(Pattern.compile("data?/.*")));
+        assertEquals("", MappingMatcher.literalPrefix(Pattern.compile("a/.*|b/.*")));
+        assertEquals("", MappingMatcher.literalPrefix(Pattern.compile("\\Qa.b\\E/.*")));
+        assertEquals("", MappingMatcher.literalPrefix(Pattern.compile("data/.*", Pattern.CASE_INSENSITIVE)));
+        assertEquals("", MappingMatcher.literalPrefix(null));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.impl.SimpleNamespace;
+import org.eclipse.rdf4j.model.util.ModelBuilder;
+import org.eclipse.rdf4j.model.util.Models;
+import org.junit.jupiter.api.Test;
+
+class MappingSnapshotTest {
+    private static final URI CONFIG_URI = URI.create("file:///mappings/mappings.json");
+
+    @Test
+    void testWriteAndRead() throws IOException {
+        Model model = new ModelBuilder().setNamespace("ex", "http://example.com/")
+                .subject("ex:map").add("ex:source", "ex:stream").build();
+        MappingSnapshot snapshot = new MappingSnapshot("1234", Map.of("", "abcd", "publications.ttl", "ef01"));
+        snapshot.addModel("Publications", model);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out);
+        MappingSnapshot read = MappingSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals("1234", read.getSetupHash());
+        assertEquals(Map.of("", "abcd", "publications.ttl", "ef01"), read.getFileDigests());
+        assertEquals(Set.of("publications"), read.getSpecIds());
+        assertTrue(Models.isomorphic(model, read.getModel("publications").get()));
+        assertFalse(read.getModel("other").isPresent());
+    }
+
+    @Test
+    void testReadInvalidSnapshot() {
+        assertThrows(IOException.class,
+                () -> MappingSnapshot.read(new ByteArrayInputStream("not a snapshot".getBytes())));
+    }
+
+    @Test
+    void testUpToDate() throws IOException {
+        // contents by file name
+        Map<String, String> files = new HashMap<>();
+        files.put("mappings.json", "{}");
+        files.put("publications.ttl", "@prefix ex: <http://example.com/> .");
+        List<String> reads = new ArrayList<>();
+        MappingSnapshot.ContentSource source = uri -> {
+            String fileName = fileName(uri);
+            reads.add(fileName);
+            return new ByteArrayInputStream(files.get(fileName).getBytes(StandardCharsets.UTF_8));
+        };
+        MappingConfig config = new MappingConfig(new MappingSpec("publications").withMappingFiles("publications.ttl"));
+        Set<Namespace> namespaces = Set.of(new SimpleNamespace("ex", "http://example.com/"));
+
+        MappingSnapshot snapshot = new MappingSnapshot(MappingSnapshot.computeSetupHash(namespaces),
+                MappingSnapshot.computeFileDigests(config, source, CONFIG_URI));
+        assertEquals(snapshot.getFileDigests(), MappingSnapshot.computeFileDigests(config, source,
+                URI.create("s3://bucket/mappings.json")), "digests should not depend on the location");
+
+        // files whose version tag is the digest are not read, like single part uploads to S3
+        reads.clear();
+        MappingSnapshot.VersionTagSource etags = uri -> Optional
+                .of("\"" + snapshot.getFileDigests().get(uri.equals(CONFIG_URI) ? "" : fileName(uri)) + "\"");
+        assertTrue(snapshot.isUpToDate(config, CONFIG_URI, namespaces, etags, source));
+        assertEquals(List.of(), reads);
+
+        // other files are compared by content
+        MappingSnapshot.VersionTagSource localTags = uri -> Optional.of("1700000000000-42");
+        assertTrue(snapshot.isUpToDate(config, CONFIG_URI, namespaces, localTags, source));
+        assertEquals(List.of("mappings.json", "publications.ttl"), reads);
+
+        assertFalse(snapshot.isUpToDate(config, CONFIG_URI,
+                Set.of(new SimpleNamespace("ex", "http://example.org/")), etags, source),
+                "snapshot should depend on the namespaces");
+        MappingConfig otherConfig = new MappingConfig(
+                new MappingSpec("publications").withMappingFiles("publications.ttl", "other.ttl"));
+        assertFalse(snapshot.isUpToDate(otherConfig, CONFIG_URI, namespaces, etags, source),
+                "snapshot should depend on the set of mapping files");
+
+        files.put("publications.ttl", "@prefix ex: <http://example.org/> .");
+        assertFalse(snapshot.isUpToDate(config, CONFIG_URI, namespaces, localTags, source));
+        assertFalse(snapshot.isUpToDate(config, CONFIG_URI, namespaces, uri -> Optional.of("\"0123-2\""), source));
+    }
+
+    private static String fileName(URI uri) {
+        String path = uri.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class MappingTest {
+
+    @Test
+    void testLazyMapperIsBuiltOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Mapping mapping = new Mapping(new MappingSpec("test"), () -> {
+            loads.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.empty();
+        });
+        assertFalse(mapping.isLoaded());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(mapping::getMapper));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(mapping.isLoaded());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testInvalidMappingIsNotRetried() {
+        AtomicInteger loads = new AtomicInteger();
+        Mapping mapping = new Mapping(new MappingSpec("test"), () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("invalid mapping");
+        });
+
+        assertThrows(IllegalStateException.class, mapping::getMapper);
+        mapping.clock = () -> System.currentTimeMillis() + 3_600_000;
+        assertThrows(IllegalStateException.class, mapping::getMapper);
+        assertFalse(mapping.isLoaded());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testReadErrorIsRetriedAfterBackoff() {
+        AtomicLong now = new AtomicLong(1000);
+        AtomicInteger loads = new AtomicInteger();
+        Mapping mapping = new Mapping(new MappingSpec("test"), () -> {
+            if (loads.incrementAndGet() <= 2) {
+                throw new UncheckedIOException(new IOException("connection reset"));
+            }
+            return Optional.empty();
+        });
+        mapping.clock = now::get;
+
+        assertThrows(UncheckedIOException.class, mapping::getMapper);
+        // the error is reported without retrying until the delay has passed
+        assertThrows(UncheckedIOException.class, mapping::getMapper);
+        assertEquals(1, loads.get());
+
+        now.addAndGet(1000);
+        assertThrows(UncheckedIOException.class, mapping::getMapper);
+        assertEquals(2, loads.get());
+        // the delay doubles after each failure
+        now.addAndGet(1000);
+        assertThrows(UncheckedIOException.class, mapping::getMapper);
+        assertEquals(2, loads.get());
+
+        now.addAndGet(1000);
+        assertEquals(Optional.empty(), mapping.getMapper());
+        assertTrue(mapping.isLoaded());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testTransientErrors() {
+        assertTrue(Mapping.isTransientError(new RuntimeException("failed to parse", new IOException())));
+        assertFalse(Mapping.isTransientError(new IllegalArgumentException("invalid mapping")));
+    }
+}
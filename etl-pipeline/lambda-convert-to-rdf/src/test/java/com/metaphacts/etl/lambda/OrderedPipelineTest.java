@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class OrderedPipelineTest {
+
+    @Test
+    void testOrderWithJitteredWorkers() throws Exception {
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>("test", 8, 16);
+        AtomicInteger next = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+
+        long count = pipeline.run(
+                () -> (next.get() < 1000) ? next.getAndIncrement() : null,
+                item -> {
+                    // workers finish in random order
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                    return item * 2;
+                },
+                (item, result, error) -> {
+                    assertNull(error);
+                    assertEquals(item * 2, (int) result);
+                    results.add(item);
+                });
+
+        assertEquals(1000, count);
+        assertEquals(1000, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, (int) results.get(i), "items should be consumed in the order they were read");
+        }
+    }
+
+    @Test
+    void testWorkerErrorIsPassedToConsumer() throws Exception {
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>("test", 4, 8);
+        AtomicInteger next = new AtomicInteger();
+        IllegalArgumentException failure = new IllegalArgumentException("invalid item");
+        List<Integer> results = new ArrayList<>();
+        List<Integer> failed = new ArrayList<>();
+
+        long count = pipeline.run(
+                () -> (next.get() < 100) ? next.getAndIncrement() : null,
+                item -> {
+                    if (item == 42) {
+                        throw failure;
+                    }
+                    return item;
+                },
+                (item, result, error) -> {
+                    if (error != null) {
+                        assertSame(failure, error);
+                        assertNull(result);
+                        failed.add(item);
+                    } else {
+                        results.add(result);
+                    }
+                });
+
+        assertEquals(100, count, "processing errors should not stop the pipeline");
+        assertEquals(List.of(42), failed);
+        assertEquals(99, results.size());
+    }
+
+    @Test
+    void testConsumerErrorStopsReader() {
+        int capacity = 8;
+        AtomicInteger reads = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException("failed to write");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>("test", 4, capacity);
+            // endless source
+            Exception e = assertThrows(Exception.class, () -> pipeline.run(
+                    reads::getAndIncrement,
+                    item -> item,
+                    (item, result, error) -> {
+                        if (item == 10) {
+                            throw failure;
+                        }
+                    }));
+            assertSame(failure, e);
+        });
+        // items in flight when the consumer failed may still have been read
+        assertTrue(reads.get() <= 10 + capacity + 2, "reader should stop after the consumer failed: " + reads.get());
+    }
+
+    @Test
+    void testLimitStopsReadingEarly() throws Exception {
+        // like process.lines: the source stops after a number of items although more
+        // are available
+        int limit = 25;
+        AtomicInteger reads = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>("test", 4, 8);
+
+        long count = pipeline.run(
+                () -> {
+                    int item = reads.incrementAndGet();
+                    return (item > limit) ? null : item;
+                },
+                item -> item,
+                (item, result, error) -> consumed.incrementAndGet());
+
+        assertEquals(limit, count);
+        assertEquals(limit, consumed.get());
+        assertEquals(limit + 1, reads.get(), "source should not be read after the end was signalled");
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.metaphacts.etl.lambda.S3MultipartOutputStreamTest.MockS3;
+
+class OutputFileTest {
+    private static final int PART_SIZE = S3MultipartOutputStream.MIN_PART_SIZE;
+
+    @Test
+    void testCloseCompletesUpload() throws Exception {
+        MockS3 s3 = new MockS3();
+        S3MultipartOutputStream uploadStream = new S3MultipartOutputStream(s3.client(), "bucket", "key.nt",
+                PART_SIZE, 1, Runnable::run);
+        OutputFile output = new OutputFile(Path.of("key.nt"), null, uploadStream, uploadStream);
+        output.getStream().write(new byte[PART_SIZE + 1]);
+        output.close();
+        // discarding the output afterwards must not abort the completed upload
+        output.abort();
+
+        assertTrue(output.isUploaded());
+        assertEquals(List.of("createMultipartUpload", "uploadPart", "uploadPart", "completeMultipartUpload"),
+                s3.calls);
+    }
+
+    @Test
+    void testFailedCloseAbortsUpload() throws Exception {
+        MockS3 s3 = new MockS3();
+        S3MultipartOutputStream uploadStream = new S3MultipartOutputStream(s3.client(), "bucket", "key.nt",
+                PART_SIZE, 1, Runnable::run);
+        // e.g. a compressing stream failing to write its trailer
+        FilterOutputStream failingStream = new FilterOutputStream(uploadStream) {
+            @Override
+            public void close() throws IOException {
+                throw new IOException("failed to finish output");
+            }
+        };
+        OutputFile output = new OutputFile(Path.of("key.nt"), null, failingStream, uploadStream);
+        output.getStream().write(new byte[PART_SIZE + 1]);
+
+        assertThrows(IOException.class, output::close);
+        output.abort();
+
+        assertTrue(!output.isUploaded());
+        assertEquals(List.of("createMultipartUpload", "uploadPart", "abortMultipartUpload"), s3.calls);
+    }
+}
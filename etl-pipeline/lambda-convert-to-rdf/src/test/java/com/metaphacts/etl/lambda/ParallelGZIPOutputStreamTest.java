@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelGZIPOutputStreamTest {
+    private static final int BLOCK_SIZE = 1024;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Random random = new Random(42);
+        for (int size : new int[] { 0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 100 * BLOCK_SIZE + 17 }) {
+            byte[] data = randomText(random, size);
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = new ParallelGZIPOutputStream(compressed, executor, BLOCK_SIZE,
+                    Deflater.DEFAULT_COMPRESSION, 3)) {
+                // write data in chunks of varying size
+                int position = 0;
+                while (position < size) {
+                    int count = Math.min(size - position, random.nextInt(3 * BLOCK_SIZE) + 1);
+                    out.write(data, position, count);
+                    position += count;
+                    if (random.nextInt(10) == 0) {
+                        out.flush();
+                    }
+                }
+            }
+
+            assertArrayEquals(data, decompress(compressed.toByteArray()), "data should be unchanged for size " + size);
+        }
+    }
+
+    @Test
+    void testWriteAfterClose() throws IOException {
+        OutputStream out = new ParallelGZIPOutputStream(new ByteArrayOutputStream(), executor, BLOCK_SIZE,
+                Deflater.DEFAULT_COMPRESSION, 3);
+        out.close();
+        assertThrows(IOException.class, () -> out.write(1), "writing to a closed stream should fail");
+    }
+
+    private byte[] randomText(Random random, int size) {
+        String chars = "abcdefghij <>\"\n";
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) chars.charAt(random.nextInt(chars.length()));
+        }
+        return data;
+    }
+
+    private byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
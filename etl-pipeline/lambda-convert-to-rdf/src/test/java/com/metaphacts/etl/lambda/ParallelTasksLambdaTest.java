@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.batchEvent;
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.lambda.runtime.events.S3BatchEvent;
+import com.amazonaws.services.lambda.runtime.events.S3BatchEvent.Task;
+import com.amazonaws.services.lambda.runtime.events.S3BatchResponse;
+import com.amazonaws.services.lambda.runtime.events.S3BatchResponse.Result;
+import com.amazonaws.services.lambda.runtime.events.S3BatchResponse.ResultCode;
+import com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.S3BatchResponseMatcher;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Runs the Lambda with several tasks and the lines of each file processed
+ * concurrently.
+ */
+@io.quarkus.test.junit.QuarkusTest
+@TestProfile(ParallelTasksLambdaTest.ParallelTasks.class)
+public class ParallelTasksLambdaTest extends LambdaHandlerTest {
+
+    private static final List<String> SOURCE_KEYS = List.of(
+            "publications/0000001/records_000000001.jsonl",
+            "publications/0000002/doc3.json",
+            "publications/0000002/doc4.json",
+            "publications/0000002/doc5.json",
+            "publications/pub1.xml",
+            "publications/pub2.xml",
+            "authors/authors.jsonl",
+            "organizations/companies-dax.csv",
+            "organizations/companies-nyse.csv");
+
+    public static class ParallelTasks implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("process.parallelism", "4", "process.lines.workers", "2");
+        }
+    }
+
+    @Test
+    public void testParallelTasks() throws Exception {
+        Task[] tasks = new Task[SOURCE_KEYS.size()];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = Task.builder().withTaskId("task-" + i).withS3BucketArn("source-bucket")
+                    .withS3Key(SOURCE_KEYS.get(i)).withS3VersionId("1").build();
+        }
+        S3BatchEvent event = batchEvent(tasks);
+        given()
+                .contentType("application/json")
+                .accept("application/json")
+                .body(event)
+                .when()
+                .post()
+                .then()
+                .statusCode(200)
+                .body(new S3BatchResponseMatcher(event) {
+                    @Override
+                    protected boolean matches(S3BatchEvent event, S3BatchResponse response, Task task,
+                            Result result, int index) {
+                        // results are reported in the order of the tasks, not in order of completion
+                        if (!task.getTaskId().equals(result.getTaskId())) {
+                            reportIssue(event, response, task, result, "result of task " + result.getTaskId());
+                            return false;
+                        }
+                        if (!ResultCode.Succeeded.equals(result.getResultCode())) {
+                            reportIssue(event, response, task, result, "task failed");
+                            return false;
+                        }
+                        return true;
+                    }
+                });
+
+        List<String> outputKeys = fileHelper.listS3BucketContent("output-bucket");
+        for (String sourceKey : SOURCE_KEYS) {
+            String baseName = sourceKey.substring(0, sourceKey.lastIndexOf('.'));
+            assertTrue(outputKeys.stream().anyMatch(
+                    key -> key.startsWith(baseName) && !key.endsWith(OutputManifest.EXTENSION_MANIFEST)),
+                    "output should be uploaded for " + sourceKey + ": " + outputKeys);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.batchEvent;
+import static com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.successfulS3BatchEvent;
+import static com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.task;
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.lambda.runtime.events.S3BatchEvent;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Runs the Lambda with output split into partitions.
+ */
+@io.quarkus.test.junit.QuarkusTest
+@TestProfile(PartitionedOutputLambdaTest.PartitionedOutput.class)
+public class PartitionedOutputLambdaTest extends LambdaHandlerTest {
+
+    private static final String EMPTY_SOURCE = "publications/0000003/records_000000003.jsonl";
+
+    public static class PartitionedOutput implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("output.partitions", "4");
+        }
+    }
+
+    @Test
+    public void testEmptySource() throws Exception {
+        Path emptyFile = Files.createTempFile("records", ".jsonl");
+        try {
+            fileHelper.uploadToS3("source-bucket", EMPTY_SOURCE, emptyFile);
+        } finally {
+            Files.delete(emptyFile);
+        }
+
+        S3BatchEvent event = batchEvent(task("source-bucket", EMPTY_SOURCE));
+        given()
+                .contentType("application/json")
+                .accept("application/json")
+                .body(event)
+                .when()
+                .post()
+                .then()
+                .statusCode(200)
+                .body(successfulS3BatchEvent(event));
+
+        // no partition is opened without statements, but the (empty) manifest is
+        // still published
+        List<String> outputKeys = fileHelper.listS3BucketContent("output-bucket");
+        String baseName = "publications/0000003/records_000000003";
+        assertTrue(outputKeys.stream().anyMatch(
+                key -> key.startsWith(baseName) && key.endsWith(OutputManifest.EXTENSION_MANIFEST)),
+                "manifest should be uploaded for empty output: " + outputKeys);
+        assertFalse(outputKeys.stream().anyMatch(key -> key.startsWith(baseName + "/part-")),
+                "no partition should be written for empty output: " + outputKeys);
+    }
+}
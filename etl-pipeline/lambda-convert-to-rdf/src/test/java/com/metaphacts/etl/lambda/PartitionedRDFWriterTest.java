@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.Test;
+
+class PartitionedRDFWriterTest {
+
+    @Test
+    void testStatementsOfSubjectInSamePartition() {
+        int partitions = 8;
+        Map<Integer, StringWriter> outputs = new HashMap<>();
+        PartitionedRDFWriter writer = new PartitionedRDFWriter(RDFFormat.NQUADS, partitions, partition -> {
+            StringWriter output = new StringWriter();
+            outputs.put(partition, output);
+            RDFWriter partitionWriter = Rio.createWriter(RDFFormat.NQUADS, output);
+            partitionWriter.startRDF();
+            return partitionWriter;
+        });
+        writer.startRDF();
+        for (int i = 0; i < 100; i++) {
+            IRI subject = Values.iri("urn:entity:" + i);
+            writer.handleStatement(Values.getValueFactory().createStatement(subject, RDFS.LABEL,
+                    Values.literal("entity " + i)));
+            writer.handleStatement(Values.getValueFactory().createStatement(subject, RDFS.COMMENT,
+                    Values.literal("comment " + i)));
+        }
+        writer.endRDF();
+
+        assertTrue(outputs.size() > 1, "statements should be distributed over multiple partitions");
+        for (int i = 0; i < 100; i++) {
+            IRI subject = Values.iri("urn:entity:" + i);
+            int partition = PartitionedRDFWriter.partitionFor(subject, partitions);
+            String output = outputs.get(partition).toString();
+            assertTrue(output.contains("<urn:entity:" + i + "> <" + RDFS.LABEL + ">"), "label in partition");
+            assertTrue(output.contains("<urn:entity:" + i + "> <" + RDFS.COMMENT + ">"), "comment in partition");
+        }
+        long lines = outputs.values().stream().mapToLong(output -> output.toString().lines().count()).sum();
+        assertEquals(200, lines, "every statement should be written exactly once");
+    }
+}
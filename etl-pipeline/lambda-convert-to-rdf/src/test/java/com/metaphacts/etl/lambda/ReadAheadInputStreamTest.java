@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ReadAheadInputStreamTest {
+
+    @Test
+    void testReadAll() throws IOException {
+        byte[] data = new byte[100_000];
+        new Random(42).nextBytes(data);
+        for (int chunkSize : new int[] { 1, 999, 4096, data.length, 2 * data.length }) {
+            try (InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), chunkSize, 3)) {
+                assertArrayEquals(data, in.readAllBytes(), "chunk size " + chunkSize);
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    @Test
+    void testIOExceptionIsRethrown() {
+        IOException failure = new IOException("connection reset");
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (InputStream in = new ReadAheadInputStream(failingStream(5000, failure), 1024, 2)) {
+                IOException e = assertThrows(IOException.class, () -> drain(in));
+                assertSame(failure, e);
+            }
+        });
+    }
+
+    @Test
+    void testRuntimeExceptionIsRethrown() {
+        // e.g. SdkClientException or AbortedException of an S3 response stream
+        RuntimeException failure = new IllegalStateException("checksum mismatch");
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (InputStream in = new ReadAheadInputStream(failingStream(5000, failure), 1024, 2)) {
+                RuntimeException e = assertThrows(RuntimeException.class, () -> drain(in));
+                assertSame(failure, e);
+            }
+        });
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.transferTo(out);
+    }
+
+    /**
+     * Create a stream which fails after returning the specified number of bytes.
+     */
+    private static InputStream failingStream(int length, Exception failure) {
+        return new InputStream() {
+            private int position = 0;
+
+            @Override
+            public int read() throws IOException {
+                if (position >= length) {
+                    if (failure instanceof IOException) {
+                        throw (IOException) failure;
+                    }
+                    throw (RuntimeException) failure;
+                }
+                position++;
+                return 'x';
+            }
+        };
+    }
+}
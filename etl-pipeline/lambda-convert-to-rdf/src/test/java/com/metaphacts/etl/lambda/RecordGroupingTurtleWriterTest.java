@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.Test;
+
+class RecordGroupingTurtleWriterTest {
+    private static final ValueFactory vf = Values.getValueFactory();
+
+    @Test
+    void testGroupBySubjectWithinRecord() throws IOException {
+        IRI graph = Values.iri("urn:graph:1");
+        Model expected = new LinkedHashModel();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordGroupingTurtleWriter writer = new RecordGroupingTurtleWriter(out, RDFFormat.TRIG);
+        writer.setFixedContext(graph);
+        writer.startRDF();
+        writer.handleNamespace("rdfs", RDFS.NAMESPACE);
+        writer.handleNamespace("ex", "http://example.com/");
+        for (int i = 0; i < 10; i++) {
+            IRI subject = Values.iri("http://example.com/entity-" + i);
+            // statements about the subject are interleaved with other statements
+            Statement[] record = {
+                    vf.createStatement(subject, RDF.TYPE, RDFS.RESOURCE),
+                    vf.createStatement(vf.createBNode("b" + i), RDFS.LABEL, vf.createLiteral("blank \"" + i + "\"")),
+                    vf.createStatement(subject, RDFS.LABEL, vf.createLiteral("entity " + i, "en")),
+                    vf.createStatement(subject, RDFS.SEEALSO, vf.createLiteral(i)),
+                    vf.createStatement(subject, RDFS.SEEALSO, Values.iri("urn:other:" + i)) };
+            for (Statement st : record) {
+                writer.handleStatement(st);
+                expected.add(st.getSubject(), st.getPredicate(), st.getObject(), graph);
+            }
+            writer.endRecord();
+        }
+        writer.endRDF();
+
+        String content = out.toString(StandardCharsets.UTF_8);
+        Model actual = Rio.parse(new StringReader(content), "", RDFFormat.TRIG);
+        assertTrue(Models.isomorphic(expected, actual), "output should contain the same statements");
+        assertEquals(1, content.split("\\{", -1).length - 1, "all statements should be in a single graph block");
+        assertTrue(content.contains("ex:entity-3 a rdfs:Resource;"), "statements should be grouped by subject");
+    }
+
+    @Test
+    void testLocalName() {
+        assertTrue(RecordGroupingTurtleWriter.isLocalName("entity-1.a"));
+        assertTrue(!RecordGroupingTurtleWriter.isLocalName("entity."));
+        assertTrue(!RecordGroupingTurtleWriter.isLocalName("a/b"));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RecordReaderTest {
+
+    @Test
+    void testTopLevelArray() throws IOException {
+        assertEquals(List.of("{\"id\":1}", "{\"id\":2,\"values\":[1,2]}", "{\"id\":3}"),
+                readAll("[ {\"id\": 1}, {\"id\": 2, \"values\": [1, 2]},\n {\"id\": 3} ]"));
+    }
+
+    @Test
+    void testMultipleTopLevelValues() throws IOException {
+        // JSONL and arrays mixed with single objects
+        assertEquals(List.of("{\"id\":1}", "{\"id\":2}", "{\"id\":3}", "{\"id\":4}"),
+                readAll("{\"id\": 1}\n{\"id\": 2}\n[{\"id\": 3}, {\"id\": 4}]\n"));
+    }
+
+    @Test
+    void testEmptySource() throws IOException {
+        assertEquals(List.of(), readAll(""));
+        assertEquals(List.of(), readAll("[]"));
+    }
+
+    @Test
+    void testTruncatedSource() {
+        assertThrows(IOException.class, () -> readAll("[{\"id\": 1}, {\"id\""));
+    }
+
+    private List<String> readAll(String json) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (RecordReader reader = RecordReader.json(new StringReader(json))) {
+            String record;
+            while ((record = reader.nextRecord()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.Test;
+
+class RollingRDFWriterTest {
+
+    @Test
+    void testRollByStatementCount() throws IOException {
+        List<ByteArrayOutputStream> contents = new ArrayList<>();
+        List<OutputFile> parts = new ArrayList<>();
+        RollingRDFWriter writer = new RollingRDFWriter(RDFFormat.TRIG, 40, 0, part -> {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            contents.add(content);
+            OutputFile output = new OutputFile(Path.of("part-" + part + ".trig"), null, content, null);
+            parts.add(output);
+            RDFWriter partWriter = Rio.createWriter(RDFFormat.TRIG, output.getStream());
+            partWriter.startRDF();
+            partWriter.handleNamespace("rdfs", RDFS.NAMESPACE);
+            output.setWriter(partWriter);
+            return output;
+        });
+        writer.startRDF();
+        for (int i = 0; i < 100; i++) {
+            writer.handleStatement(Values.getValueFactory().createStatement(Values.iri("urn:entity:" + i),
+                    RDFS.LABEL, Values.literal("entity " + i)));
+        }
+        writer.endRDF();
+        for (OutputFile part : parts) {
+            part.close();
+        }
+
+        assertEquals(3, writer.getPartCount(), "output should be split into three parts");
+        long statements = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            assertTrue(parts.get(i).getStatementCount() <= 40, "part should not exceed the maximum size");
+            assertTrue(parts.get(i).getSize() > 0, "size of the part should be tracked");
+            // each part is a complete document
+            Model model = Rio.parse(new StringReader(contents.get(i).toString(StandardCharsets.UTF_8)), "",
+                    RDFFormat.TRIG);
+            assertEquals(parts.get(i).getStatementCount(), model.size());
+            statements += model.size();
+        }
+        assertEquals(100, statements, "all statements should be written");
+    }
+}
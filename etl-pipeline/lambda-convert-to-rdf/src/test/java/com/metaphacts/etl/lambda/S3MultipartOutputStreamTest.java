@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+class S3MultipartOutputStreamTest {
+    private static final int PART_SIZE = S3MultipartOutputStream.MIN_PART_SIZE;
+
+    @Test
+    void testSinglePartIsUploadedWithPutObject() throws Exception {
+        MockS3 s3 = new MockS3();
+        byte[] data = data(1000);
+
+        try (S3MultipartOutputStream out = new S3MultipartOutputStream(s3.client(), "bucket", "key.nt", PART_SIZE, 2,
+                Runnable::run)) {
+            out.write(data);
+        }
+
+        assertEquals(List.of("putObject"), s3.calls);
+        assertArrayEquals(data, s3.objects.get("bucket/key.nt"));
+    }
+
+    @Test
+    void testMultipartUploadIsCompleted() throws Exception {
+        MockS3 s3 = new MockS3();
+        byte[] data = data(PART_SIZE * 5 / 2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            try (S3MultipartOutputStream out = new S3MultipartOutputStream(s3.client(), "bucket", "key.nt", PART_SIZE,
+                    2, executor)) {
+                // write in chunks which do not align with the part size
+                for (int offset = 0; offset < data.length; offset += 100_000) {
+                    out.write(data, offset, Math.min(100_000, data.length - offset));
+                }
+            }
+
+            assertEquals("createMultipartUpload", s3.calls.get(0));
+            assertEquals("completeMultipartUpload", s3.calls.get(s3.calls.size() - 1));
+            assertEquals(3, s3.parts.size());
+            assertEquals(PART_SIZE, s3.parts.get(1).length);
+            assertEquals(PART_SIZE, s3.parts.get(2).length);
+            assertEquals(PART_SIZE / 2, s3.parts.get(3).length);
+            assertEquals(List.of(1, 2, 3), s3.completedParts);
+            assertArrayEquals(data, s3.objects.get("bucket/key.nt"));
+
+            // the shared executor is still usable by other streams
+            assertTrue(!executor.isShutdown());
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testFailedPartAbortsUpload() throws Exception {
+        MockS3 s3 = new MockS3();
+        s3.failingPart = 2;
+        byte[] data = data(PART_SIZE * 5 / 2);
+
+        S3MultipartOutputStream out = new S3MultipartOutputStream(s3.client(), "bucket", "key.nt", PART_SIZE, 2,
+                Runnable::run);
+        assertThrows(IOException.class, () -> {
+            out.write(data);
+            out.close();
+        });
+
+        assertTrue(s3.calls.contains("abortMultipartUpload"), "upload should be aborted");
+        assertTrue(!s3.calls.contains("completeMultipartUpload"), "upload should not be completed");
+        assertTrue(!s3.objects.containsKey("bucket/key.nt"));
+        assertThrows(IOException.class, () -> out.write(1));
+    }
+
+    @Test
+    void testAbortAfterCloseHasNoEffect() throws Exception {
+        MockS3 s3 = new MockS3();
+        byte[] data = data(PART_SIZE + 1);
+
+        S3MultipartOutputStream out = new S3MultipartOutputStream(s3.client(), "bucket", "key.nt", PART_SIZE, 2,
+                Runnable::run);
+        out.write(data);
+        out.close();
+        out.abort();
+
+        assertTrue(!s3.calls.contains("abortMultipartUpload"), "completed upload should not be aborted");
+        assertArrayEquals(data, s3.objects.get("bucket/key.nt"));
+    }
+
+    @Test
+    void testAbortBeforeClose() throws Exception {
+        MockS3 s3 = new MockS3();
+
+        S3MultipartOutputStream out = new S3MultipartOutputStream(s3.client(), "bucket", "key.nt", PART_SIZE, 2,
+                Runnable::run);
+        out.write(data(PART_SIZE + 1));
+        out.abort();
+        out.close();
+
+        assertEquals(List.of("createMultipartUpload", "uploadPart", "abortMultipartUpload"), s3.calls);
+        assertTrue(!s3.objects.containsKey("bucket/key.nt"));
+        assertThrows(IOException.class, () -> out.write(1));
+    }
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + (i >> 16));
+        }
+        return data;
+    }
+
+    /**
+     * Records the calls of the S3 operations used by
+     * {@link S3MultipartOutputStream} and keeps uploaded objects in memory.
+     */
+    static class MockS3 {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, byte[]> objects = Collections.synchronizedMap(new TreeMap<>());
+        final Map<Integer, byte[]> parts = Collections.synchronizedMap(new TreeMap<>());
+        final List<Integer> completedParts = new ArrayList<>();
+        volatile int failingPart = -1;
+
+        S3Client client() {
+            return (S3Client) Proxy.newProxyInstance(S3Client.class.getClassLoader(), new Class<?>[] { S3Client.class },
+                    (proxy, method, args) -> {
+                        Object request = (args != null && args.length > 0) ? args[0] : null;
+                        if (request instanceof PutObjectRequest) {
+                            calls.add("putObject");
+                            PutObjectRequest put = (PutObjectRequest) request;
+                            objects.put(put.bucket() + "/" + put.key(), read((RequestBody) args[1]));
+                            return PutObjectResponse.builder().eTag("etag").build();
+                        }
+                        if (request instanceof CreateMultipartUploadRequest) {
+                            calls.add("createMultipartUpload");
+                            return CreateMultipartUploadResponse.builder().uploadId("upload-1").build();
+                        }
+                        if (request instanceof UploadPartRequest) {
+                            calls.add("uploadPart");
+                            UploadPartRequest upload = (UploadPartRequest) request;
+                            if (upload.partNumber() == failingPart) {
+                                throw new IllegalStateException("failed to upload part " + failingPart);
+                            }
+                            parts.put(upload.partNumber(), read((RequestBody) args[1]));
+                            return UploadPartResponse.builder().eTag("etag-" + upload.partNumber()).build();
+                        }
+                        if (request instanceof CompleteMultipartUploadRequest) {
+                            calls.add("completeMultipartUpload");
+                            CompleteMultipartUploadRequest complete = (CompleteMultipartUploadRequest) request;
+                            ByteArrayOutputStream object = new ByteArrayOutputStream();
+                            for (CompletedPart part : complete.multipartUpload().parts()) {
+                                completedParts.add(part.partNumber());
+                                object.write(parts.get(part.partNumber()));
+                            }
+                            objects.put(complete.bucket() + "/" + complete.key(), object.toByteArray());
+                            return CompleteMultipartUploadResponse.builder().build();
+                        }
+                        if (request instanceof AbortMultipartUploadRequest) {
+                            calls.add("abortMultipartUpload");
+                            return AbortMultipartUploadResponse.builder().build();
+                        }
+                        switch (method.getName()) {
+                        case "close":
+                            return null;
+                        case "serviceName":
+                            return S3Client.SERVICE_NAME;
+                        case "toString":
+                            return "MockS3";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        private static byte[] read(RequestBody body) throws IOException {
+            try (InputStream in = body.contentStreamProvider().newStream()) {
+                return in.readAllBytes();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.Test;
+
+class StreamingNQuadsWriterTest {
+    private static final ValueFactory vf = Values.getValueFactory();
+
+    @Test
+    void testRoundTrip() throws IOException {
+        IRI graph = Values.iri("urn:graph:1");
+        Model expected = new LinkedHashModel();
+        for (int i = 0; i < 2000; i++) {
+            IRI subject = Values.iri("urn:entity:" + i);
+            expected.add(subject, RDF.TYPE, RDFS.RESOURCE, graph);
+            expected.add(subject, RDFS.LABEL, vf.createLiteral("entity \"" + i + "\"\n\t\\ ä€😀"),
+                    graph);
+            expected.add(subject, RDFS.COMMENT, vf.createLiteral("Kommentar", "de"), graph);
+            expected.add(subject, RDFS.SEEALSO, vf.createLiteral(i), graph);
+            expected.add(vf.createBNode("b" + i), RDFS.LABEL, vf.createLiteral("blank", XSD.STRING), graph);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingNQuadsWriter writer = new StreamingNQuadsWriter(out, RDFFormat.NQUADS, 2);
+        writer.setFixedContext(graph);
+        writer.startRDF();
+        writer.handleNamespace("rdfs", RDFS.NAMESPACE);
+        for (Statement st : expected) {
+            // context is taken from the fixed context
+            writer.handleStatement(vf.createStatement(st.getSubject(), st.getPredicate(), st.getObject()));
+        }
+        writer.endRDF();
+
+        Model actual = Rio.parse(new ByteArrayInputStream(out.toByteArray()), "", RDFFormat.NQUADS);
+        assertEquals(expected.size(), actual.size());
+        assertTrue(Models.isomorphic(expected, actual), "output should contain the same statements");
+    }
+
+    @Test
+    void testEscapeIri() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingNQuadsWriter writer = new StreamingNQuadsWriter(out, RDFFormat.NTRIPLES);
+        writer.setFixedContext(Values.iri("urn:graph:1"));
+        writer.startRDF();
+        writer.handleStatement(vf.createStatement(Values.iri("urn:a b"), RDFS.LABEL, vf.createLiteral("a")));
+        writer.endRDF();
+
+        assertEquals("<urn:a\\u0020b> <" + RDFS.LABEL + "> \"a\" .\n", out.toString(StandardCharsets.UTF_8),
+                "N-Triples should not contain the context");
+    }
+}
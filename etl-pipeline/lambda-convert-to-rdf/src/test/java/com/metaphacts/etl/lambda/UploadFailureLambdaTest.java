@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.batchEvent;
+import static com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.task;
+import static io.restassured.RestAssured.given;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.lambda.runtime.events.S3BatchEvent;
+import com.amazonaws.services.lambda.runtime.events.S3BatchEvent.Task;
+import com.amazonaws.services.lambda.runtime.events.S3BatchResponse;
+import com.amazonaws.services.lambda.runtime.events.S3BatchResponse.Result;
+import com.amazonaws.services.lambda.runtime.events.S3BatchResponse.ResultCode;
+import com.metaphacts.etl.lambda.S3BatchOperationsTestUtils.S3BatchResponseMatcher;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Runs the Lambda with an upload bucket which does not exist, so uploading the
+ * output of each task fails after the task has been converted.
+ */
+@io.quarkus.test.junit.QuarkusTest
+@TestProfile(UploadFailureLambdaTest.MissingUploadBucket.class)
+public class UploadFailureLambdaTest extends LambdaHandlerTest {
+
+    public static class MissingUploadBucket implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("upload.bucket", "missing-output-bucket",
+                    "process.parallelism", "2",
+                    // conversion waits for the upload of the previous task
+                    "upload.pending", "1");
+        }
+    }
+
+    @Override
+    @Test
+    @Disabled("no task succeeds when uploads fail, see testFailedUploadFailsTask()")
+    public void testSimpleLambdaSuccess() throws Exception {
+    }
+
+    @Test
+    public void testFailedUploadFailsTask() throws Exception {
+        bootstrapMappings();
+
+        S3BatchEvent event = batchEvent(
+                task("source-bucket", "publications/pub1.xml"),
+                task("source-bucket", "publications/pub2.xml"),
+                task("source-bucket", "organizations/companies-dax.csv"));
+        given()
+                .contentType("application/json")
+                .accept("application/json")
+                .body(event)
+                .when()
+                .post()
+                .then()
+                .statusCode(200)
+                .body(new S3BatchResponseMatcher(event) {
+                    @Override
+                    protected boolean matches(S3BatchEvent event, S3BatchResponse response, Task task,
+                            Result result, int index) {
+                        if (ResultCode.Succeeded.equals(result.getResultCode())) {
+                            reportIssue(event, response, task, result, "task succeeded without uploaded output");
+                            return false;
+                        }
+                        if (result.getResultString() == null
+                                || !result.getResultString().contains("could not upload results")) {
+                            reportIssue(event, response, task, result, "result does not report the failed upload");
+                            return false;
+                        }
+                        return true;
+                    }
+                });
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2015-2023, metaphacts GmbH
+ */
+package com.metaphacts.etl.lambda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.junit.jupiter.api.Test;
+
+class ValueCacheTest {
+
+    @Test
+    void testIntern() {
+        ValueCache cache = new ValueCache(1024 * 1024, 256);
+        ValueFactory vf = new InterningValueFactory(cache);
+
+        IRI iri = vf.createIRI("http://example.com/type");
+        assertSame(iri, vf.createIRI("http://example.com/", "type"));
+        Literal literal = vf.createLiteral("42", XSD.INT);
+        assertSame(literal, vf.createLiteral("42", XSD.INT));
+        assertNotSame(literal, vf.createLiteral("42"), "values of different types should not be shared");
+        assertSame(vf.createLiteral("label", "en"), vf.createLiteral("label", "en"));
+
+        assertTrue(cache.getHits() >= 3);
+        assertTrue(cache.getHitRate() > 0);
+    }
+
+    @Test
+    void testLongValuesAreNotCached() {
+        ValueCache cache = new ValueCache(1024 * 1024, 10);
+        ValueFactory vf = new InterningValueFactory(cache);
+
+        String label = "a rather long description";
+        assertNotSame(vf.createLiteral(label), vf.createLiteral(label));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testMemoryLimit() {
+        ValueCache cache = new ValueCache(64 * 1024, 256);
+        ValueFactory vf = new InterningValueFactory(cache);
+
+        for (int i = 0; i < 10000; i++) {
+            vf.createIRI("http://example.com/entity/" + i);
+        }
+        assertTrue(cache.getMemory() <= 64 * 1024, "cache should not exceed its memory limit");
+        assertTrue(cache.getEvictions() > 0, "least recently used values should be evicted");
+        assertEquals(10000 - cache.getEvictions(), cache.size());
+    }
+}
@@ -32,6 +32,7 @@ def lambda_handler(event, context):
     sourceBucket = event['sourceBucket']
     sourcePrefix = event.get('sourcePrefix', '')
     sourcePattern = event.get('sourcePattern', '.*')
+    shardSize = int(event.get('shardSize', 0) or 0)
 
     logger.info(f"Generating manifest from bucket {sourceBucket}/{sourcePrefix} matching pattern {sourcePattern}")
         
@@ -47,10 +48,11 @@ def lambda_handler(event, context):
     manifest_local_path = f"/tmp/{uniq_file_name}-{manifest_name}"
     total_count = 0
     with open(manifest_local_path, "a+") as f:
-        for file in list_files_bucket(sourceBucket, sourcePrefix, sourcePattern):
-            total_count = total_count + 1
-            line = f"{sourceBucket},{file}"
-            f.write(f"{line}\n")
+        for file, size in list_files_bucket(sourceBucket, sourcePrefix, sourcePattern, with_size=True):
+            for key in shard_keys(file, size, shardSize):
+                total_count = total_count + 1
+                line = f"{sourceBucket},{key}"
+                f.write(f"{line}\n")
     
     logger.info(f"Uploading manifest for {total_count} files to {runtimeBucket}/{manifest_file_key}")
     s3r.meta.client.upload_file(manifest_local_path,runtimeBucket,manifest_file_key)
@@ -78,7 +80,22 @@ def lambda_handler(event, context):
             output=json.dumps(result)
         )
 
-def list_files_bucket(bucket_name, prefix, pattern):
+def shard_keys(file, size, shard_size):
+    """Split large uncompressed JSONL files into byte ranges which are converted by separate tasks.
+
+    The range is appended to the key as '#bytes=START-END' (URL-encoded), the RDF conversion
+    processes all lines starting within the range. Other files are not split, as the RDF
+    conversion only supports byte ranges for line-based files.
+    """
+    if shard_size <= 0 or size <= shard_size or not file.lower().endswith('.jsonl'):
+        yield file
+        return
+    for start in range(0, size, shard_size):
+        end = min(size, start + shard_size)
+        yield f"{file}%23bytes={start}-{end}"
+
+
+def list_files_bucket(bucket_name, prefix, pattern, with_size=False):
     paginator = s3c.get_paginator("list_objects_v2")
     response = paginator.paginate(Bucket=bucket_name, Prefix=prefix)
 
@@ -97,7 +114,10 @@ def list_files_bucket(bucket_name, prefix, pattern):
                     # ignore this file
                     logger.info(f"skipping file {fileName}")
                     continue
-            yield fileName
+            if with_size:
+                yield fileName, file['Size']
+            else:
+                yield fileName
 
 
 LOGGING_LEVEL = logging.INFO
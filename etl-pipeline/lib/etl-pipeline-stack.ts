@@ -79,7 +79,8 @@ export class EtlPipelineStack extends cdk.Stack {
       autoDeleteObjects: true,
     });
     
-    // deploy files from ../mappings into the bucket
+    // deploy files from ../mappings into the bucket, including the mapping snapshot
+    // created with `./gradlew createMappingSnapshot` in lambda-convert-to-rdf
     new BucketDeployment(this, 'mappingsBucketDeployment', {
       sources: [Source.asset('../mappings')],
       destinationBucket: mappingsBucket,
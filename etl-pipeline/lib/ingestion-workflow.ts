@@ -34,6 +34,12 @@ export interface IngestionWorkflowProps {
    * Note: the pattern needs to match the full key name, i.e. inclusing any prefix defined using SOURCE_PREFIX.
    */
   sourcePattern?: string,
+  /**
+   * maximum size (bytes) of a single RDF conversion task. Larger uncompressed JSONL source files
+   * (*.jsonl) are split into byte ranges which are converted by separate tasks. Other files are
+   * never split. When unset, files are not split.
+   */
+  sourceShardSize?: number,
 
   /** bucket containing RML mappings */
   mappingsBucket: s3.Bucket,
@@ -192,6 +198,7 @@ export class IngestionWorkflow extends Construct {
       sourceBucket: props.sourceBucket.bucketName,
       sourcePrefix: props.sourcePrefix,
       sourcePattern: props.sourcePattern,
+      shardSize: props.sourceShardSize || 0,
     }),
     outputPath: '$.Payload',
   });